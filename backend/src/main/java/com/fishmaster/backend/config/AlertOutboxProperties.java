@@ -0,0 +1,21 @@
+package com.fishmaster.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "alerts.outbox")
+@Getter
+@Setter
+public class AlertOutboxProperties {
+    private int workers = 2;
+    private int batchSize = 20;           // rows claimed per round trip
+    private long pollIntervalMs = 2_000;  // idle poll; commits also wake the workers directly
+    private long leaseSeconds = 60;       // renewed per row before delivery; anyone may retry a row once it expires
+    private int maxAttempts = 8;
+    private long initialBackoffMs = 2_000;
+    private long maxBackoffMs = 600_000;  // doubles per attempt up to this
+    private int retentionDays = 7;        // SENT/SKIPPED/FAILED rows older than this are purged
+}
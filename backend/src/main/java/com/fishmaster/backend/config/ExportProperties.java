@@ -0,0 +1,20 @@
+package com.fishmaster.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "export")
+@Getter
+@Setter
+public class ExportProperties {
+    // Raw reading export: rows per keyset page (one short query each) and rows per cursor fetch
+    private int pageSize = 5000;
+    private int fetchSize = 1000;
+    // Longest from..to range one export may cover; from defaults to this far before to
+    private int maxRangeDays = 366;
+    // Async timeout of the export request only; a year of readings takes a while on a slow client
+    private long timeoutMs = 3_600_000;  // 1h
+}
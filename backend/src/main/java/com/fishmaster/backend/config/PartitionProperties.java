@@ -0,0 +1,18 @@
+package com.fishmaster.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "partitions")
+@Getter
+@Setter
+public class PartitionProperties {
+    // Monthly range partitions on server_timestamp for the reading and device info tables (PostgreSQL only)
+    private boolean enabled = true;
+    private int monthsAhead = 3;                 // future months that always have a partition
+    private int retentionMonths = 0;             // partitions entirely older than this many months are dropped; 0 keeps all
+    private long checkIntervalMs = 21_600_000;   // 6h
+}
@@ -0,0 +1,20 @@
+package com.fishmaster.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "rollups")
+@Getter
+@Setter
+public class RollupProperties {
+    // Point budget of a rollup query when the client does not pass maxPoints; 90 days of hours fit
+    private int defaultMaxPoints = 2500;
+    // Minute rollups older than this are deleted (hour and day rollups are kept); 0 keeps all
+    private int minuteRetentionDays = 30;
+    private long purgeIntervalMs = 3_600_000;  // 1h
+    // On first start, fill the rollups from the readings already stored (PostgreSQL only)
+    private boolean backfillOnStart = true;
+}
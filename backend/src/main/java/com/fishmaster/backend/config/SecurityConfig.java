@@ -22,6 +22,16 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    // Use explicit origins when allowCredentials(true) is enabled; also checked on WebSocket handshakes
+    static final List<String> ALLOWED_ORIGINS = List.of(
+            "http://localhost:5173",
+            "http://127.0.0.1:5173",
+            "https://fishmaster-frontend.up.railway.app",
+            // Production frontend actual domain
+            "https://fishmastero.up.railway.app",
+            "https://fishmaster.app"
+    );
+
     private final AuthenticationProvider authenticationProvider;
     private final JwtAuthFilter jwtAuthenticationFilter;
 
@@ -39,10 +49,15 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         // Public endpoints
                         .requestMatchers("/auth/**").permitAll()
+                        // Stored readings are only served for the caller's own tanks
+                        .requestMatchers("/api/telemetry/*/history", "/api/telemetry/*/chart",
+                                "/api/telemetry/*/export", "/api/telemetry/rollups").authenticated()
                         .requestMatchers("/api/telemetry/**").permitAll()
                         .requestMatchers("/api/devices/**").permitAll()
                         .requestMatchers("/device/**").permitAll()
                         .requestMatchers("/api/alerts/stream").permitAll()
+                        .requestMatchers("/api/stream").permitAll()
+                        .requestMatchers("/api/ws/stream").permitAll()
                         // Everything else requires auth
                         .anyRequest().authenticated()
                 )
@@ -62,15 +77,7 @@ public class SecurityConfig {
 
         CorsConfiguration config = new CorsConfiguration();
 
-        // Use explicit origins when allowCredentials(true) is enabled
-        config.setAllowedOrigins(List.of(
-                "http://localhost:5173",
-                "http://127.0.0.1:5173",
-                "https://fishmaster-frontend.up.railway.app",
-                // Production frontend actual domain
-                "https://fishmastero.up.railway.app",
-                "https://fishmaster.app"
-        ));
+        config.setAllowedOrigins(ALLOWED_ORIGINS);
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
         config.setExposedHeaders(List.of("Authorization", "Content-Type", "Cache-Control"));
@@ -0,0 +1,32 @@
+package com.fishmaster.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stream")
+@Getter
+@Setter
+public class StreamProperties {
+    // Events waiting for one SSE client; telemetry is conflated per tank/metric, so this mostly bounds alerts
+    private int subscriberQueueCapacity = 256;
+    // A client whose writer has been stuck in one send for longer than this is disconnected
+    private long maxStallMs = 30_000;
+    // Frames kept per topic for Last-Event-ID replay, and how long a topic's ring outlives its last subscriber
+    private int replayBufferSize = 256;
+    private long replayRetentionMs = 300_000;
+    // SSE comment sent to every client so idle proxies keep the connection open
+    private long heartbeatIntervalMs = 15_000;
+    // Per-session WebSocket buffers: clients only send small subscription messages, and every
+    // open dashboard pays for these, so they stay well below Tomcat's 8 KB default
+    private int webSocketBufferSize = 2_048;
+    // Outgoing bytes a WebSocket session may have buffered (writes overlapping a resubscribe) before it is closed
+    private int webSocketSendBufferLimit = 512 * 1024;
+
+    // Cross-node fan-out over PostgreSQL LISTEN/NOTIFY; needed as soon as more than one backend runs
+    private boolean relayEnabled = false;
+    private String relayChannel = "fishmaster_stream";
+    private int relayQueueCapacity = 10_000; // outgoing events waiting for NOTIFY; overflow is dropped
+}
@@ -0,0 +1,46 @@
+package com.fishmaster.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "telemetry")
+@Getter
+@Setter
+public class TelemetryProperties {
+    // Write-behind persistence: readings are flushed as JDBC batches on whichever limit is hit first
+    private int batchSize = 200;
+    private long flushIntervalMs = 500;
+    // Upper bound on buffered readings; past this the producing thread flushes inline (backpressure)
+    private int maxPending = 10_000;
+
+    // Hand-off queue between the MQTT callback thread and telemetry processing
+    private int ingestQueueCapacity = 4096;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private int spillCapacity = 50_000; // only used by SPILL
+
+    // Per-tank ordered lanes for storage, alert evaluation and SSE; 0 = one lane per CPU core
+    private int lanes = 0;
+    private int laneQueueCapacity = 1024;
+
+    // Max mqttTankIds whose tank/threshold context is cached for alert evaluation (LRU beyond this)
+    private int thresholdCacheSize = 10_000;
+    // How long an mqttTankId with no tank is remembered; onboarding may register it at any time
+    private long unknownTankCacheTtlMs = 30_000;
+    // How long a tank's context is kept; changes are evicted at once (on other nodes via the stream
+    // relay), this only bounds how stale an eviction missed while the relay reconnects can leave it
+    private long thresholdCacheTtlMs = 300_000;
+
+    // How often changed tank_health rows (and their minute history) are upserted
+    private long healthFlushIntervalMs = 1000;
+    // tank_health_history rows older than this are deleted (the advisor serves 7 days); 0 keeps them
+    private int healthHistoryRetentionDays = 30;
+
+    public enum OverflowPolicy {
+        BLOCK,       // MQTT callback waits for room (backpressure towards the broker)
+        DROP_OLDEST, // evict the oldest queued message to make room
+        SPILL        // park overflow in a secondary in-memory queue drained once the ring has room
+    }
+}
@@ -0,0 +1,37 @@
+package com.fishmaster.backend.config;
+
+import com.fishmaster.backend.controllers.StreamWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final StreamWebSocketHandler streamWebSocketHandler;
+    private final StreamProperties streamProperties;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(streamWebSocketHandler, "/api/ws/stream")
+                .setAllowedOrigins(SecurityConfig.ALLOWED_ORIGINS.toArray(String[]::new));
+    }
+
+    // Set as context parameters rather than through ServletServerContainerFactoryBean, which
+    // fails in contexts without a real container (MockMvc tests)
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> webSocketBufferCustomizer() {
+        String size = String.valueOf(streamProperties.getWebSocketBufferSize());
+        return factory -> factory.addContextCustomizers(context -> {
+            context.addParameter("org.apache.tomcat.websocket.textBufferSize", size);
+            context.addParameter("org.apache.tomcat.websocket.binaryBufferSize", size);
+        });
+    }
+}
@@ -5,7 +5,9 @@ import com.fishmaster.backend.model.Tank;
 import com.fishmaster.backend.model.User;
 import com.fishmaster.backend.repositories.AlertRepository;
 import com.fishmaster.backend.repositories.TankRepository;
-import com.fishmaster.backend.service.AlertSseService;
+import com.fishmaster.backend.service.AlertOutboxService;
+import com.fishmaster.backend.service.StreamHub;
+import dto.AlertDeliveryDto;
 import dto.AlertResponseDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -28,7 +30,8 @@ public class AlertController {
 
     private final AlertRepository alertRepository;
     private final TankRepository tankRepository;
-    private final AlertSseService alertSseService;
+    private final StreamHub streamHub;
+    private final AlertOutboxService alertOutboxService;
 
     @GetMapping
     public ResponseEntity<List<AlertResponseDto>> getAllAlerts(@AuthenticationPrincipal User user) {
@@ -74,13 +77,39 @@ public class AlertController {
         return ResponseEntity.ok(Map.of("message", "Alert acknowledged", "id", alert.getId()));
     }
 
+    @GetMapping("/{id}/deliveries")
+    public ResponseEntity<List<AlertDeliveryDto>> getDeliveries(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id) {
+        Alert alert = alertRepository.findById(id).orElse(null);
+        if (alert == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!alert.getUserId().equals(user.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(alertOutboxService.deliveries(id).stream().map(e -> {
+            AlertDeliveryDto dto = new AlertDeliveryDto();
+            dto.setKind(e.getKind().name());
+            dto.setChannel(e.getChannel().name());
+            dto.setStatus(e.getStatus().name());
+            dto.setAttempts(e.getAttempts());
+            dto.setNextAttemptAt(e.getNextAttemptAt());
+            dto.setSentAt(e.getSentAt());
+            dto.setLastError(e.getLastError());
+            return dto;
+        }).collect(Collectors.toList()));
+    }
+
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter stream(@AuthenticationPrincipal User user, HttpServletResponse response) {
+    public SseEmitter stream(@AuthenticationPrincipal User user,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                             HttpServletResponse response) {
         response.setHeader("Cache-Control", "no-store");
         response.setHeader("X-Accel-Buffering", "no");
 
         Long userId = user != null ? user.getId() : 0L;
-        return alertSseService.register(userId);
+        return streamHub.subscribe(List.of(StreamHub.alertTopic(userId)), "connected", lastEventId);
     }
 
     private AlertResponseDto toDto(Alert alert, String tankName) {
@@ -5,8 +5,10 @@ import com.fishmaster.backend.model.Tank;
 import com.fishmaster.backend.model.User;
 import com.fishmaster.backend.repositories.AlertThresholdRepository;
 import com.fishmaster.backend.repositories.TankRepository;
+import com.fishmaster.backend.service.TankConfigChangedEvent;
 import dto.AlertThresholdDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -22,6 +24,7 @@ public class AlertThresholdController {
 
     private final AlertThresholdRepository thresholdRepository;
     private final TankRepository tankRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @GetMapping("/{tankId}")
     public ResponseEntity<?> getThresholds(
@@ -76,13 +79,17 @@ public class AlertThresholdController {
         threshold.setUpdatedAt(Instant.now());
 
         thresholdRepository.save(threshold);
+        eventPublisher.publishEvent(new TankConfigChangedEvent(tank.getId(), tank.getMqttTankId()));
         return ResponseEntity.ok(toDto(threshold));
     }
 
     private AlertThreshold createDefaultThreshold(Long tankId) {
         AlertThreshold t = new AlertThreshold();
         t.setTankId(tankId);
-        return thresholdRepository.save(t);
+        AlertThreshold saved = thresholdRepository.save(t);
+        // Stored defaults replace the fish-based ranges AlertEngine used until now
+        eventPublisher.publishEvent(new TankConfigChangedEvent(tankId, null));
+        return saved;
     }
 
     private AlertThresholdDto toDto(AlertThreshold t) {
@@ -1,6 +1,7 @@
 package com.fishmaster.backend.controllers;
 
 import com.fishmaster.backend.service.MqttSubscriberService;
+import com.fishmaster.backend.service.TankShardedExecutor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -8,6 +9,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,6 +18,7 @@ import java.util.Map;
 public class DeviceAdminController {
 
     private final MqttSubscriberService mqttSubscriberService;
+    private final TankShardedExecutor tankShardedExecutor;
 
     @GetMapping("/reconnect")
     public ResponseEntity<Map<String, Object>> reconnect() {
@@ -35,4 +38,10 @@ public class DeviceAdminController {
                 "action", "mqtt-reconnect-requested"
         ));
     }
+
+    // Per-lane backlog and processing time; hottestTanksMillis points at tanks that dominate a lane.
+    @GetMapping("/telemetry/lanes")
+    public ResponseEntity<List<TankShardedExecutor.LaneStats>> telemetryLanes() {
+        return ResponseEntity.ok(tankShardedExecutor.stats());
+    }
 }
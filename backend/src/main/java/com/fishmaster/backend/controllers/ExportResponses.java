@@ -0,0 +1,54 @@
+package com.fishmaster.backend.controllers;
+
+import com.fishmaster.backend.config.ExportProperties;
+import com.fishmaster.backend.service.ReadingExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+
+/** Builds the streamed export response shared by the per-metric telemetry controllers. */
+final class ExportResponses {
+
+    private static final MediaType CSV = new MediaType("text", "csv");
+    private static final MediaType NDJSON = new MediaType("application", "x-ndjson");
+
+    private ExportResponses() {}
+
+    static ResponseEntity<StreamingResponseBody> of(ReadingExportService exportService, ExportProperties props,
+                                                    HttpServletRequest request, String metric, String tankId,
+                                                    Instant from, Instant to, long afterId, String format) {
+        ReadingExportService.Format parsed;
+        try {
+            parsed = ReadingExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("format must be csv or ndjson");
+        }
+        exportService.source(metric); // reject an unknown metric before the response is committed
+        Duration maxRange = Duration.ofDays(props.getMaxRangeDays());
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(maxRange);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (Duration.between(start, end).compareTo(maxRange) > 0) {
+            throw new IllegalArgumentException("export range is limited to " + props.getMaxRangeDays() + " days");
+        }
+        // Only this request gets the long timeout; the MVC default still applies to everything else
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(props.getTimeoutMs());
+        String filename = tankId.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + metric + "."
+                + format.toLowerCase(Locale.ROOT);
+        StreamingResponseBody body = out -> exportService.export(metric, tankId, start, end, afterId, parsed, out);
+        return ResponseEntity.ok()
+                .contentType(parsed == ReadingExportService.Format.CSV ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(body);
+    }
+}
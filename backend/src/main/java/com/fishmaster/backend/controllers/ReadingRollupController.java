@@ -0,0 +1,46 @@
+package com.fishmaster.backend.controllers;
+
+import com.fishmaster.backend.model.User;
+import com.fishmaster.backend.service.ReadingRollupService;
+import com.fishmaster.backend.service.TankService;
+import dto.RollupSeriesDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/telemetry/rollups")
+@RequiredArgsConstructor
+public class ReadingRollupController {
+
+    private final ReadingRollupService rollupService;
+    private final TankService tankService;
+
+    // Chart data: one point per minute, hour or day, whichever is finest within maxPoints
+    @GetMapping
+    public RollupSeriesDto series(@AuthenticationPrincipal User user,
+                                  @RequestParam(required = false) String tankId,
+                                  @RequestParam String metric,
+                                  @RequestParam(required = false) Instant from,
+                                  @RequestParam(required = false) Instant to,
+                                  @RequestParam(required = false) Integer maxPoints) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(24));
+        return rollupService.getSeries(tankService.resolveTelemetryTankId(user, tankId), metric, start, end, maxPoints);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(SecurityException.class)
+    public ResponseEntity<Map<String, String>> forbidden(SecurityException ex) {
+        return ResponseEntity.status(403).body(Map.of("error", ex.getMessage()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.fishmaster.backend.controllers;
+
+import com.fishmaster.backend.model.User;
+import com.fishmaster.backend.service.StreamHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.List;
+
+/**
+ * One SSE connection for everything a dashboard shows:
+ * {@code /api/stream?tankId=tank1&tankId=tank2&metrics=temperature,ph&alerts=true}.
+ * Events keep the names of the per-metric streams (temperature, ph, turbidity, alert,
+ * alert-resolved) and carry their tankId, so one EventSource can replace the four. Like the
+ * per-metric streams it resumes from Last-Event-ID on reconnect. The same subscription is
+ * available over WebSocket at {@code /api/ws/stream} (see {@link StreamWebSocketHandler}).
+ */
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+public class StreamController {
+
+    private final StreamHub streamHub;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@RequestParam(required = false) List<String> tankId,
+                                             @RequestParam(required = false) List<String> metrics,
+                                             @RequestParam(defaultValue = "true") boolean alerts,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                             @AuthenticationPrincipal User user,
+                                             HttpServletResponse response) {
+        List<String> topics;
+        try {
+            // Alerts are per user, so they need the access_token the alert stream already uses
+            topics = StreamHub.dashboardTopics(tankId, metrics, alerts && user != null ? user.getId() : null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        response.setHeader("Cache-Control", "no-store");
+        response.setHeader("X-Accel-Buffering", "no");
+        return ResponseEntity.ok(streamHub.subscribe(topics, "ready", lastEventId));
+    }
+}
@@ -0,0 +1,126 @@
+package com.fishmaster.backend.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fishmaster.backend.config.StreamProperties;
+import com.fishmaster.backend.model.User;
+import com.fishmaster.backend.service.StreamHub;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The dashboard stream over one WebSocket, for clients that keep many connections open:
+ * {@code /api/ws/stream?tankId=tank1&metrics=temperature,ph&alerts=true&lastEventId=...} subscribes
+ * like {@code /api/stream} (alerts need access_token). Every server message is a JSON array of
+ * {@code {"id":..,"event":"temperature","data":{..}}} envelopes using the SSE event names
+ * (temperature, ph, turbidity, alert, alert-resolved, ready, reset); heartbeats are pings.
+ * <p>
+ * The client can change its subscription without reconnecting by sending
+ * {@code {"tankId":["tank2"],"metrics":["ph"],"alerts":false,"lastEventId":"..."}}. An idle
+ * socket holds no servlet async context and only small frame buffers, which is what makes
+ * thousands of open dashboards cheap; see StreamConnectionBenchmark.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StreamWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String SESSION_ATTRIBUTE = "stream.session";
+    private static final String CANCEL_ATTRIBUTE = "stream.cancel";
+
+    private final StreamHub streamHub;
+    private final ObjectMapper objectMapper;
+    private final StreamProperties props;
+
+    /** What the client sends to (re)subscribe; absent fields mean the same as absent query parameters. */
+    record Subscription(List<String> tankId, List<String> metrics, Boolean alerts, String lastEventId) { }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        // The hub's writer and this handler may both touch the session; the decorator serializes sends
+        int sendTimeLimit = (int) Math.min(Integer.MAX_VALUE, props.getMaxStallMs());
+        session.getAttributes().put(SESSION_ATTRIBUTE,
+                new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, props.getWebSocketSendBufferLimit()));
+
+        MultiValueMap<String, String> query = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+        String alerts = query.getFirst("alerts");
+        String lastEventId = query.getFirst("lastEventId");
+        subscribe(session, new Subscription(
+                listParam(query.get("tankId")),
+                listParam(query.get("metrics")),
+                alerts == null || !"false".equalsIgnoreCase(alerts),
+                lastEventId != null ? UriUtils.decode(lastEventId, StandardCharsets.UTF_8) : null));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        Subscription subscription;
+        try {
+            subscription = objectMapper.readValue(message.getPayload(), Subscription.class);
+        } catch (JsonProcessingException e) {
+            session.close(CloseStatus.BAD_DATA.withReason("Expected a subscription object"));
+            return;
+        }
+        subscribe(session, subscription);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        cancel(session);
+    }
+
+    private void subscribe(WebSocketSession session, Subscription subscription) throws IOException {
+        Long alertUserId = !Boolean.FALSE.equals(subscription.alerts()) ? userId(session) : null;
+        List<String> topics;
+        try {
+            topics = StreamHub.dashboardTopics(subscription.tankId(), subscription.metrics(), alertUserId);
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        }
+        cancel(session);
+        WebSocketSession concurrent = (WebSocketSession) session.getAttributes().get(SESSION_ATTRIBUTE);
+        Runnable cancel = streamHub.subscribe(concurrent, topics, "ready", subscription.lastEventId());
+        session.getAttributes().put(CANCEL_ATTRIBUTE, cancel);
+        log.debug("[SSE] WebSocket {} subscribed to {}", session.getId(), topics);
+    }
+
+    private static void cancel(WebSocketSession session) {
+        Runnable cancel = (Runnable) session.getAttributes().remove(CANCEL_ATTRIBUTE);
+        if (cancel != null) cancel.run();
+    }
+
+    private static Long userId(WebSocketSession session) {
+        // Set from the handshake request, which went through JwtAuthFilter
+        return session.getPrincipal() instanceof Authentication auth && auth.getPrincipal() instanceof User user
+                ? user.getId() : null;
+    }
+
+    /** Repeated and comma-separated values, like Spring MVC binds {@code List<String>} parameters. */
+    private static List<String> listParam(List<String> rawValues) {
+        if (rawValues == null) return null;
+        List<String> values = new ArrayList<>();
+        for (String raw : rawValues) {
+            if (raw == null) continue;
+            for (String value : UriUtils.decode(raw, StandardCharsets.UTF_8).split(",")) {
+                if (!value.isBlank()) values.add(value.trim());
+            }
+        }
+        return values;
+    }
+}
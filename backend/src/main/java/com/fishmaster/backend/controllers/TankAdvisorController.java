@@ -3,11 +3,13 @@ package com.fishmaster.backend.controllers;
 import com.fishmaster.backend.model.User;
 import com.fishmaster.backend.service.TankAdvisorService;
 import dto.AdvisorSnapshotDto;
+import dto.HealthPointDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,6 +19,12 @@ public class TankAdvisorController {
 
     private final TankAdvisorService tankAdvisorService;
 
+    /** Snapshots of all the user's tanks in one call, with the same number of queries for any tank count. */
+    @GetMapping("/tanks")
+    public ResponseEntity<List<AdvisorSnapshotDto>> getSnapshots(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(tankAdvisorService.getSnapshots(user));
+    }
+
     @GetMapping("/tanks/{tankId}")
     public ResponseEntity<AdvisorSnapshotDto> getSnapshot(
             @AuthenticationPrincipal User user,
@@ -24,6 +32,14 @@ public class TankAdvisorController {
         return ResponseEntity.ok(tankAdvisorService.getSnapshot(user, tankId));
     }
 
+    @GetMapping("/tanks/{tankId}/health-history")
+    public ResponseEntity<List<HealthPointDto>> getHealthHistory(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long tankId,
+            @RequestParam(defaultValue = "24") int hours) {
+        return ResponseEntity.ok(tankAdvisorService.getHealthHistory(user, tankId, hours));
+    }
+
     @PostMapping("/tanks/{tankId}/quests/{questKey}/complete")
     public ResponseEntity<AdvisorSnapshotDto> completeQuest(
             @AuthenticationPrincipal User user,
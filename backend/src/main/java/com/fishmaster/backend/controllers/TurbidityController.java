@@ -1,16 +1,31 @@
 package com.fishmaster.backend.controllers;
 
+import com.fishmaster.backend.config.ExportProperties;
 import com.fishmaster.backend.model.TurbidityReading;
+import com.fishmaster.backend.model.User;
 import com.fishmaster.backend.repositories.TurbidityReadingRepository;
+import com.fishmaster.backend.service.ReadingExportService;
+import com.fishmaster.backend.service.ReadingHistoryService;
+import com.fishmaster.backend.service.StreamHub;
+import com.fishmaster.backend.service.TankService;
 import com.fishmaster.backend.service.TelemetryService;
+import dto.ChartPointDto;
+import dto.HistoryBucketDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -19,17 +34,22 @@ import java.util.Optional;
 public class TurbidityController {
 
     private final TelemetryService telemetryService;
+    private final StreamHub streamHub;
+    private final ReadingHistoryService historyService;
+    private final ReadingExportService exportService;
+    private final ExportProperties exportProperties;
+    private final TankService tankService;
     private final TurbidityReadingRepository repository;
 
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter stream(HttpServletResponse response) {
+    public SseEmitter stream(@RequestParam(required = false) String tankId,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                             HttpServletResponse response) {
         response.setHeader("Cache-Control", "no-store");
         response.setHeader("X-Accel-Buffering", "no");
-        SseEmitter emitter = telemetryService.registerTurbidityEmitter();
-        try {
-            emitter.send(SseEmitter.event().name("ready").data("ok"));
-        } catch (Exception ignored) { }
-        return emitter;
+        // Without a tankId the stream carries every tank, as before
+        String topic = StreamHub.telemetryTopic("turbidity", tankId != null ? tankId : StreamHub.ALL_TANKS);
+        return streamHub.subscribe(List.of(topic), "ready", lastEventId);
     }
 
     @GetMapping("/latest")
@@ -44,6 +64,55 @@ public class TurbidityController {
         return repository.findByTankIdOrderByServerTimestampDesc(tankId, PageRequest.of(0, safeLimit));
     }
 
+    // Min/avg/max/count per bucket (e.g. bucket=5m, 1h, 1d or PT15M); empty buckets come back with count 0
+    @GetMapping("/history")
+    public List<HistoryBucketDto> history(@AuthenticationPrincipal User user,
+                                          @RequestParam(required = false) String tankId,
+                                          @RequestParam(required = false) Instant from,
+                                          @RequestParam(required = false) Instant to,
+                                          @RequestParam(defaultValue = "1h") String bucket) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(24));
+        String ownedTankId = tankService.resolveTelemetryTankId(user, tankId);
+        return historyService.getHistory("turbidity", ownedTankId, start, end, ReadingHistoryService.parseBucket(bucket));
+    }
+
+    // At most `points` raw readings chosen with LTTB, so spikes and dips survive at a fixed payload size
+    @GetMapping("/chart")
+    public List<ChartPointDto> chart(@AuthenticationPrincipal User user,
+                                     @RequestParam(required = false) String tankId,
+                                     @RequestParam(required = false) Instant from,
+                                     @RequestParam(required = false) Instant to,
+                                     @RequestParam(defaultValue = "500") int points) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(24));
+        String ownedTankId = tankService.resolveTelemetryTankId(user, tankId);
+        return historyService.getDownsampled("turbidity", ownedTankId, start, end, points);
+    }
+
+    // Full raw export, oldest first (format=csv|ndjson); resume with from=<last serverTimestamp>&afterId=<last id>
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@AuthenticationPrincipal User user,
+                                                        @RequestParam(required = false) String tankId,
+                                                        @RequestParam(required = false) Instant from,
+                                                        @RequestParam(required = false) Instant to,
+                                                        @RequestParam(defaultValue = "0") long afterId,
+                                                        @RequestParam(defaultValue = "csv") String format,
+                                                        HttpServletRequest request) {
+        return ExportResponses.of(exportService, exportProperties, request, "turbidity",
+                tankService.resolveTelemetryTankId(user, tankId), from, to, afterId, format);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(SecurityException.class)
+    public ResponseEntity<Map<String, String>> forbidden(SecurityException ex) {
+        return ResponseEntity.status(403).body(Map.of("error", ex.getMessage()));
+    }
+
     // Optional HTTP ingest for testing or when MQTT is not available in the runtime
     @PostMapping(value = "/ingest", consumes = MediaType.APPLICATION_JSON_VALUE)
     public void ingest(@RequestBody String payload) {
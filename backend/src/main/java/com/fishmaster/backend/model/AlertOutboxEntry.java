@@ -0,0 +1,72 @@
+package com.fishmaster.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One pending notification for an alert on one channel, written in the same transaction
+ * as the alert itself and delivered later by AlertOutboxService.
+ */
+@Entity
+@Table(name = "alert_outbox", indexes = {
+        @Index(name = "idx_alert_outbox_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_alert_outbox_alert", columnList = "alert_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class AlertOutboxEntry {
+
+    public enum Kind { ALERT, RESOLVED }
+
+    public enum Channel { IN_APP, EMAIL, PUSH }
+
+    public enum Status { PENDING, IN_PROGRESS, SENT, SKIPPED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "alert_id", nullable = false)
+    private Long alertId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Kind kind;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Channel channel;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt = Instant.now();
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    public AlertOutboxEntry(Long alertId, Kind kind, Channel channel) {
+        this.alertId = alertId;
+        this.kind = kind;
+        this.channel = channel;
+    }
+}
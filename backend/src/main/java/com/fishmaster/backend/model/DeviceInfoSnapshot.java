@@ -8,9 +8,8 @@ import lombok.Setter;
 import java.time.Instant;
 
 @Entity
-@Table(name = "device_info_snapshots", indexes = {
-        @Index(name = "idx_device_info_device_time", columnList = "device_id, server_timestamp")
-})
+// Index idx_device_info_device_time (device_id, server_timestamp) and the monthly partitions are managed by PartitionManager
+@Table(name = "device_info_snapshots")
 @Getter
 @Setter
 @NoArgsConstructor
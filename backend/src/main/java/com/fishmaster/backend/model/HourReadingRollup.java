@@ -0,0 +1,13 @@
+package com.fishmaster.backend.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "reading_rollups_hour")
+@IdClass(ReadingRollup.Key.class)
+@NoArgsConstructor
+public class HourReadingRollup extends ReadingRollup {
+}
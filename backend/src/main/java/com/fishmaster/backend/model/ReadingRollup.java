@@ -0,0 +1,70 @@
+package com.fishmaster.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * One tank metric's readings aggregated over a bucket (a minute, hour or UTC day, starting at
+ * {@code bucket}). Kept up to date at ingest by ReadingRollupService; the average is
+ * {@code sumValue / sampleCount}.
+ */
+@MappedSuperclass
+@Getter
+@Setter
+@NoArgsConstructor
+public abstract class ReadingRollup {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private String tankId;
+        private String metric;
+        private Instant bucket;
+    }
+
+    @Id
+    @Column(name = "tank_id", length = 64)
+    private String tankId;
+
+    @Id
+    @Column(name = "metric", length = 16)
+    private String metric; // temperature | ph | turbidity
+
+    @Id
+    @Column(name = "bucket")
+    private Instant bucket;
+
+    @Column(name = "min_value", nullable = false)
+    private Double minValue;
+
+    @Column(name = "max_value", nullable = false)
+    private Double maxValue;
+
+    @Column(name = "sum_value", nullable = false)
+    private Double sumValue;
+
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount;
+
+    @Column(name = "first_value", nullable = false)
+    private Double firstValue;
+
+    @Column(name = "first_at", nullable = false)
+    private Instant firstAt;
+
+    @Column(name = "last_value", nullable = false)
+    private Double lastValue;
+
+    @Column(name = "last_at", nullable = false)
+    private Instant lastAt;
+}
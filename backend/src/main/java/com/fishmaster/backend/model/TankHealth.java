@@ -0,0 +1,63 @@
+package com.fishmaster.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Current health of one tank, maintained at ingest by TankHealthProjector: the latest value and
+ * score per metric, the weighted overall percent and the mood. Read as-is by the advisor and
+ * dashboards; never written through JPA.
+ */
+@Entity
+@Table(name = "tank_health", indexes = {
+        @Index(name = "idx_tank_health_user", columnList = "user_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class TankHealth {
+
+    @Id
+    @Column(name = "tank_id")
+    private Long tankId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(precision = 5, scale = 2)
+    private BigDecimal temperature;
+
+    @Column(precision = 5, scale = 2)
+    private BigDecimal ph;
+
+    @Column(precision = 7, scale = 2)
+    private BigDecimal turbidity;
+
+    @Column(name = "temperature_score", nullable = false)
+    private Integer temperatureScore;
+
+    @Column(name = "ph_score", nullable = false)
+    private Integer phScore;
+
+    @Column(name = "turbidity_score", nullable = false)
+    private Integer turbidityScore;
+
+    @Column(name = "health_percent", nullable = false)
+    private Integer healthPercent;
+
+    @Column(nullable = false, length = 16)
+    private String mood;
+
+    // Server time of the newest reading folded in
+    @Column(name = "reading_at", nullable = false)
+    private Instant readingAt;
+
+    // When the overall percent or the mood last changed
+    @Column(name = "last_changed_at", nullable = false)
+    private Instant lastChangedAt;
+}
@@ -0,0 +1,44 @@
+package com.fishmaster.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/** Overall health of one tank per minute, for charts; the last value seen in that minute wins. */
+@Entity
+@Table(name = "tank_health_history", indexes = {
+        @Index(name = "idx_tank_health_history_minute", columnList = "minute")
+})
+@IdClass(TankHealthHistory.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class TankHealthHistory {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long tankId;
+        private Instant minute;
+    }
+
+    @Id
+    @Column(name = "tank_id")
+    private Long tankId;
+
+    @Id
+    @Column(name = "minute")
+    private Instant minute;
+
+    @Column(name = "health_percent", nullable = false)
+    private Integer healthPercent;
+}
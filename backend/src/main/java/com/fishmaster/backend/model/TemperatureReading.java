@@ -9,10 +9,8 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
-@Table(name = "temperature_readings", indexes = {
-        // Note: DESC in JPA @Index columnList is not portable; omit direction for compatibility
-        @Index(name = "idx_temp_tank_time", columnList = "tank_id, server_timestamp")
-})
+// Index idx_temp_tank_time (tank_id, server_timestamp) and the monthly partitions are managed by PartitionManager
+@Table(name = "temperature_readings")
 @Getter
 @Setter
 @NoArgsConstructor
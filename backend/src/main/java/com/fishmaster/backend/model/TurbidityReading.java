@@ -9,9 +9,8 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
-@Table(name = "turbidity_readings", indexes = {
-        @Index(name = "idx_turbidity_tank_time", columnList = "tank_id, server_timestamp")
-})
+// Index idx_turbidity_tank_time (tank_id, server_timestamp) and the monthly partitions are managed by PartitionManager
+@Table(name = "turbidity_readings")
 @Getter
 @Setter
 @NoArgsConstructor
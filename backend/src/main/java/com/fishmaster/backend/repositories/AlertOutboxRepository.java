@@ -0,0 +1,12 @@
+package com.fishmaster.backend.repositories;
+
+import com.fishmaster.backend.model.AlertOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AlertOutboxRepository extends JpaRepository<AlertOutboxEntry, Long> {
+    List<AlertOutboxEntry> findByAlertIdOrderByIdAsc(Long alertId);
+}
@@ -2,6 +2,9 @@ package com.fishmaster.backend.repositories;
 
 import com.fishmaster.backend.model.Alert;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
@@ -13,6 +16,9 @@ public interface AlertRepository extends JpaRepository<Alert, Long> {
     List<Alert> findByUserIdOrderByCreatedAtDesc(Long userId);
     List<Alert> findByTankIdOrderByCreatedAtDesc(Long tankId);
     List<Alert> findByUserIdAndResolvedAtIsNullOrderByCreatedAtDesc(Long userId);
-    Optional<Alert> findFirstByTankIdAndMetricAndResolvedAtIsNullOrderByCreatedAtDesc(Long tankId, String metric);
-    List<Alert> findByTankIdAndMetricAndResolvedAtIsNullAndCreatedAtAfter(Long tankId, String metric, Instant after);
+    List<Alert> findByResolvedAtIsNullOrderByCreatedAtAsc();
+
+    @Modifying
+    @Query("UPDATE Alert a SET a.resolvedAt = :resolvedAt WHERE a.id = :id AND a.resolvedAt IS NULL")
+    int markResolved(@Param("id") Long id, @Param("resolvedAt") Instant resolvedAt);
 }
@@ -4,9 +4,13 @@ import com.fishmaster.backend.model.AlertThreshold;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AlertThresholdRepository extends JpaRepository<AlertThreshold, Long> {
     Optional<AlertThreshold> findByTankId(Long tankId);
+
+    List<AlertThreshold> findByTankIdIn(Collection<Long> tankIds);
 }
@@ -0,0 +1,37 @@
+package com.fishmaster.backend.repositories;
+
+import com.fishmaster.backend.model.HourReadingRollup;
+import com.fishmaster.backend.model.ReadingRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface HourReadingRollupRepository extends JpaRepository<HourReadingRollup, ReadingRollup.Key> {
+
+    /**
+     * A {@link TrendWindow} from the hourly rollups: at most one row per hour instead of every
+     * reading. {@code from} and {@code mid} should be whole hours.
+     */
+    @Query("SELECT new com.fishmaster.backend.repositories.TrendWindow(SUM(r.sampleCount), "
+            + "SUM(CASE WHEN r.bucket < :mid THEN r.sumValue END) / SUM(CASE WHEN r.bucket < :mid THEN r.sampleCount END), "
+            + "SUM(CASE WHEN r.bucket >= :mid THEN r.sumValue END) / SUM(CASE WHEN r.bucket >= :mid THEN r.sampleCount END)) "
+            + "FROM HourReadingRollup r WHERE r.tankId = :tankId AND r.metric = :metric "
+            + "AND r.bucket >= :from AND r.bucket < :to")
+    TrendWindow findTrendWindow(@Param("tankId") String tankId, @Param("metric") String metric,
+                                @Param("from") Instant from, @Param("mid") Instant mid, @Param("to") Instant to);
+
+    /** {@link #findTrendWindow} for several tanks at once, one row per tank that has readings. */
+    @Query("SELECT new com.fishmaster.backend.repositories.TankTrendWindow(r.tankId, SUM(r.sampleCount), "
+            + "SUM(CASE WHEN r.bucket < :mid THEN r.sumValue END) / SUM(CASE WHEN r.bucket < :mid THEN r.sampleCount END), "
+            + "SUM(CASE WHEN r.bucket >= :mid THEN r.sumValue END) / SUM(CASE WHEN r.bucket >= :mid THEN r.sampleCount END)) "
+            + "FROM HourReadingRollup r WHERE r.tankId IN :tankIds AND r.metric = :metric "
+            + "AND r.bucket >= :from AND r.bucket < :to GROUP BY r.tankId")
+    List<TankTrendWindow> findTrendWindows(@Param("tankIds") Collection<String> tankIds, @Param("metric") String metric,
+                                           @Param("from") Instant from, @Param("mid") Instant mid, @Param("to") Instant to);
+}
@@ -0,0 +1,13 @@
+package com.fishmaster.backend.repositories;
+
+import com.fishmaster.backend.model.TankHealthHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface TankHealthHistoryRepository extends JpaRepository<TankHealthHistory, TankHealthHistory.Key> {
+    List<TankHealthHistory> findByTankIdAndMinuteGreaterThanEqualOrderByMinuteAsc(Long tankId, Instant from);
+}
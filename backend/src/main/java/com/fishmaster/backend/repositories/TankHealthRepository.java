@@ -0,0 +1,12 @@
+package com.fishmaster.backend.repositories;
+
+import com.fishmaster.backend.model.TankHealth;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TankHealthRepository extends JpaRepository<TankHealth, Long> {
+    List<TankHealth> findByUserId(Long userId);
+}
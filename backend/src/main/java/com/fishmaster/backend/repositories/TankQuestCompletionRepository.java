@@ -12,6 +12,8 @@ import java.util.Optional;
 public interface TankQuestCompletionRepository extends JpaRepository<TankQuestCompletion, Long> {
     List<TankQuestCompletion> findByUserIdAndTankIdAndQuestDate(Long userId, Long tankId, LocalDate questDate);
 
+    List<TankQuestCompletion> findByUserIdAndQuestDate(Long userId, LocalDate questDate);
+
     Optional<TankQuestCompletion> findByUserIdAndTankIdAndQuestKeyAndQuestDate(
             Long userId, Long tankId, String questKey, LocalDate questDate);
 }
@@ -0,0 +1,8 @@
+package com.fishmaster.backend.repositories;
+
+/** {@link TrendWindow} of one tank, from a query grouped by tank id. */
+public record TankTrendWindow(String tankId, Long count, Double olderAverage, Double newerAverage) {
+    public TrendWindow window() {
+        return new TrendWindow(count, olderAverage, newerAverage);
+    }
+}
@@ -3,8 +3,11 @@ package com.fishmaster.backend.repositories;
 import com.fishmaster.backend.model.TemperatureReading;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +15,9 @@ import java.util.Optional;
 public interface TemperatureReadingRepository extends JpaRepository<TemperatureReading, Long> {
     Optional<TemperatureReading> findTopByTankIdOrderByServerTimestampDesc(String tankId);
     List<TemperatureReading> findByTankIdOrderByServerTimestampDesc(String tankId, Pageable pageable);
+
+    /** The newest reading of each tank, like findTopByTankIdOrderByServerTimestampDesc for all of them in one query. */
+    @Query(value = "SELECT DISTINCT ON (tank_id) * FROM temperature_readings WHERE tank_id IN (:tankIds) "
+            + "ORDER BY tank_id, server_timestamp DESC", nativeQuery = true)
+    List<TemperatureReading> findLatestByTankIdIn(@Param("tankIds") Collection<String> tankIds);
 }
@@ -0,0 +1,8 @@
+package com.fishmaster.backend.repositories;
+
+/**
+ * One metric's readings over a time window, aggregated in the database: how many there are and
+ * the average of the older and the newer half of the window (null when a half has no readings).
+ */
+public record TrendWindow(Long count, Double olderAverage, Double newerAverage) {
+}
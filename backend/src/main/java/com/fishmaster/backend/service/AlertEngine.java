@@ -2,19 +2,15 @@ package com.fishmaster.backend.service;
 
 import com.fishmaster.backend.model.*;
 import com.fishmaster.backend.repositories.AlertRepository;
-import com.fishmaster.backend.repositories.AlertThresholdRepository;
-import com.fishmaster.backend.repositories.TankRepository;
+import com.fishmaster.backend.util.DoubleMath;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.List;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -23,69 +19,57 @@ public class AlertEngine {
 
     private static final Duration COOLDOWN = Duration.ofMinutes(15);
 
-    // Default thresholds if none configured
-    private static final BigDecimal DEFAULT_TEMP_MIN = new BigDecimal("22.0");
-    private static final BigDecimal DEFAULT_TEMP_MAX = new BigDecimal("28.0");
-    private static final BigDecimal DEFAULT_PH_MIN = new BigDecimal("6.5");
-    private static final BigDecimal DEFAULT_PH_MAX = new BigDecimal("7.5");
-    private static final BigDecimal DEFAULT_TURBIDITY_MAX = new BigDecimal("5.0");
-
     private final AlertRepository alertRepository;
-    private final AlertThresholdRepository thresholdRepository;
-    private final TankRepository tankRepository;
-    private final AlertNotificationService notificationService;
-
-    @Transactional
+    private final TankThresholdCache thresholdCache;
+    private final AlertOutboxService alertOutbox;
+    private final AlertStateTracker alertState;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Not transactional as a whole: the common case (in range with nothing open, or inside the
+     * cooldown) is served from memory, and a transaction is only opened to write an alert.
+     */
     public void evaluate(String mqttTankId, String metric, BigDecimal value) {
         if (value == null || metric == null) return;
 
-        // 1. Resolve Tank entity
-        Optional<Tank> tankOpt = tankRepository.findFirstByMqttTankId(mqttTankId);
-        if (tankOpt.isEmpty()) {
+        // 1-4. Tank, owner and effective thresholds (cached per mqttTankId)
+        TankThresholdCache.ThresholdContext context = thresholdCache.get(mqttTankId);
+        if (context == null) {
             log.debug("[ALERT] No tank found for mqttTankId={}, skipping evaluation", mqttTankId);
             return;
         }
-        Tank tank = tankOpt.get();
-        Long tankId = tank.getId();
-        Long userId = tank.getUser().getId();
-
-        // 2. Load thresholds
-        AlertThreshold thresholds = thresholdRepository.findByTankId(tankId).orElse(null);
-
-        // 3. Check if this metric is enabled
-        if (thresholds != null && !Boolean.TRUE.equals(thresholds.getGlobalAlertsEnabled())) {
+        TankThresholdCache.MetricLimits limits = context.limits(metric);
+        if (limits == null || !limits.enabled()) {
             return;
         }
-        if (thresholds != null && !isMetricEnabled(thresholds, metric)) {
-            return;
-        }
-
-        // 4. Get thresholds for this metric
-        BigDecimal low = getThresholdLow(thresholds, tank, metric);
-        BigDecimal high = getThresholdHigh(thresholds, tank, metric);
-
-        // 5. Check violation
-        boolean violatesLow = low != null && value.compareTo(low) < 0;
-        boolean violatesHigh = high != null && value.compareTo(high) > 0;
+        Long tankId = context.tankId();
+        Long userId = context.userId();
+        AlertThreshold thresholds = context.stored();
+        BigDecimal low = limits.low();
+        BigDecimal high = limits.high();
+
+        // 5. Check violation (primitive compare; BigDecimal is kept for the stored alert and message)
+        double v = value.doubleValue();
+        double lo = limits.lowValue();
+        double hi = limits.highValue();
+        boolean violatesLow = v < lo; // false when lo is NaN (no threshold)
+        boolean violatesHigh = v > hi;
         boolean isViolation = violatesLow || violatesHigh;
 
         if (!isViolation) {
             // Auto-resolve any open alert
-            autoResolve(tankId, metric, userId);
+            autoResolve(tankId, metric);
             return;
         }
 
-        // 6. Cooldown check
-        Instant cooldownCutoff = Instant.now().minus(COOLDOWN);
-        List<Alert> recentAlerts = alertRepository
-                .findByTankIdAndMetricAndResolvedAtIsNullAndCreatedAtAfter(tankId, metric, cooldownCutoff);
-        if (!recentAlerts.isEmpty()) {
+        // 6. Cooldown check (in-memory; no query unless an alert is about to be created)
+        if (alertState.inCooldown(tankId, metric, Instant.now().minus(COOLDOWN))) {
             log.debug("[ALERT] Cooldown active for tank={} metric={}, skipping", tankId, metric);
             return;
         }
 
         // 7. Determine severity
-        AlertSeverity severity = calculateSeverity(value, low, high);
+        AlertSeverity severity = calculateSeverity(v, lo, hi);
 
         // 8. Build message
         String message = buildMessage(metric, value, low, high, violatesLow);
@@ -100,113 +84,57 @@ public class AlertEngine {
         alert.setThresholdHigh(high);
         alert.setSeverity(severity);
         alert.setMessage(message);
-        alert = alertRepository.save(alert);
-
-        log.info("[ALERT] Created {} alert id={} for tank={} metric={} value={}",
-                severity, alert.getId(), tankId, metric, value);
+        transactionTemplate.executeWithoutResult(status -> {
+            Alert saved = alertRepository.save(alert);
+            alertState.opened(saved);
 
-        // 10. Dispatch notifications
-        notificationService.dispatch(alert, thresholds);
-    }
+            log.info("[ALERT] Created {} alert id={} for tank={} metric={} value={}",
+                    severity, saved.getId(), tankId, metric, value);
 
-    private void autoResolve(Long tankId, String metric, Long userId) {
-        Optional<Alert> openAlert = alertRepository
-                .findFirstByTankIdAndMetricAndResolvedAtIsNullOrderByCreatedAtDesc(tankId, metric);
-        if (openAlert.isPresent()) {
-            Alert alert = openAlert.get();
-            alert.setResolvedAt(Instant.now());
-            alertRepository.save(alert);
-            log.info("[ALERT] Auto-resolved alert id={} for tank={} metric={}", alert.getId(), tankId, metric);
-            notificationService.dispatchResolution(alert);
-        }
+            // 10. Queue notifications; AlertOutboxService delivers them after commit
+            alertOutbox.enqueueAlert(saved, thresholds);
+        });
     }
 
-    private boolean isMetricEnabled(AlertThreshold t, String metric) {
-        return switch (metric) {
-            case "temperature" -> Boolean.TRUE.equals(t.getTemperatureEnabled());
-            case "ph" -> Boolean.TRUE.equals(t.getPhEnabled());
-            case "turbidity" -> Boolean.TRUE.equals(t.getTurbidityEnabled());
-            default -> false;
-        };
+    private void autoResolve(Long tankId, String metric) {
+        if (alertState.newestOpen(tankId, metric) == null) return;
+        transactionTemplate.executeWithoutResult(status -> resolveNewest(tankId, metric));
     }
 
-    private BigDecimal getThresholdLow(AlertThreshold t, Tank tank, String metric) {
-        if (t != null) {
-            return switch (metric) {
-                case "temperature" -> t.getTemperatureMin();
-                case "ph" -> t.getPhMin();
-                case "turbidity" -> null; // turbidity has no min threshold
-                default -> null;
-            };
-        }
-        // Fall back to fish-type based safe ranges
-        return switch (metric) {
-            case "temperature" -> getFishBasedMin(tank, "temperature", DEFAULT_TEMP_MIN);
-            case "ph" -> getFishBasedMin(tank, "ph", DEFAULT_PH_MIN);
-            default -> null;
-        };
-    }
-
-    private BigDecimal getThresholdHigh(AlertThreshold t, Tank tank, String metric) {
-        if (t != null) {
-            return switch (metric) {
-                case "temperature" -> t.getTemperatureMax();
-                case "ph" -> t.getPhMax();
-                case "turbidity" -> t.getTurbidityMax();
-                default -> null;
-            };
-        }
-        return switch (metric) {
-            case "temperature" -> getFishBasedMax(tank, "temperature", DEFAULT_TEMP_MAX);
-            case "ph" -> getFishBasedMax(tank, "ph", DEFAULT_PH_MAX);
-            case "turbidity" -> DEFAULT_TURBIDITY_MAX;
-            default -> null;
-        };
-    }
-
-    private BigDecimal getFishBasedMin(Tank tank, String metric, BigDecimal fallback) {
-        if (tank.getFish() == null || tank.getFish().isEmpty()) return fallback;
-        try {
-            return tank.getFish().stream()
-                    .map(f -> metric.equals("temperature") ? f.getFishType().getMinTemp() : f.getFishType().getMinPh())
-                    .max(BigDecimal::compareTo)
-                    .orElse(fallback);
-        } catch (Exception e) {
-            return fallback;
-        }
-    }
-
-    private BigDecimal getFishBasedMax(Tank tank, String metric, BigDecimal fallback) {
-        if (tank.getFish() == null || tank.getFish().isEmpty()) return fallback;
-        try {
-            return tank.getFish().stream()
-                    .map(f -> metric.equals("temperature") ? f.getFishType().getMaxTemp() : f.getFishType().getMaxPh())
-                    .min(BigDecimal::compareTo)
-                    .orElse(fallback);
-        } catch (Exception e) {
-            return fallback;
+    private void resolveNewest(Long tankId, String metric) {
+        AlertStateTracker.OpenAlert open;
+        while ((open = alertState.newestOpen(tankId, metric)) != null) {
+            Instant now = Instant.now();
+            if (alertRepository.markResolved(open.id(), now) == 0) {
+                // Already resolved outside this node's view; try the next open one
+                alertState.forget(tankId, metric, open.id());
+                continue;
+            }
+            alertState.resolved(tankId, metric, open.id());
+            alertOutbox.enqueueResolution(open.id());
+            log.info("[ALERT] Auto-resolved alert id={} for tank={} metric={}", open.id(), tankId, metric);
+            return;
         }
     }
 
-    private AlertSeverity calculateSeverity(BigDecimal value, BigDecimal low, BigDecimal high) {
+    /** {@code low}/{@code high} are NaN when not configured. */
+    public static AlertSeverity calculateSeverity(double value, double low, double high) {
         // Calculate how far outside the range
-        BigDecimal deviation;
-        BigDecimal rangeSize;
-
-        if (high != null && value.compareTo(high) > 0) {
-            deviation = value.subtract(high).abs();
-            rangeSize = high.abs().max(BigDecimal.ONE);
-        } else if (low != null && value.compareTo(low) < 0) {
-            deviation = low.subtract(value).abs();
-            rangeSize = low.abs().max(BigDecimal.ONE);
+        double deviation;
+        double rangeSize;
+
+        if (value > high) {
+            deviation = value - high;
+            rangeSize = Math.max(Math.abs(high), 1.0);
+        } else if (value < low) {
+            deviation = low - value;
+            rangeSize = Math.max(Math.abs(low), 1.0);
         } else {
             return AlertSeverity.INFO;
         }
 
-        BigDecimal pct = deviation.divide(rangeSize, 4, RoundingMode.HALF_UP)
-                .multiply(new BigDecimal("100"));
-
-        return pct.compareTo(new BigDecimal("20")) > 0 ? AlertSeverity.CRITICAL : AlertSeverity.WARNING;
+        // More than 20% outside, with the ratio rounded HALF_UP to 4 places
+        return DoubleMath.halfUpUnits(deviation / rangeSize, 4) > 2000 ? AlertSeverity.CRITICAL : AlertSeverity.WARNING;
     }
 
     private String buildMessage(String metric, BigDecimal value, BigDecimal low, BigDecimal high, boolean violatesLow) {
@@ -1,8 +1,6 @@
 package com.fishmaster.backend.service;
 
 import com.fishmaster.backend.model.Alert;
-import com.fishmaster.backend.model.AlertSeverity;
-import com.fishmaster.backend.model.AlertThreshold;
 import com.fishmaster.backend.model.Tank;
 import com.fishmaster.backend.model.User;
 import com.fishmaster.backend.repositories.TankRepository;
@@ -13,70 +11,71 @@ import org.springframework.stereotype.Service;
 
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AlertNotificationService {
 
-    private final AlertSseService alertSseService;
+    private final StreamHub streamHub;
     private final EmailService emailService;
     private final WebPushService webPushService;
     private final TankRepository tankRepository;
     private final UserRepository userRepository;
 
-    public void dispatch(Alert alert, AlertThreshold thresholds) {
-        Long userId = alert.getUserId();
+    /*
+     * Per-channel delivery, driven by AlertOutboxService. Each method throws when the channel
+     * failed in a way worth retrying; returning false means there was nothing to send.
+     */
 
-        // 1. Always emit via SSE (in-app real-time)
-        try {
-            if (thresholds == null || Boolean.TRUE.equals(thresholds.getInAppAlertsEnabled())) {
-                alertSseService.emit(userId, alert);
-            }
-        } catch (Exception e) {
-            log.warn("[ALERT-NOTIFY] SSE emission failed: {}", e.getMessage());
-        }
+    public void sendInApp(Alert alert) {
+        FriendlyAlertCopy.FriendlyMessage friendly = FriendlyAlertCopy.forAlert(alert);
+        streamHub.publishAlert(alert.getUserId(), "alert", Map.of(
+                "id", alert.getId(),
+                "tankId", alert.getTankId(),
+                "metric", alert.getMetric(),
+                "value", alert.getValue(),
+                "severity", alert.getSeverity().name(),
+                "message", friendly.body(),
+                "title", friendly.title(),
+                "createdAt", alert.getCreatedAt().toString()
+        ));
+    }
 
-        // 2. Send email for WARNING and CRITICAL
-        if (alert.getSeverity() != AlertSeverity.INFO
-                && (thresholds == null || Boolean.TRUE.equals(thresholds.getEmailAlertsEnabled()))) {
-            try {
-                User user = userRepository.findById(userId).orElse(null);
-                Tank tank = tankRepository.findById(alert.getTankId()).orElse(null);
-                if (user != null && Boolean.TRUE.equals(user.getEmailNotifications())) {
-                    FriendlyAlertCopy.FriendlyMessage friendly = FriendlyAlertCopy.forAlert(alert);
-                    String timestamp = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss 'UTC'")
-                            .withZone(ZoneOffset.UTC)
-                            .format(alert.getCreatedAt());
+    public void sendResolution(Alert alert) {
+        streamHub.publishAlert(alert.getUserId(), "alert-resolved", Map.of(
+                "id", alert.getId(),
+                "tankId", alert.getTankId(),
+                "metric", alert.getMetric(),
+                "resolvedAt", alert.getResolvedAt().toString()
+        ));
+    }
 
-                    emailService.sendFriendlyAlertEmail(
-                            user.getEmail(),
-                            tank != null ? tank.getName() : "Tank #" + alert.getTankId(),
-                            friendly.title(),
-                            friendly.body(),
-                            friendly.actionHint(),
-                            timestamp
-                    );
-                }
-            } catch (Exception e) {
-                log.warn("[ALERT-NOTIFY] Email dispatch failed: {}", e.getMessage());
-            }
+    public boolean sendEmail(Alert alert) throws Exception {
+        User user = userRepository.findById(alert.getUserId()).orElse(null);
+        if (user == null || !Boolean.TRUE.equals(user.getEmailNotifications())) {
+            return false;
         }
+        Tank tank = tankRepository.findById(alert.getTankId()).orElse(null);
+        FriendlyAlertCopy.FriendlyMessage friendly = FriendlyAlertCopy.forAlert(alert);
+        String timestamp = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss 'UTC'")
+                .withZone(ZoneOffset.UTC)
+                .format(alert.getCreatedAt());
 
-        // 3. Send web push
-        try {
-            webPushService.sendPush(userId, alert);
-        } catch (Exception e) {
-            log.warn("[ALERT-NOTIFY] Web push failed: {}", e.getMessage());
-        }
+        emailService.sendFriendlyAlertEmail(
+                user.getEmail(),
+                tank != null ? tank.getName() : "Tank #" + alert.getTankId(),
+                friendly.title(),
+                friendly.body(),
+                friendly.actionHint(),
+                timestamp
+        );
+        return true;
     }
 
-    public void dispatchResolution(Alert alert) {
-        try {
-            alertSseService.emitResolution(alert.getUserId(), alert);
-        } catch (Exception e) {
-            log.warn("[ALERT-NOTIFY] Resolution SSE failed: {}", e.getMessage());
-        }
+    public boolean sendPush(Alert alert) throws Exception {
+        return webPushService.sendPush(alert.getUserId(), alert);
     }
 
     private String formatSafeRange(Alert alert) {
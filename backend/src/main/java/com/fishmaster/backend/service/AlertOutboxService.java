@@ -0,0 +1,288 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.AlertOutboxProperties;
+import com.fishmaster.backend.model.Alert;
+import com.fishmaster.backend.model.AlertOutboxEntry;
+import com.fishmaster.backend.model.AlertOutboxEntry.Channel;
+import com.fishmaster.backend.model.AlertOutboxEntry.Kind;
+import com.fishmaster.backend.model.AlertOutboxEntry.Status;
+import com.fishmaster.backend.model.AlertSeverity;
+import com.fishmaster.backend.model.AlertThreshold;
+import com.fishmaster.backend.repositories.AlertOutboxRepository;
+import com.fishmaster.backend.repositories.AlertRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox for alert notifications. AlertEngine writes one row per channel in the
+ * same transaction as the alert; worker threads claim due rows with {@code FOR UPDATE SKIP LOCKED}
+ * and a lease, deliver them and record the outcome per channel. Failures are retried with
+ * exponential backoff. A crash after commit leaves the rows pending (or leased) so they are
+ * picked up again: delivery is at-least-once.
+ * <p>
+ * The lease is renewed per row right before it is delivered, fenced by the attempt count the
+ * claim returned: a row whose lease ran out while earlier rows of the batch were being sent, and
+ * that another worker has re-claimed since, is skipped instead of being sent twice. Senders time
+ * out well within one lease.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertOutboxService {
+
+    private record Claim(long id, long alertId, Kind kind, Channel channel, int attempts) {}
+
+    private static final String CLAIM_SQL = """
+            UPDATE alert_outbox o
+               SET status = 'IN_PROGRESS', attempts = o.attempts + 1, locked_until = ?
+              FROM (SELECT id FROM alert_outbox
+                     WHERE (status = 'PENDING' AND next_attempt_at <= ?)
+                        OR (status = 'IN_PROGRESS' AND locked_until < ?)
+                     ORDER BY id
+                     LIMIT ?
+                     FOR UPDATE SKIP LOCKED) due
+             WHERE o.id = due.id
+            RETURNING o.id, o.alert_id, o.kind, o.channel, o.attempts
+            """;
+    // attempts = ? matches only while the row is still held by this claim
+    private static final String RENEW_SQL =
+            "UPDATE alert_outbox SET locked_until = ? WHERE id = ? AND status = 'IN_PROGRESS' AND attempts = ?";
+    private static final String DONE_SQL =
+            "UPDATE alert_outbox SET status = ?, sent_at = ?, locked_until = NULL, last_error = NULL WHERE id = ? AND attempts = ?";
+    private static final String RETRY_SQL =
+            "UPDATE alert_outbox SET status = ?, next_attempt_at = ?, locked_until = NULL, last_error = ? WHERE id = ? AND attempts = ?";
+    private static final String PURGE_SQL =
+            "DELETE FROM alert_outbox WHERE status IN ('SENT', 'SKIPPED', 'FAILED') AND created_at < ?";
+
+    private static final Duration PURGE_EVERY = Duration.ofHours(1);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final AlertOutboxRepository outboxRepository;
+    private final AlertRepository alertRepository;
+    private final AlertNotificationService notificationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final AlertOutboxProperties props;
+    private final MeterRegistry meterRegistry;
+
+    private final Object signal = new Object();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+    private volatile Instant lastPurge = Instant.EPOCH;
+
+    /** Queues the notifications for a new alert; must run inside the alert's transaction. */
+    public void enqueueAlert(Alert alert, AlertThreshold thresholds) {
+        List<AlertOutboxEntry> entries = new ArrayList<>(3);
+        if (thresholds == null || Boolean.TRUE.equals(thresholds.getInAppAlertsEnabled())) {
+            entries.add(new AlertOutboxEntry(alert.getId(), Kind.ALERT, Channel.IN_APP));
+        }
+        if (alert.getSeverity() != AlertSeverity.INFO
+                && (thresholds == null || Boolean.TRUE.equals(thresholds.getEmailAlertsEnabled()))) {
+            entries.add(new AlertOutboxEntry(alert.getId(), Kind.ALERT, Channel.EMAIL));
+        }
+        entries.add(new AlertOutboxEntry(alert.getId(), Kind.ALERT, Channel.PUSH));
+        outboxRepository.saveAll(entries);
+        wakeAfterCommit();
+    }
+
+    /** Queues the in-app resolution notice; must run inside the resolving transaction. */
+    public void enqueueResolution(Long alertId) {
+        outboxRepository.save(new AlertOutboxEntry(alertId, Kind.RESOLVED, Channel.IN_APP));
+        wakeAfterCommit();
+    }
+
+    public List<AlertOutboxEntry> deliveries(Long alertId) {
+        return outboxRepository.findByAlertIdOrderByIdAsc(alertId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int count = Math.max(1, props.getWorkers());
+        for (int i = 0; i < count; i++) {
+            Thread t = new Thread(this::workLoop, "alert-outbox-" + i);
+            t.setDaemon(true);
+            workers.add(t);
+            t.start();
+        }
+        log.info("[ALERT-OUTBOX] Started {} dispatcher workers", count);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        wake();
+        for (Thread t : workers) {
+            try {
+                t.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                if (dispatchBatch() == 0) {
+                    purgeIfDue();
+                    synchronized (signal) {
+                        if (running) signal.wait(props.getPollIntervalMs());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("[ALERT-OUTBOX] Dispatch round failed: {}", e.getMessage());
+                sleepQuietly(props.getPollIntervalMs());
+            }
+        }
+    }
+
+    /** Claims and delivers one batch of due rows; returns how many were claimed. */
+    int dispatchBatch() {
+        Instant now = Instant.now();
+        List<Claim> claims = jdbcTemplate.query(CLAIM_SQL,
+                (rs, i) -> new Claim(rs.getLong("id"), rs.getLong("alert_id"),
+                        Kind.valueOf(rs.getString("kind")), Channel.valueOf(rs.getString("channel")),
+                        rs.getInt("attempts")),
+                Timestamp.from(now.plusSeconds(props.getLeaseSeconds())),
+                Timestamp.from(now), Timestamp.from(now), props.getBatchSize());
+        if (claims.isEmpty()) return 0;
+
+        Map<Long, Alert> alerts = alertRepository.findAllById(claims.stream().map(Claim::alertId).distinct().toList())
+                .stream().collect(Collectors.toMap(Alert::getId, Function.identity()));
+        for (Claim claim : claims) {
+            if (!renewLease(claim)) {
+                log.debug("[ALERT-OUTBOX] Lease on outbox row {} was lost; another worker has it", claim.id());
+                continue;
+            }
+            Alert alert = alerts.get(claim.alertId());
+            if (alert == null) {
+                finish(claim, Status.FAILED, "Alert " + claim.alertId() + " no longer exists");
+                continue;
+            }
+            try {
+                boolean delivered = deliver(claim, alert);
+                finish(claim, delivered ? Status.SENT : Status.SKIPPED, null);
+            } catch (Exception e) {
+                retryOrFail(claim, e);
+            }
+        }
+        return claims.size();
+    }
+
+    private boolean renewLease(Claim claim) {
+        Instant lockedUntil = Instant.now().plusSeconds(props.getLeaseSeconds());
+        return jdbcTemplate.update(RENEW_SQL, Timestamp.from(lockedUntil), claim.id(), claim.attempts()) == 1;
+    }
+
+    private boolean deliver(Claim claim, Alert alert) throws Exception {
+        if (claim.kind() == Kind.RESOLVED) {
+            notificationService.sendResolution(alert);
+            return true;
+        }
+        return switch (claim.channel()) {
+            case IN_APP -> {
+                notificationService.sendInApp(alert);
+                yield true;
+            }
+            case EMAIL -> notificationService.sendEmail(alert);
+            case PUSH -> notificationService.sendPush(alert);
+        };
+    }
+
+    private void finish(Claim claim, Status status, String error) {
+        if (error == null) {
+            jdbcTemplate.update(DONE_SQL, status.name(), Timestamp.from(Instant.now()), claim.id(), claim.attempts());
+        } else {
+            jdbcTemplate.update(RETRY_SQL, status.name(), Timestamp.from(Instant.now()), truncate(error), claim.id(),
+                    claim.attempts());
+            log.warn("[ALERT-OUTBOX] {} {} for alert={} failed: {}", claim.kind(), claim.channel(), claim.alertId(), error);
+        }
+        meterRegistry.counter("alerts.outbox.delivered", "channel", claim.channel().name(),
+                "status", status.name()).increment();
+    }
+
+    private void retryOrFail(Claim claim, Exception e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (claim.attempts() >= props.getMaxAttempts()) {
+            finish(claim, Status.FAILED, error);
+            return;
+        }
+        Instant next = Instant.now().plusMillis(backoffMillis(claim.attempts()));
+        jdbcTemplate.update(RETRY_SQL, Status.PENDING.name(), Timestamp.from(next), truncate(error), claim.id(),
+                claim.attempts());
+        meterRegistry.counter("alerts.outbox.retried", "channel", claim.channel().name()).increment();
+        log.debug("[ALERT-OUTBOX] {} {} for alert={} attempt {} failed, retrying at {}: {}",
+                claim.kind(), claim.channel(), claim.alertId(), claim.attempts(), next, error);
+    }
+
+    /** initialBackoff * 2^(attempts-1), capped, with up to 20% jitter so retries spread out. */
+    long backoffMillis(int attempts) {
+        int shift = Math.min(30, Math.max(0, attempts - 1));
+        long base = Math.min(props.getMaxBackoffMs(), props.getInitialBackoffMs() << shift);
+        return base + ThreadLocalRandom.current().nextLong(base / 5 + 1);
+    }
+
+    private void purgeIfDue() {
+        Instant now = Instant.now();
+        if (lastPurge.plus(PURGE_EVERY).isAfter(now)) return;
+        lastPurge = now;
+        int purged = jdbcTemplate.update(PURGE_SQL,
+                Timestamp.from(now.minus(Duration.ofDays(props.getRetentionDays()))));
+        if (purged > 0) {
+            log.info("[ALERT-OUTBOX] Purged {} finished outbox rows", purged);
+        }
+    }
+
+    private void wakeAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+    }
+
+    private void wake() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private static String truncate(String error) {
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
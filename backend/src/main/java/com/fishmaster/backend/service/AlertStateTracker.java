@@ -0,0 +1,131 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.model.Alert;
+import com.fishmaster.backend.model.AlertSeverity;
+import com.fishmaster.backend.repositories.AlertRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of unresolved alerts per (tank, metric), so AlertEngine only touches the
+ * alerts table when an alert is actually opened or resolved. A key with no open alerts is
+ * OK; otherwise the newest open alert drives the cooldown. Rebuilt from the table at startup
+ * (or on first use, whichever comes first). AlertEngine is the only writer of alert state.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertStateTracker {
+
+    public record OpenAlert(Long id, Long userId, Instant createdAt, AlertSeverity severity) {}
+
+    private record Key(Long tankId, String metric) {}
+
+    private static final List<String> METRICS = List.of("temperature", "ph", "turbidity");
+
+    private final AlertRepository alertRepository;
+
+    // Open alerts per key, oldest first; emptied deques are kept (at most one per tank metric)
+    private final Map<Key, Deque<OpenAlert>> open = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        ensureLoaded();
+    }
+
+    /** True when the newest unresolved alert for this key was created after {@code cutoff}. */
+    public boolean inCooldown(Long tankId, String metric, Instant cutoff) {
+        OpenAlert newest = newestOpen(tankId, metric);
+        return newest != null && newest.createdAt().isAfter(cutoff);
+    }
+
+    public OpenAlert newestOpen(Long tankId, String metric) {
+        ensureLoaded();
+        Deque<OpenAlert> alerts = open.get(new Key(tankId, metric));
+        if (alerts == null) return null;
+        synchronized (alerts) {
+            return alerts.peekLast();
+        }
+    }
+
+    /** True when any metric of the tank has an unresolved CRITICAL alert. */
+    public boolean hasCritical(Long tankId) {
+        ensureLoaded();
+        for (String metric : METRICS) {
+            Deque<OpenAlert> alerts = open.get(new Key(tankId, metric));
+            if (alerts == null) continue;
+            synchronized (alerts) {
+                for (OpenAlert alert : alerts) {
+                    if (alert.severity() == AlertSeverity.CRITICAL) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Records a newly saved alert once the surrounding transaction commits. */
+    public void opened(Alert alert) {
+        OpenAlert entry = new OpenAlert(alert.getId(), alert.getUserId(), alert.getCreatedAt(), alert.getSeverity());
+        Key key = new Key(alert.getTankId(), alert.getMetric());
+        afterCommit(() -> {
+            Deque<OpenAlert> alerts = open.computeIfAbsent(key, k -> new ArrayDeque<>());
+            synchronized (alerts) {
+                alerts.addLast(entry);
+            }
+        });
+    }
+
+    /** Forgets an alert once the surrounding transaction commits its resolution. */
+    public void resolved(Long tankId, String metric, Long alertId) {
+        afterCommit(() -> forget(tankId, metric, alertId));
+    }
+
+    /** Drops an alert that turned out to be resolved already (no commit to wait for). */
+    public void forget(Long tankId, String metric, Long alertId) {
+        Deque<OpenAlert> alerts = open.get(new Key(tankId, metric));
+        if (alerts == null) return;
+        synchronized (alerts) {
+            alerts.removeIf(a -> a.id().equals(alertId));
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            List<Alert> unresolved = alertRepository.findByResolvedAtIsNullOrderByCreatedAtAsc();
+            for (Alert alert : unresolved) {
+                open.computeIfAbsent(new Key(alert.getTankId(), alert.getMetric()), k -> new ArrayDeque<>())
+                        .addLast(new OpenAlert(alert.getId(), alert.getUserId(), alert.getCreatedAt(), alert.getSeverity()));
+            }
+            loaded = true;
+            log.info("[ALERT] Alert state rebuilt: {} open alerts across {} tank metrics", unresolved.size(), open.size());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.fishmaster.backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Completes the daily check quests (check_temperature, check_ph, check_clarity) at ingest: the
+ * first in-range reading of the day for a tank inserts the completion with
+ * {@code ON CONFLICT DO NOTHING}, so parallel lanes, other nodes and a manual completion never
+ * collide, and the advisor snapshot only reads. Which tank/quest is already done today is
+ * remembered in memory, so the rest of the day's readings cost no query.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AutoQuestService {
+
+    private static final String COMPLETE_SQL = """
+            INSERT INTO tank_quest_completions (user_id, tank_id, quest_key, quest_date, source, completed_at)
+            VALUES (?, ?, ?, ?, 'AUTO', ?)
+            ON CONFLICT (user_id, tank_id, quest_key, quest_date) DO NOTHING
+            """;
+
+    private static final Map<String, String> QUEST_BY_METRIC = Map.of(
+            "temperature", "check_temperature",
+            "ph", "check_ph",
+            "turbidity", "check_clarity"
+    );
+
+    private final TankThresholdCache thresholdCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // "tankId:questKey" -> the day it was last seen completed (inserted here or already present)
+    private final Map<String, LocalDate> completedOn = new ConcurrentHashMap<>();
+
+    public void onReading(String mqttTankId, String metric, BigDecimal value) {
+        String questKey = QUEST_BY_METRIC.get(metric);
+        if (questKey == null || value == null) return;
+        TankThresholdCache.ThresholdContext context = thresholdCache.get(mqttTankId);
+        if (context == null) return;
+
+        LocalDate today = LocalDate.now();
+        String doneKey = context.tankId() + ":" + questKey;
+        if (today.equals(completedOn.get(doneKey))) return;
+        if (!inRange(metric, context.limits(metric), value.doubleValue())) return;
+
+        int inserted = jdbcTemplate.update(COMPLETE_SQL, context.userId(), context.tankId(), questKey,
+                Date.valueOf(today), Timestamp.from(Instant.now()));
+        completedOn.put(doneKey, today);
+        if (inserted > 0) {
+            meterRegistry.counter("quests.auto.completed", "quest", questKey).increment();
+            log.debug("[QUEST] Auto-completed {} for tank={}", questKey, context.tankId());
+        }
+    }
+
+    /** Same rule the snapshot used: within the effective limits; clarity needs a maximum to count. */
+    private static boolean inRange(String metric, TankThresholdCache.MetricLimits limits, double value) {
+        if (limits == null) return false;
+        if ("turbidity".equals(metric) && Double.isNaN(limits.highValue())) return false;
+        return !(value < limits.lowValue()) && !(value > limits.highValue()); // NaN limits never fail
+    }
+}
@@ -6,10 +6,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 
 @Service
 public class EmailService {
@@ -19,7 +21,14 @@ public class EmailService {
     @Value("${resend.api-key}")
     private String apiKey;
 
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    // Alert emails are sent on outbox workers that hold a lease (alerts.outbox.lease-seconds),
+    // so a send must fail well before the lease runs out
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
 
     @Async
     public void sendVerificationEmail(String to, String subject, String htmlContent) {
@@ -37,6 +46,7 @@ public class EmailService {
 
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create("https://api.resend.com/emails"))
+                    .timeout(REQUEST_TIMEOUT)
                     .header("Authorization", "Bearer " + apiKey)
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(body))
@@ -55,43 +65,45 @@ public class EmailService {
         }
     }
 
-    @Async
+    /**
+     * Synchronous, unlike the other senders: called from the alert outbox workers, which retry
+     * when this throws.
+     */
     public void sendFriendlyAlertEmail(String to, String tankName, String title,
-                                       String problem, String actionHint, String timestamp) {
-        try {
-            String subject = "FishMaster: " + title;
-            String htmlContent = """
-                <div style="font-family: 'DM Sans', Arial, sans-serif; max-width: 480px; margin: 0 auto; padding: 24px;">
-                    <h2 style="color: #1277b0; margin: 0 0 12px;">%s</h2>
-                    <p style="font-size: 16px; color: #3d3021; margin: 0 0 16px;">%s</p>
-                    <p style="font-size: 14px; color: #666; margin: 0 0 8px;"><strong>Tank:</strong> %s</p>
-                    <p style="font-size: 14px; color: #1277b0; margin: 0 0 16px;"><strong>Try:</strong> %s</p>
-                    <p style="font-size: 12px; color: #999;">%s</p>
-                </div>
-                """.formatted(title, problem, tankName, actionHint, timestamp);
-
-            String body = """
-                {
-                    "from": "Fishmaster <onboarding@resend.dev>",
-                    "to": ["%s"],
-                    "subject": "%s",
-                    "html": %s
-                }
-                """.formatted(to, subject, toJsonString(htmlContent));
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.resend.com/emails"))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(body))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() != 200 && response.statusCode() != 201) {
-                logger.error("Resend API error for friendly alert email: {}", response.body());
+                                       String problem, String actionHint, String timestamp)
+            throws IOException, InterruptedException {
+        String subject = "FishMaster: " + title;
+        String htmlContent = """
+            <div style="font-family: 'DM Sans', Arial, sans-serif; max-width: 480px; margin: 0 auto; padding: 24px;">
+                <h2 style="color: #1277b0; margin: 0 0 12px;">%s</h2>
+                <p style="font-size: 16px; color: #3d3021; margin: 0 0 16px;">%s</p>
+                <p style="font-size: 14px; color: #666; margin: 0 0 8px;"><strong>Tank:</strong> %s</p>
+                <p style="font-size: 14px; color: #1277b0; margin: 0 0 16px;"><strong>Try:</strong> %s</p>
+                <p style="font-size: 12px; color: #999;">%s</p>
+            </div>
+            """.formatted(title, problem, tankName, actionHint, timestamp);
+
+        String body = """
+            {
+                "from": "Fishmaster <onboarding@resend.dev>",
+                "to": ["%s"],
+                "subject": "%s",
+                "html": %s
             }
-        } catch (Exception e) {
-            logger.error("FAILED to send friendly alert email to: " + to, e);
+            """.formatted(to, subject, toJsonString(htmlContent));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("https://api.resend.com/emails"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 && response.statusCode() != 201) {
+            logger.error("Resend API error for friendly alert email: {}", response.body());
+            throw new IOException("Resend API returned " + response.statusCode());
         }
     }
 
@@ -134,6 +146,7 @@ public class EmailService {
 
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create("https://api.resend.com/emails"))
+                    .timeout(REQUEST_TIMEOUT)
                     .header("Authorization", "Bearer " + apiKey)
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(body))
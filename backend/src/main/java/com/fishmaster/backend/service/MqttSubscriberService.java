@@ -1,6 +1,8 @@
 package com.fishmaster.backend.service;
 
 import com.fishmaster.backend.config.MqttProperties;
+import com.fishmaster.backend.config.TelemetryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.paho.client.mqttv3.*;
@@ -26,6 +28,8 @@ import java.util.concurrent.TimeUnit;
 /**
  * Minimal MQTT subscriber that connects to HiveMQ (or any MQTT 3.1.1 broker)
  * and forwards incoming payloads to TelemetryService for parsing and storage.
+ * Payloads are handed off through {@link TelemetryIngestQueue} so slow processing
+ * never stalls the Paho client thread.
  */
 @Service
 @RequiredArgsConstructor
@@ -34,6 +38,8 @@ public class MqttSubscriberService implements MqttCallbackExtended {
 
     private final MqttProperties mqttProps;
     private final TelemetryService telemetryService;
+    private final TelemetryProperties telemetryProps;
+    private final MeterRegistry meterRegistry;
 
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "mqtt-reconnector");
@@ -42,6 +48,7 @@ public class MqttSubscriberService implements MqttCallbackExtended {
     });
 
     private MqttAsyncClient client;
+    private volatile TelemetryIngestQueue ingestQueue;
     private volatile boolean shuttingDown = false;
 
     @PostConstruct
@@ -52,6 +59,7 @@ public class MqttSubscriberService implements MqttCallbackExtended {
         }
         log.info("[MQTT] Initializing subscriber. host={}, topic={}, clientId={}",
                 mqttProps.getHost(), mqttProps.getTopic(), mqttProps.getClientId());
+        ingestQueue = new TelemetryIngestQueue(telemetryProps, meterRegistry, this::routeMqttMessage);
 
         // Try initial connect quickly; if it fails, schedule retry loop
         scheduler.execute(this::connectWithRetry);
@@ -146,15 +154,25 @@ public class MqttSubscriberService implements MqttCallbackExtended {
 
     private void onMessage(String topic, MqttMessage message) {
         try {
-            String payload = new String(message.getPayload(), StandardCharsets.UTF_8);
-            log.debug("[MQTT] Received on {}: {} (qos={}, retained={})", topic, payload, message.getQos(), message.isRetained());
-            routeMqttMessage(topic, payload);
+            log.debug("[MQTT] Received on {}: {} bytes (qos={}, retained={})",
+                    topic, message.getPayload().length, message.getQos(), message.isRetained());
+            TelemetryIngestQueue queue = ingestQueue;
+            if (queue != null) {
+                queue.submit(topic, message.getPayload());
+            } else {
+                routeMqttMessage(topic, message.getPayload());
+            }
         } catch (Exception e) {
-            log.error("[MQTT] Failed processing message from {}: {}", topic, e.getMessage(), e);
+            log.error("[MQTT] Failed enqueueing message from {}: {}", topic, e.getMessage(), e);
         }
     }
 
     public void routeMqttMessage(String topic, String payload) {
+        routeMqttMessage(topic, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Sensor payloads are decoded straight from the MQTT bytes; only DeviceInfo needs a String. */
+    public void routeMqttMessage(String topic, byte[] payload) {
         String t = topic == null ? "" : topic;
         switch (t) {
             case "FishMaster/Temperature":
@@ -167,7 +185,7 @@ public class MqttSubscriberService implements MqttCallbackExtended {
                 telemetryService.handlePhPayload(payload);
                 break;
             case "FishMaster/DeviceInfo":
-                telemetryService.handleDeviceInfoPayload(payload);
+                telemetryService.handleDeviceInfoPayload(new String(payload, StandardCharsets.UTF_8));
                 break;
             default:
                 log.warn("Unknown topic: " + t);
@@ -188,6 +206,9 @@ public class MqttSubscriberService implements MqttCallbackExtended {
         } catch (Exception ignored) {
         }
         scheduler.shutdownNow();
+        if (ingestQueue != null) {
+            ingestQueue.shutdown(5, TimeUnit.SECONDS);
+        }
     }
 
     @Override
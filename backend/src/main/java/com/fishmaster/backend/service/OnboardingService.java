@@ -7,6 +7,7 @@ import dto.FishTypeDto;
 import dto.OnboardingDto;
 import dto.OnboardingStatusDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,6 +31,7 @@ public class OnboardingService {
         private final FishRepository fishRepository;
         private final FishTypeRepository fishTypeRepository;
         private final WaterParametersRepository waterParametersRepository;
+        private final ApplicationEventPublisher eventPublisher;
 
         /**
          * Get all available fish types for the onboarding dropdown.
@@ -113,7 +115,10 @@ public class OnboardingService {
                 user.setOnboardingCompleted(true);
                 userRepository.save(user);
 
-                return tankRepository.save(tank);
+                tank = tankRepository.save(tank);
+                // The device usually publishes before onboarding, so its mqttTankId is cached as unknown
+                eventPublisher.publishEvent(new TankConfigChangedEvent(tank.getId(), tank.getMqttTankId()));
+                return tank;
         }
 
         private FishTypeDto toFishTypeDto(FishType fishType) {
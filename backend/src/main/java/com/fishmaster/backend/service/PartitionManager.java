@@ -0,0 +1,307 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.PartitionProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the reading tables and device_info_snapshots range-partitioned by month on
+ * server_timestamp (UTC). A table JPA created as a plain heap is converted in place: it becomes
+ * the partition {@code <table>_before_YYYY_MM} holding everything before next month, so no rows
+ * are copied, and new months go to {@code <table>_pYYYY_MM}. Every check creates the partitions
+ * for the next {@code partitions.months-ahead} months and, with {@code partitions.retention-months}
+ * set, drops partitions that lie entirely before the retention window instead of deleting rows.
+ * <p>
+ * Runs on one node at a time (session advisory lock); the others skip that round.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionManager {
+
+    /**
+     * A managed table and its (key, server_timestamp) index. The index is created here rather than
+     * declared on the entity: Hibernate's schema update does not see indexes of partitioned tables
+     * and would try to create it again on every start.
+     */
+    record ManagedTable(String name, String index, String indexColumns) {}
+
+    static final List<ManagedTable> TABLES = List.of(
+            new ManagedTable("temperature_readings", "idx_temp_tank_time", "tank_id, server_timestamp"),
+            new ManagedTable("ph_readings", "idx_ph_tank_time", "tank_id, server_timestamp"),
+            new ManagedTable("turbidity_readings", "idx_turbidity_tank_time", "tank_id, server_timestamp"),
+            new ManagedTable("device_info_snapshots", "idx_device_info_device_time", "device_id, server_timestamp")
+    );
+
+    private static final long ADVISORY_LOCK_KEY = 0x46495348_50415254L; // "FISHPART"
+
+    private static final String RELKIND_SQL = "SELECT c.relkind FROM pg_class c WHERE c.oid = to_regclass(?)";
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+             WHERE i.inhparent = to_regclass(?)
+            """;
+
+    private static final Pattern MONTHLY = Pattern.compile("_p(\\d{4})_(\\d{2})$");
+    private static final Pattern BEFORE = Pattern.compile("_before_(\\d{4})_(\\d{2})$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitionProperties props;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "partition-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) {
+            log.info("[PARTITION] {} database; reading tables stay unpartitioned", product);
+            return;
+        }
+        for (ManagedTable table : TABLES) {
+            try {
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table.index() + " ON " + table.name()
+                        + " (" + table.indexColumns() + ")");
+            } catch (Exception e) {
+                log.warn("[PARTITION] Could not create {}: {}", table.index(), e.getMessage());
+            }
+        }
+        if (!props.isEnabled()) return;
+        long interval = Math.max(60_000, props.getCheckIntervalMs());
+        scheduler.scheduleWithFixedDelay(this::maintainQuietly, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /** Converts, extends and trims every managed table; one connection for the whole round. */
+    public void maintain() {
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (!tryLock(connection)) {
+                log.debug("[PARTITION] Another node is maintaining partitions; skipping");
+                return null;
+            }
+            try {
+                for (ManagedTable table : TABLES) {
+                    try {
+                        maintain(connection, table, now);
+                    } catch (SQLException e) {
+                        log.error("[PARTITION] Maintenance of {} failed: {}", table.name(), e.getMessage());
+                    }
+                }
+            } finally {
+                unlock(connection);
+            }
+            return null;
+        });
+    }
+
+    private void maintain(Connection connection, ManagedTable table, YearMonth now) throws SQLException {
+        String relkind = queryString(connection, RELKIND_SQL, table.name());
+        if (relkind == null) return; // not created by JPA yet
+        if ("r".equals(relkind)) {
+            convert(connection, table, now.plusMonths(1));
+        }
+        for (String sql : maintenanceStatements(table.name(), partitions(connection, table.name()), now,
+                props.getMonthsAhead(), props.getRetentionMonths())) {
+            execute(connection, sql);
+            log.info("[PARTITION] {}", sql);
+        }
+    }
+
+    /**
+     * Turns the plain table into a partitioned one whose first partition is the old table, for
+     * rows before {@code boundary}. The CHECK constraint and the (id, server_timestamp) index are
+     * built first without blocking writes; under the table lock only catalog changes remain.
+     */
+    private void convert(Connection connection, ManagedTable table, YearMonth boundary) throws SQLException {
+        String name = table.name();
+        String legacy = name + "_before_" + suffix(boundary);
+        log.info("[PARTITION] Converting {} to monthly partitions ({} keeps rows before {})", name, legacy, boundary);
+
+        if (queryString(connection, "SELECT conname FROM pg_constraint WHERE conname = ?", legacy + "_check") == null) {
+            execute(connection, "ALTER TABLE " + name + " ADD CONSTRAINT " + legacy + "_check CHECK (server_timestamp < "
+                    + bound(boundary) + ") NOT VALID");
+        }
+        execute(connection, "ALTER TABLE " + name + " VALIDATE CONSTRAINT " + legacy + "_check");
+        execute(connection, "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS " + legacy + "_pkey ON " + name
+                + " (id, server_timestamp)");
+
+        connection.setAutoCommit(false);
+        try {
+            execute(connection, "LOCK TABLE " + name + " IN ACCESS EXCLUSIVE MODE");
+            if (!"r".equals(queryString(connection, RELKIND_SQL, name))) {
+                connection.rollback();
+                return;
+            }
+            long nextId = queryLong(connection, "SELECT coalesce(max(id), 0) + 1 FROM " + name);
+            for (String sql : conversionStatements(table, legacy, boundary, nextId)) {
+                execute(connection, sql);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /** The catalog-only part of {@link #convert}, run under the table lock. */
+    static List<String> conversionStatements(ManagedTable table, String legacy, YearMonth boundary, long nextId) {
+        String name = table.name();
+        return List.of(
+                // The id moves to a sequence owned by the parent; identity columns cannot be attached
+                "ALTER TABLE " + name + " ALTER COLUMN id DROP IDENTITY IF EXISTS",
+                "ALTER TABLE " + name + " DROP CONSTRAINT IF EXISTS " + name + "_pkey",
+                "ALTER TABLE " + name + " ADD CONSTRAINT " + legacy + "_pkey PRIMARY KEY USING INDEX " + legacy + "_pkey",
+                "ALTER TABLE " + name + " RENAME TO " + legacy,
+                "ALTER INDEX IF EXISTS " + table.index() + " RENAME TO " + legacy + "_idx",
+                "CREATE SEQUENCE IF NOT EXISTS " + name + "_id_seq START WITH " + nextId,
+                "CREATE TABLE " + name + " (LIKE " + legacy + " INCLUDING DEFAULTS) PARTITION BY RANGE (server_timestamp)",
+                "ALTER TABLE " + name + " ALTER COLUMN id SET DEFAULT nextval('" + name + "_id_seq')",
+                "ALTER SEQUENCE " + name + "_id_seq OWNED BY " + name + ".id",
+                // The partition key must be part of the primary key
+                "ALTER TABLE " + name + " ADD PRIMARY KEY (id, server_timestamp)",
+                "CREATE INDEX " + table.index() + " ON " + name + " (" + table.indexColumns() + ")",
+                // Both indexes already exist on the old table, so attaching reuses them and the CHECK skips the scan
+                "ALTER TABLE " + name + " ATTACH PARTITION " + legacy + " FOR VALUES FROM (MINVALUE) TO (" + bound(boundary) + ")",
+                "ALTER TABLE " + legacy + " DROP CONSTRAINT " + legacy + "_check"
+        );
+    }
+
+    /**
+     * Partitions to create so every month up to {@code monthsAhead} after {@code now} is covered,
+     * and with a retention, partitions to drop that end on or before its first month. Only
+     * partitions named by this class are considered.
+     */
+    static List<String> maintenanceStatements(String table, List<String> partitions, YearMonth now,
+                                              int monthsAhead, int retentionMonths) {
+        List<String> statements = new ArrayList<>();
+        YearMonth covered = null; // first month not covered by an existing partition
+        for (String partition : partitions) {
+            YearMonth end = upperBound(partition);
+            if (end != null && (covered == null || end.isAfter(covered))) covered = end;
+        }
+        YearMonth month = covered == null || covered.isBefore(now) ? now : covered;
+        YearMonth last = now.plusMonths(Math.max(0, monthsAhead));
+        for (; !month.isAfter(last); month = month.plusMonths(1)) {
+            statements.add("CREATE TABLE IF NOT EXISTS " + table + "_p" + suffix(month) + " PARTITION OF " + table
+                    + " FOR VALUES FROM (" + bound(month) + ") TO (" + bound(month.plusMonths(1)) + ")");
+        }
+        if (retentionMonths > 0) {
+            YearMonth keepFrom = now.minusMonths(retentionMonths);
+            for (String partition : partitions) {
+                YearMonth end = upperBound(partition);
+                if (end != null && !end.isAfter(keepFrom)) {
+                    statements.add("DROP TABLE IF EXISTS " + partition);
+                }
+            }
+        }
+        return statements;
+    }
+
+    /** First month after the partition's range, from its name; null for partitions not named here. */
+    static YearMonth upperBound(String partition) {
+        Matcher monthly = MONTHLY.matcher(partition);
+        if (monthly.find()) {
+            return YearMonth.of(Integer.parseInt(monthly.group(1)), Integer.parseInt(monthly.group(2))).plusMonths(1);
+        }
+        Matcher before = BEFORE.matcher(partition);
+        if (before.find()) {
+            return YearMonth.of(Integer.parseInt(before.group(1)), Integer.parseInt(before.group(2)));
+        }
+        return null;
+    }
+
+    private static String suffix(YearMonth month) {
+        return String.format("%04d_%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private static String bound(YearMonth month) {
+        return "'" + month.atDay(1) + " 00:00:00+00'";
+    }
+
+    private List<String> partitions(Connection connection, String table) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(PARTITIONS_SQL)) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, ADVISORY_LOCK_KEY);
+            statement.execute();
+        }
+    }
+
+    private static String queryString(Connection connection, String sql, String parameter) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, parameter);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            log.error("[PARTITION] Partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.fishmaster.backend.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fishmaster.backend.config.ExportProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Full raw export of one tank metric as CSV or NDJSON. Readings are read in keyset pages
+ * ({@code (server_timestamp, id) > last row}, {@code export.page-size} rows each) rather than
+ * with OFFSET, so every page is an index range read however deep the export is. Each page is
+ * one short transaction over a forward-only cursor ({@code export.fetch-size} rows per fetch),
+ * formatted straight from the result set without building entities, and written to the client
+ * only after its connection is back in the pool: a slow client never holds a connection, and
+ * memory stays at one page of output whatever the range.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadingExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    /** A column and the name it gets in the export (the reading's JSON property). */
+    record Column(String column, String name) {}
+
+    /** A metric's table and exported columns; id and server_timestamp come first. */
+    record Source(String table, List<Column> columns) {
+        String selectList() {
+            return columns.stream().map(Column::column).collect(Collectors.joining(", "));
+        }
+    }
+
+    static final Map<String, Source> SOURCES = Map.of(
+            "temperature", new Source("temperature_readings", List.of(
+                    new Column("id", "id"), new Column("server_timestamp", "serverTimestamp"),
+                    new Column("device_timestamp", "deviceTimestamp"), new Column("temperature", "temperature"))),
+            "ph", new Source("ph_readings", List.of(
+                    new Column("id", "id"), new Column("server_timestamp", "serverTimestamp"),
+                    new Column("ph_value", "phValue"), new Column("ph_voltage", "phVoltage"),
+                    new Column("internal_chip_temp", "internalChipTemp"), new Column("uptime_ms", "uptimeMs"))),
+            "turbidity", new Source("turbidity_readings", List.of(
+                    new Column("id", "id"), new Column("server_timestamp", "serverTimestamp"),
+                    new Column("ntu", "ntu"), new Column("raw_adc", "rawAdc"),
+                    new Column("source_client_id", "sourceClientId")))
+    );
+
+    // server_timestamp >= ? keeps the read on the (tank_id, server_timestamp) index and prunes partitions
+    private static final String PAGE_SQL = """
+            SELECT %2$s FROM %1$s
+            WHERE tank_id = ? AND server_timestamp >= ? AND server_timestamp < ?
+              AND (server_timestamp, id) > (?, ?)
+            ORDER BY server_timestamp, id
+            LIMIT ?
+            """;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExportProperties props;
+
+    /** Throws IllegalArgumentException for an unknown metric, before anything is streamed. */
+    public Source source(String metric) {
+        Source source = SOURCES.get(metric);
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+        return source;
+    }
+
+    /**
+     * Writes the tank's readings in [from, to), oldest first, after the reading {@code afterId}
+     * at {@code from} (0 for all). An interrupted export resumes with the last exported
+     * serverTimestamp as {@code from} and its id as {@code afterId}.
+     */
+    public void export(String metric, String tankId, Instant from, Instant to, long afterId, Format format,
+                       OutputStream out) throws IOException {
+        Source source = source(metric);
+        String sql = PAGE_SQL.formatted(source.table(), source.selectList());
+        int pageSize = Math.max(1, props.getPageSize());
+        if (format == Format.CSV) {
+            out.write((source.columns().stream().map(Column::name).collect(Collectors.joining(",")) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        ByteArrayOutputStream page = new ByteArrayOutputStream(64 * 1024);
+        Cursor cursor = new Cursor(Timestamp.from(from), afterId);
+        long exported = 0;
+        int rows;
+        do {
+            page.reset();
+            rows = readPage(sql, source, tankId, Timestamp.from(to), cursor, pageSize, format, page);
+            page.writeTo(out);
+            exported += rows;
+        } while (rows == pageSize);
+        out.flush();
+        log.info("[EXPORT] Exported {} {} readings of {} ({})", exported, metric, tankId, format);
+    }
+
+    /** Position after the last exported row. */
+    private static final class Cursor {
+        Timestamp timestamp;
+        long id;
+
+        Cursor(Timestamp timestamp, long id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+    }
+
+    private int readPage(String sql, Source source, String tankId, Timestamp to, Cursor cursor, int pageSize,
+                         Format format, ByteArrayOutputStream page) {
+        Integer rows = jdbcTemplate.execute((ConnectionCallback<Integer>) con -> {
+            // PostgreSQL only uses a cursor for the fetch size outside autocommit
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(Math.max(1, Math.min(pageSize, props.getFetchSize())));
+                ps.setString(1, tankId);
+                ps.setTimestamp(2, cursor.timestamp);
+                ps.setTimestamp(3, to);
+                ps.setTimestamp(4, cursor.timestamp);
+                ps.setLong(5, cursor.id);
+                ps.setInt(6, pageSize);
+                int count = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (format == Format.CSV) {
+                            writeCsvRow(rs, source, page);
+                        } else {
+                            writeJsonRow(rs, source, page);
+                        }
+                        cursor.id = rs.getLong(1);
+                        cursor.timestamp = rs.getTimestamp(2);
+                        count++;
+                    }
+                }
+                con.commit();
+                return count;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } catch (IOException e) {
+                con.rollback();
+                throw new SQLException("Failed to format export row", e);
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        });
+        return rows != null ? rows : 0;
+    }
+
+    static void writeCsvRow(ResultSet rs, Source source, OutputStream out) throws SQLException, IOException {
+        StringBuilder line = new StringBuilder(96);
+        for (int i = 1; i <= source.columns().size(); i++) {
+            if (i > 1) line.append(',');
+            Object value = rs.getObject(i);
+            if (value instanceof Timestamp ts) {
+                line.append(ts.toInstant());
+            } else if (value instanceof BigDecimal decimal) {
+                line.append(decimal.toPlainString());
+            } else if (value instanceof String text) {
+                line.append(csvQuote(text));
+            } else if (value != null) {
+                line.append(value);
+            }
+        }
+        line.append('\n');
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void writeJsonRow(ResultSet rs, Source source, OutputStream out) throws SQLException, IOException {
+        try (JsonGenerator json = JSON.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            for (int i = 1; i <= source.columns().size(); i++) {
+                json.writeFieldName(source.columns().get(i - 1).name());
+                Object value = rs.getObject(i);
+                if (value == null) {
+                    json.writeNull();
+                } else if (value instanceof Timestamp ts) {
+                    json.writeString(ts.toInstant().toString());
+                } else if (value instanceof BigDecimal decimal) {
+                    json.writeNumber(decimal);
+                } else if (value instanceof Number number) {
+                    json.writeNumber(number.longValue());
+                } else {
+                    json.writeString(value.toString());
+                }
+            }
+            json.writeEndObject();
+        }
+        out.write('\n');
+    }
+
+    static String csvQuote(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
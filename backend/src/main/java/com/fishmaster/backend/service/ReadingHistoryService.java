@@ -0,0 +1,184 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.util.LttbDownsampler;
+import dto.ChartPointDto;
+import dto.HistoryBucketDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Range history of one tank metric: min/avg/max/count per fixed-width bucket, grouped with
+ * date_bin in the database over the (tank_id, server_timestamp) index range. Buckets are aligned
+ * to the Unix epoch, so the same bucket width always yields the same boundaries, and empty
+ * buckets are returned as gaps (count 0, no values). The response has one entry per bucket
+ * however many readings there are.
+ * <p>
+ * For charts that must keep spikes, {@link #getDownsampled} picks representative raw readings
+ * with LTTB while streaming them from a cursor.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReadingHistoryService {
+
+    static final int MAX_BUCKETS = 5000;
+    static final int MAX_CHART_POINTS = 5000;
+    // Widest LTTB bucket: the downsampler holds two buckets of raw readings, so this bounds its memory
+    static final Duration MAX_CHART_BUCKET = Duration.ofHours(6);
+    private static final int CURSOR_FETCH_SIZE = 1000;
+    private static final Pattern SHORT_DURATION = Pattern.compile("(\\d+)([smhd])");
+
+    // metric -> (table, value column)
+    private static final Map<String, String[]> SOURCES = Map.of(
+            "temperature", new String[]{"temperature_readings", "temperature"},
+            "ph", new String[]{"ph_readings", "ph_value"},
+            "turbidity", new String[]{"turbidity_readings", "ntu"}
+    );
+
+    private static final String HISTORY_SQL = """
+            SELECT date_bin(make_interval(secs => ?), server_timestamp, timestamptz '1970-01-01 00:00:00+00') AS bucket,
+                   min(%2$s)::float8, avg(%2$s)::float8, max(%2$s)::float8, count(%2$s)
+            FROM %1$s
+            WHERE tank_id = ? AND server_timestamp >= ? AND server_timestamp < ?
+            GROUP BY 1
+            ORDER BY 1
+            """;
+
+    private static final String READINGS_SQL = """
+            SELECT server_timestamp, %2$s::float8
+            FROM %1$s
+            WHERE tank_id = ? AND server_timestamp >= ? AND server_timestamp < ? AND %2$s IS NOT NULL
+            ORDER BY server_timestamp
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<HistoryBucketDto> getHistory(String metric, String tankId, Instant from, Instant to, Duration bucket) {
+        String[] source = SOURCES.get(metric);
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        long width = bucket.getSeconds();
+        if (width < 1 || bucket.getNano() != 0) {
+            throw new IllegalArgumentException("bucket must be a whole number of seconds");
+        }
+        Instant start = alignDown(from, width);
+        long buckets = (Duration.between(start, to).getSeconds() + width - 1) / width;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Range spans " + buckets + " buckets; at most " + MAX_BUCKETS
+                    + " allowed, use a wider bucket");
+        }
+        List<HistoryBucketDto> filled = jdbcTemplate.query(HISTORY_SQL.formatted(source[0], source[1]),
+                (rs, i) -> new HistoryBucketDto(rs.getTimestamp(1).toInstant(), rs.getObject(2, Double.class),
+                        rs.getObject(3, Double.class), rs.getObject(4, Double.class), rs.getLong(5)),
+                (double) width, tankId, Timestamp.from(start), Timestamp.from(to));
+        return withGaps(filled, start, to, width);
+    }
+
+    /**
+     * At most {@code points} readings of the range chosen by LTTB. Readings are read through a
+     * forward-only cursor ({@value #CURSOR_FETCH_SIZE} rows per fetch) and fed to the downsampler
+     * as they arrive, so memory stays at two buckets' worth of readings. Buckets split the range
+     * into {@code points - 2} parts of at most {@link #MAX_CHART_BUCKET}; a longer range needs more
+     * points (or the rollups).
+     */
+    public List<ChartPointDto> getDownsampled(String metric, String tankId, Instant from, Instant to, int points) {
+        String[] source = SOURCES.get(metric);
+        if (source == null) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (points < 3 || points > MAX_CHART_POINTS) {
+            throw new IllegalArgumentException("points must be between 3 and " + MAX_CHART_POINTS);
+        }
+        Duration maxRange = MAX_CHART_BUCKET.multipliedBy(points - 2);
+        if (Duration.between(from, to).compareTo(maxRange) > 0) {
+            throw new IllegalArgumentException(points + " points cover at most " + maxRange.toHours()
+                    + " hours; raise points or use /api/telemetry/rollups for longer ranges");
+        }
+        List<ChartPointDto> out = new ArrayList<>(points);
+        LttbDownsampler lttb = new LttbDownsampler(from.toEpochMilli(), to.toEpochMilli(), points,
+                (at, value) -> out.add(new ChartPointDto(Instant.ofEpochMilli(at), value)));
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            // PostgreSQL only honours the fetch size (instead of reading every row) outside autocommit
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(READINGS_SQL.formatted(source[0], source[1]),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(CURSOR_FETCH_SIZE);
+                ps.setString(1, tankId);
+                ps.setTimestamp(2, Timestamp.from(from));
+                ps.setTimestamp(3, Timestamp.from(to));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lttb.add(rs.getTimestamp(1).getTime(), rs.getDouble(2));
+                    }
+                }
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+        lttb.finish();
+        return out;
+    }
+
+    /** Every bucket from {@code start} up to {@code to}; the ones with no readings have count 0 and no values. */
+    static List<HistoryBucketDto> withGaps(List<HistoryBucketDto> filled, Instant start, Instant to, long width) {
+        List<HistoryBucketDto> out = new ArrayList<>();
+        int next = 0;
+        for (Instant bucket = start; bucket.isBefore(to); bucket = bucket.plusSeconds(width)) {
+            if (next < filled.size() && filled.get(next).getBucket().equals(bucket)) {
+                out.add(filled.get(next++));
+            } else {
+                out.add(new HistoryBucketDto(bucket, null, null, null, 0));
+            }
+        }
+        return out;
+    }
+
+    static Instant alignDown(Instant at, long widthSeconds) {
+        return Instant.ofEpochSecond(Math.floorDiv(at.getEpochSecond(), widthSeconds) * widthSeconds);
+    }
+
+    /** Parses "5m", "1h", "1d", "30s" or an ISO-8601 duration such as "PT15M". */
+    public static Duration parseBucket(String bucket) {
+        Matcher m = SHORT_DURATION.matcher(bucket.trim());
+        if (m.matches()) {
+            long amount = Long.parseLong(m.group(1));
+            return switch (m.group(2)) {
+                case "s" -> Duration.ofSeconds(amount);
+                case "m" -> Duration.ofMinutes(amount);
+                case "h" -> Duration.ofHours(amount);
+                default -> Duration.ofDays(amount);
+            };
+        }
+        try {
+            return Duration.parse(bucket.trim());
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid bucket: " + bucket);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.RollupProperties;
+import dto.RollupPointDto;
+import dto.RollupSeriesDto;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minute, hour and day rollups (min, max, sum, count, first and last) per tank and metric, so
+ * charts and trends read one row per bucket instead of every reading.
+ * <p>
+ * They are maintained incrementally: TelemetryBatchWriter hands over each flushed batch, which is
+ * folded in memory to one row per bucket and merged into the stored rows with one upsert batch per
+ * resolution, in one transaction. A batch that fails is merged into the next one. Nothing is ever
+ * recomputed from the readings, except the one-time backfill of readings stored before rollups
+ * existed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadingRollupService {
+
+    public static final Set<String> METRICS = Set.of("temperature", "ph", "turbidity");
+    static final int MAX_POINTS = 10_000;
+
+    public enum Resolution {
+        MINUTE("reading_rollups_minute", "minute", ChronoUnit.MINUTES),
+        HOUR("reading_rollups_hour", "hour", ChronoUnit.HOURS),
+        DAY("reading_rollups_day", "day", ChronoUnit.DAYS);
+
+        final String table;
+        final String field; // date_trunc field
+        final ChronoUnit unit;
+
+        Resolution(String table, String field, ChronoUnit unit) {
+            this.table = table;
+            this.field = field;
+            this.unit = unit;
+        }
+
+        /** Start of the bucket holding {@code at} (days are UTC days). */
+        public Instant bucket(Instant at) {
+            return at.truncatedTo(unit);
+        }
+
+        public Duration width() {
+            return unit.getDuration();
+        }
+    }
+
+    // Folds an incoming aggregate into the stored row of the same bucket
+    private static final String MERGE_CLAUSE = """
+            ON CONFLICT (tank_id, metric, bucket) DO UPDATE SET
+                min_value = LEAST(r.min_value, EXCLUDED.min_value),
+                max_value = GREATEST(r.max_value, EXCLUDED.max_value),
+                sum_value = r.sum_value + EXCLUDED.sum_value,
+                sample_count = r.sample_count + EXCLUDED.sample_count,
+                first_value = CASE WHEN EXCLUDED.first_at < r.first_at THEN EXCLUDED.first_value ELSE r.first_value END,
+                first_at = LEAST(r.first_at, EXCLUDED.first_at),
+                last_value = CASE WHEN EXCLUDED.last_at >= r.last_at THEN EXCLUDED.last_value ELSE r.last_value END,
+                last_at = GREATEST(r.last_at, EXCLUDED.last_at)
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO %s AS r (tank_id, metric, bucket, min_value, max_value, sum_value, sample_count,
+                                 first_value, first_at, last_value, last_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """ + MERGE_CLAUSE;
+    private static final int[] UPSERT_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.DOUBLE, Types.DOUBLE,
+            Types.DOUBLE, Types.BIGINT, Types.DOUBLE, Types.TIMESTAMP, Types.DOUBLE, Types.TIMESTAMP};
+
+    private static final String SERIES_SQL = """
+            SELECT bucket, min_value, max_value, sum_value / sample_count, sample_count, first_value, last_value
+            FROM %s WHERE tank_id = ? AND metric = ? AND bucket >= ? AND bucket < ?
+            ORDER BY bucket
+            """;
+
+    // Readings of one metric table, as (tank_id, value, server_timestamp)
+    private static final Map<String, String> SOURCES = Map.of(
+            "temperature", "SELECT tank_id, temperature AS v, server_timestamp AS t FROM temperature_readings",
+            "ph", "SELECT tank_id, ph_value AS v, server_timestamp AS t FROM ph_readings",
+            "turbidity", "SELECT tank_id, ntu AS v, server_timestamp AS t FROM turbidity_readings"
+    );
+
+    private static final String BACKFILL_SQL = """
+            INSERT INTO %1$s AS r (tank_id, metric, bucket, min_value, max_value, sum_value, sample_count,
+                                   first_value, first_at, last_value, last_at)
+            SELECT tank_id, '%2$s', date_trunc('%3$s', t, 'UTC'), min(v), max(v), sum(v), count(*),
+                   (array_agg(v ORDER BY t))[1], min(t), (array_agg(v ORDER BY t DESC))[1], max(t)
+            FROM (%4$s) s
+            WHERE v IS NOT NULL AND t IS NOT NULL AND t < ?
+            GROUP BY 1, 3
+            """ + MERGE_CLAUSE; // merged like live batches, so buckets ingested since startup keep their readings
+
+    private static final long BACKFILL_LOCK_KEY = 0x46495348_524F4C4CL; // "FISHROLL"
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RollupProperties props;
+
+    // Readings with an earlier server_timestamp were stored before this process could roll them up
+    private final Instant startedAt = Instant.now();
+
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "rollup-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Object pendingLock = new Object();
+    private Batch pending = new Batch();
+
+    /** One bucket's aggregate, folded in memory before it is merged into the stored row. */
+    static final class Aggregate {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+        long count;
+        double first;
+        Instant firstAt;
+        double last;
+        Instant lastAt;
+
+        void add(double value, Instant at) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+            if (firstAt == null || at.isBefore(firstAt)) {
+                first = value;
+                firstAt = at;
+            }
+            if (lastAt == null || !at.isBefore(lastAt)) {
+                last = value;
+                lastAt = at;
+            }
+        }
+
+        void merge(Aggregate other) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            sum += other.sum;
+            count += other.count;
+            if (firstAt == null || other.firstAt.isBefore(firstAt)) {
+                first = other.first;
+                firstAt = other.firstAt;
+            }
+            if (lastAt == null || !other.lastAt.isBefore(lastAt)) {
+                last = other.last;
+                lastAt = other.lastAt;
+            }
+        }
+    }
+
+    record BucketKey(String tankId, String metric, Instant bucket) {
+        // Upserts go in key order, so two writers on the same buckets cannot deadlock
+        static final Comparator<BucketKey> ORDER = Comparator.comparing(BucketKey::tankId)
+                .thenComparing(BucketKey::metric).thenComparing(BucketKey::bucket);
+    }
+
+    /** Readings folded per resolution and bucket; not thread-safe, built by one flush. */
+    public static final class Batch {
+        final Map<Resolution, TreeMap<BucketKey, Aggregate>> buckets = new EnumMap<>(Resolution.class);
+
+        public void add(String tankId, String metric, BigDecimal value, Instant at) {
+            if (tankId == null || value == null || at == null) return;
+            double v = value.doubleValue();
+            for (Resolution resolution : Resolution.values()) {
+                buckets.computeIfAbsent(resolution, r -> new TreeMap<>(BucketKey.ORDER))
+                        .computeIfAbsent(new BucketKey(tankId, metric, resolution.bucket(at)), k -> new Aggregate())
+                        .add(v, at);
+            }
+        }
+
+        void merge(Batch other) {
+            other.buckets.forEach((resolution, rows) -> {
+                TreeMap<BucketKey, Aggregate> mine = buckets.computeIfAbsent(resolution, r -> new TreeMap<>(BucketKey.ORDER));
+                rows.forEach((key, aggregate) -> mine.computeIfAbsent(key, k -> new Aggregate()).merge(aggregate));
+            });
+        }
+
+        boolean isEmpty() {
+            return buckets.isEmpty();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) return;
+        if (props.isBackfillOnStart()) {
+            maintenance.execute(this::backfillQuietly);
+        }
+        if (props.getMinuteRetentionDays() > 0) {
+            long interval = Math.max(60_000, props.getPurgeIntervalMs());
+            maintenance.scheduleWithFixedDelay(this::purgeQuietly, 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Merges a flushed batch of stored readings into the rollups. All three resolutions are
+     * written in one transaction; on failure the batch is kept and merged into the next call.
+     */
+    public void write(Batch batch) {
+        Batch toWrite;
+        synchronized (pendingLock) {
+            pending.merge(batch);
+            if (pending.isEmpty()) return;
+            toWrite = pending;
+            pending = new Batch();
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> toWrite.buckets.forEach((resolution, rows) ->
+                    jdbcTemplate.batchUpdate(UPSERT_SQL.formatted(resolution.table), toRows(rows), UPSERT_TYPES)));
+            log.debug("[ROLLUP] Merged {} buckets", toWrite.buckets.values().stream().mapToInt(Map::size).sum());
+        } catch (Exception e) {
+            log.error("[ROLLUP] Failed to merge rollups, retrying with the next batch: {}", e.getMessage(), e);
+            synchronized (pendingLock) {
+                toWrite.merge(pending);
+                pending = toWrite;
+            }
+        }
+    }
+
+    private static List<Object[]> toRows(TreeMap<BucketKey, Aggregate> rows) {
+        List<Object[]> out = new ArrayList<>(rows.size());
+        rows.forEach((key, a) -> out.add(new Object[]{
+                key.tankId(), key.metric(), Timestamp.from(key.bucket()), a.min, a.max, a.sum, a.count,
+                a.first, Timestamp.from(a.firstAt), a.last, Timestamp.from(a.lastAt)
+        }));
+        return out;
+    }
+
+    /**
+     * The finest resolution whose buckets over [from, to) fit in {@code maxPoints}; day rollups when
+     * none does. Minute rollups are skipped once {@code from} is past their retention.
+     */
+    public Resolution pickResolution(Instant from, Instant to, int maxPoints, Instant now) {
+        for (Resolution resolution : Resolution.values()) {
+            if (resolution == Resolution.MINUTE && props.getMinuteRetentionDays() > 0
+                    && from.isBefore(now.minus(Duration.ofDays(props.getMinuteRetentionDays())))) {
+                continue;
+            }
+            Instant first = resolution.bucket(from);
+            long buckets = (Duration.between(first, to).toMillis() + resolution.width().toMillis() - 1)
+                    / resolution.width().toMillis();
+            if (buckets <= maxPoints) return resolution;
+        }
+        return Resolution.DAY;
+    }
+
+    /** A tank metric's rollups over [from, to) at the resolution that fits {@code maxPoints}. */
+    public RollupSeriesDto getSeries(String tankId, String metric, Instant from, Instant to, Integer maxPoints) {
+        if (!METRICS.contains(metric)) {
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        int budget = Math.max(1, Math.min(MAX_POINTS, maxPoints != null ? maxPoints : props.getDefaultMaxPoints()));
+        Resolution resolution = pickResolution(from, to, budget, Instant.now());
+        List<RollupPointDto> points = jdbcTemplate.query(SERIES_SQL.formatted(resolution.table),
+                (rs, i) -> new RollupPointDto(rs.getTimestamp(1).toInstant(), rs.getDouble(2), rs.getDouble(3),
+                        rs.getDouble(4), rs.getLong(5), rs.getDouble(6), rs.getDouble(7)),
+                tankId, metric, Timestamp.from(resolution.bucket(from)), Timestamp.from(to));
+        return new RollupSeriesDto(tankId, metric, resolution.name().toLowerCase(), points);
+    }
+
+    /**
+     * Rolls up the readings stored before this process started, unless some of them already are
+     * (an earlier run with rollups, or another node's backfill). Runs under an advisory lock so
+     * two nodes starting together do not both backfill.
+     */
+    void backfill() {
+        Timestamp cutoff = Timestamp.from(startedAt);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?)", Object.class, BACKFILL_LOCK_KEY);
+            Boolean done = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM reading_rollups_day WHERE first_at < ?)", Boolean.class, cutoff);
+            if (Boolean.TRUE.equals(done)) return;
+            long started = System.nanoTime();
+            for (Resolution resolution : Resolution.values()) {
+                for (Map.Entry<String, String> source : SOURCES.entrySet()) {
+                    jdbcTemplate.update(BACKFILL_SQL.formatted(resolution.table, source.getKey(), resolution.field,
+                            source.getValue()), cutoff);
+                }
+            }
+            log.info("[ROLLUP] Backfilled rollups from readings before {} in {} ms", startedAt,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        });
+    }
+
+    /** Deletes minute rollups past {@code rollups.minute-retention-days}. */
+    void purge() {
+        Instant before = Instant.now().minus(Duration.ofDays(props.getMinuteRetentionDays()));
+        int deleted = jdbcTemplate.update("DELETE FROM reading_rollups_minute WHERE bucket < ?", Timestamp.from(before));
+        if (deleted > 0) log.info("[ROLLUP] Deleted {} minute rollups before {}", deleted, before);
+    }
+
+    private void backfillQuietly() {
+        try {
+            backfill();
+        } catch (Exception e) {
+            log.error("[ROLLUP] Backfill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void purgeQuietly() {
+        try {
+            purge();
+        } catch (Exception e) {
+            log.error("[ROLLUP] Minute rollup purge failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+    }
+}
@@ -0,0 +1,96 @@
+package com.fishmaster.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One SSE event, already encoded ({@code id:...\nevent:...\ndata:...\n\n}). A frame is built once
+ * per published event and the same bytes are written to every subscriber, so broadcast cost does
+ * not grow with the number of open connections. WebSocket clients get the same event as a JSON
+ * envelope, built on first use and likewise shared.
+ */
+public final class StreamFrame {
+
+    /** Comment line that keeps idle connections open through proxies; ignored by EventSource. */
+    public static final StreamFrame HEARTBEAT = new StreamFrame(0, null, null, null, ":hb\n\n".getBytes(StandardCharsets.UTF_8));
+
+    private final long id;
+    private final String eventId;
+    private final String event;
+    private final String data;
+    private final DataWithMediaType payload;
+    private volatile String envelope;
+
+    private StreamFrame(long id, String eventId, String event, String data, byte[] bytes) {
+        this.id = id;
+        this.eventId = eventId;
+        this.event = event;
+        this.data = data;
+        this.payload = new DataWithMediaType(bytes, MediaType.TEXT_PLAIN);
+    }
+
+    /**
+     * @param id      position of the event in its hub, used for ordering and replay
+     * @param eventId the id sent as {@code id:} (what the browser echoes back as Last-Event-ID);
+     *                null for control events that should not move the client's position
+     */
+    public static StreamFrame of(long id, String eventId, String event, Object data, ObjectMapper objectMapper)
+            throws JsonProcessingException {
+        return of(id, eventId, event, serialize(data, objectMapper));
+    }
+
+    /** @param data the event's data line(s), already serialized */
+    public static StreamFrame of(long id, String eventId, String event, String data) {
+        String text = (eventId != null ? "id:" + eventId + "\n" : "")
+                + "event:" + event + "\ndata:" + data.replace("\n", "\ndata:") + "\n\n";
+        return new StreamFrame(id, eventId, event, data, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Strings are written as-is (like SseEmitter does); anything else is serialized to JSON. */
+    public static String serialize(Object data, ObjectMapper objectMapper) throws JsonProcessingException {
+        return data instanceof String s ? s : objectMapper.writeValueAsString(data);
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public String event() {
+        return event;
+    }
+
+    public byte[] bytes() {
+        return (byte[]) payload.getData();
+    }
+
+    /**
+     * {@code {"id":..,"event":"..","data":..}} for WebSocket clients; JSON data is embedded as-is,
+     * plain strings (control events) are quoted. Null for the heartbeat.
+     */
+    String envelope() {
+        if (data == null) return null;
+        String text = envelope;
+        if (text == null) {
+            // Racing writers may both build it; the results are equal
+            char first = data.isEmpty() ? ' ' : data.charAt(0);
+            String value = first == '{' || first == '[' ? data : quote(data);
+            text = "{" + (eventId != null ? "\"id\":" + quote(eventId) + "," : "") + "\"event\":" + quote(event) + ",\"data\":" + value + "}";
+            envelope = text;
+        }
+        return text;
+    }
+
+    private static String quote(String value) {
+        return "\"" + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + "\"";
+    }
+
+    /** The frame as handed to {@code ResponseBodyEmitter.send}; shared, never copied. */
+    DataWithMediaType payload() {
+        return payload;
+    }
+}
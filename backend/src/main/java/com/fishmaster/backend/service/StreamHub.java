@@ -0,0 +1,513 @@
+package com.fishmaster.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fishmaster.backend.config.StreamProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single SSE hub for live telemetry and alerts. Clients subscribe to topics
+ * ({@code temperature:tank1}, {@code ph:*}, {@code alerts:42}) over one connection and only
+ * receive events for those topics. Each event is serialized once into a {@link StreamFrame}
+ * whose bytes are shared by all of its subscribers.
+ * <p>
+ * Every subscriber has a small outbound queue drained by its own writer (a virtual thread
+ * started when there is something to send), so publishing only enqueues and a stalled client
+ * delays nobody else. Telemetry is conflated: while a client is behind, a newer reading for the
+ * same tank and metric replaces the queued one. Alerts are never conflated or dropped; a client
+ * whose queue overflows or whose writer is stuck for too long is disconnected instead (the
+ * browser reconnects on its own).
+ * <p>
+ * Events carry increasing ids and the last {@code stream.replay-buffer-size} frames of every
+ * topic are kept in memory, so a reconnecting browser (which sends Last-Event-ID) is caught up
+ * from the ring instead of reloading from the database. When the ring cannot cover the gap the
+ * client gets a {@code reset} event and should reload. Ids are {@code <epoch>-<sequence>}, where
+ * the epoch is random per hub instance: a Last-Event-ID issued by another node (the relay makes
+ * any node serve any topic) or before a restart cannot be placed in this node's sequence, so it
+ * gets a {@code reset} too.
+ * <p>
+ * Subscribers are either SSE responses or WebSocket sessions; both go through the same queues,
+ * rings and relay, only the final write differs (see {@link Sink}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StreamHub {
+
+    public static final String ALL_TANKS = "*";
+    public static final List<String> METRICS = List.of("temperature", "ph", "turbidity");
+
+    private final StreamProperties props;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    private static final String ALERT_PREFIX = "alerts:";
+    private static final Object HEARTBEAT_KEY = new Object();
+
+    /** Where a subscriber's frames are written: an SSE response or a WebSocket session. */
+    interface Sink {
+        /** Writes everything queued for the client in one go; only ever called by one writer at a time. */
+        void send(List<StreamFrame> frames) throws IOException;
+
+        /** Ends the connection after the hub dropped the subscriber (backlog, stall, write error). */
+        void close() throws IOException;
+    }
+
+    /** Receives locally published events in serialized form. */
+    interface Forwarder {
+        void forward(String topic, String event, String json);
+    }
+
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private final Map<String, StreamReplayRing> rings = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile Forwarder forwarder;
+
+    private final ExecutorService writers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-writer-", 0).factory());
+
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sse-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    void start() {
+        Gauge.builder("sse.subscribers", subscribers, Set::size).register(meterRegistry);
+        Gauge.builder("sse.replay.topics", rings, Map::size).register(meterRegistry);
+        long interval = Math.max(1_000, props.getHeartbeatIntervalMs());
+        heartbeat.scheduleWithFixedDelay(this::heartbeatQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public static String telemetryTopic(String metric, String tankId) {
+        return metric + ":" + tankId;
+    }
+
+    public static String alertTopic(Long userId) {
+        return ALERT_PREFIX + userId;
+    }
+
+    /**
+     * Opens a stream for the given topics; {@code readyEvent} is sent first so the client knows
+     * the stream is live.
+     *
+     * @param lastEventId the Last-Event-ID the browser resumed with, if any; newer retained
+     *                    events are replayed before live ones
+     */
+    public SseEmitter subscribe(Collection<String> topicNames, String readyEvent, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L); // no timeout, client controls
+        register(emitter, topicNames, readyEvent, lastEventId);
+        return emitter;
+    }
+
+    /**
+     * Streams the topics to a WebSocket session: every message is a JSON array of
+     * {@code {"id":..,"event":..,"data":..}} envelopes, and heartbeats are pings. The hub's writer
+     * sends while the caller may still be using the session, so pass a thread-safe one
+     * ({@code ConcurrentWebSocketSessionDecorator}).
+     *
+     * @return cancels the subscription without closing the session, e.g. to subscribe again
+     */
+    public Runnable subscribe(WebSocketSession session, Collection<String> topicNames, String readyEvent, String lastEventId) {
+        Subscriber subscriber = register(webSocketSink(session), topicNames, readyEvent, lastEventId);
+        return () -> {
+            subscriber.cancel();
+            unsubscribe(subscriber);
+        };
+    }
+
+    /**
+     * Topics for one dashboard connection: each metric for each tank (every tank when none are
+     * given), plus the user's alerts when {@code alertUserId} is set.
+     *
+     * @throws IllegalArgumentException for an unknown metric, or when nothing would be streamed
+     */
+    public static List<String> dashboardTopics(Collection<String> tankIds, Collection<String> metrics, Long alertUserId) {
+        Collection<String> selectedMetrics = metrics != null ? metrics : METRICS;
+        if (!METRICS.containsAll(selectedMetrics)) {
+            throw new IllegalArgumentException("Unknown metric in " + selectedMetrics);
+        }
+        Collection<String> tanks = tankIds != null && !tankIds.isEmpty() ? tankIds : List.of(ALL_TANKS);
+        List<String> topicNames = new ArrayList<>();
+        for (String metric : selectedMetrics) {
+            for (String tank : tanks) {
+                topicNames.add(telemetryTopic(metric, tank));
+            }
+        }
+        if (alertUserId != null) {
+            topicNames.add(alertTopic(alertUserId));
+        }
+        if (topicNames.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to stream");
+        }
+        return topicNames;
+    }
+
+    Subscriber register(SseEmitter emitter, Collection<String> topicNames, String readyEvent, String lastEventId) {
+        Subscriber subscriber = register(sseSink(emitter), topicNames, readyEvent, lastEventId);
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return subscriber;
+    }
+
+    private Subscriber register(Sink sink, Collection<String> topicNames, String readyEvent, String lastEventId) {
+        Subscriber subscriber = new Subscriber(sink, Set.copyOf(topicNames));
+        // Publishers wait on the subscriber until the replay is queued, so live events follow it
+        synchronized (subscriber) {
+            subscribers.add(subscriber);
+            for (String topic : subscriber.topics) {
+                topics.compute(topic, (k, set) -> {
+                    Set<Subscriber> members = set != null ? set : ConcurrentHashMap.newKeySet();
+                    members.add(subscriber);
+                    return members;
+                });
+                rings.computeIfAbsent(topic, k -> new StreamReplayRing(props.getReplayBufferSize(), sequence.get())).touch();
+            }
+            if (readyEvent != null) {
+                subscriber.offer(null, controlFrame(readyEvent, "ok"));
+            }
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                Long sequenceId = parseEventId(lastEventId);
+                if (sequenceId != null) {
+                    replay(subscriber, sequenceId);
+                } else {
+                    // Not issued by this hub, so there is no telling what the client missed
+                    meterRegistry.counter("sse.replay.gaps").increment();
+                    subscriber.offer(null, controlFrame("reset", "unknown-event-id"));
+                }
+            }
+        }
+        log.debug("[SSE] Subscribed to {} (last event id {})", subscriber.topics, lastEventId);
+        return subscriber;
+    }
+
+    private void replay(Subscriber subscriber, long lastEventId) {
+        // A frame can sit in both a tank ring and the wildcard ring
+        Set<StreamFrame> frames = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean complete = true;
+        for (String topic : subscriber.topics) {
+            StreamReplayRing ring = rings.get(topic);
+            complete &= ring != null && ring.collectSince(lastEventId, frames);
+        }
+        if (!complete) {
+            meterRegistry.counter("sse.replay.gaps").increment();
+            subscriber.offer(null, controlFrame("reset", "replay-gap"));
+        }
+        List<StreamFrame> ordered = new ArrayList<>(frames);
+        ordered.sort(Comparator.comparingLong(StreamFrame::id));
+        subscriber.replay(ordered);
+        meterRegistry.counter("sse.replayed").increment(ordered.size());
+    }
+
+    /** Latest-value semantics: a client that is behind only gets the newest reading per tank and metric. */
+    public void publishTelemetry(String metric, String tankId, Object data) {
+        publish(telemetryTopic(metric, tankId), metric, data, true);
+    }
+
+    /** Alerts are queued individually and never conflated. */
+    public void publishAlert(Long userId, String event, Object data) {
+        publish(alertTopic(userId), event, data, true);
+    }
+
+    /** Delivers an event published on another node (see {@link StreamRelay}); never forwarded again. */
+    public void publishRelayed(String topic, String event, String json) {
+        publish(topic, event, json, false);
+    }
+
+    /**
+     * Hooks a relay in: it receives every locally published event, already serialized, whether
+     * or not this node has subscribers for it.
+     */
+    void setForwarder(Forwarder forwarder) {
+        this.forwarder = forwarder;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void publish(String topic, String event, Object data, boolean local) {
+        boolean alert = topic.startsWith(ALERT_PREFIX);
+        String wildcardTopic = alert ? null : topic.substring(0, topic.indexOf(':') + 1) + ALL_TANKS;
+        String conflationKey = alert ? null : topic;
+        Forwarder relay = local ? forwarder : null;
+
+        // Rings exist while a topic has (or recently had) subscribers
+        StreamReplayRing ring = rings.get(topic);
+        StreamReplayRing wildcardRing = wildcardTopic != null ? rings.get(wildcardTopic) : null;
+        if (ring == null && wildcardRing == null && relay == null) return; // nobody listening: not even serialized
+
+        String json = serialize(event, data);
+        if (json == null) return;
+        if (relay != null) relay.forward(topic, event, json);
+        if (ring == null && wildcardRing == null) return;
+
+        long id = sequence.incrementAndGet();
+        StreamFrame frame = StreamFrame.of(id, epoch + "-" + id, event, json);
+        // Ring first: a subscriber that joins after this point finds the frame in its replay
+        if (ring != null) ring.append(frame);
+        if (wildcardRing != null) wildcardRing.append(frame);
+
+        Set<Subscriber> exact = topics.get(topic);
+        Set<Subscriber> wildcard = wildcardTopic != null ? topics.get(wildcardTopic) : null;
+        if (exact != null) {
+            exact.forEach(s -> s.offer(conflationKey, frame));
+        }
+        if (wildcard != null) {
+            // A subscriber on both the tank and the wildcard topic gets the event once
+            wildcard.forEach(s -> {
+                if (exact == null || !exact.contains(s)) s.offer(conflationKey, frame);
+            });
+        }
+    }
+
+    private String serialize(String event, Object data) {
+        try {
+            return StreamFrame.serialize(data, objectMapper);
+        } catch (Exception e) {
+            log.warn("[SSE] Could not serialize {} event: {}", event, e.getMessage());
+            return null;
+        }
+    }
+
+    private static StreamFrame controlFrame(String event, String data) {
+        return StreamFrame.of(0, null, event, data);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) return;
+        for (String topic : subscriber.topics) {
+            topics.computeIfPresent(topic, (k, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+            StreamReplayRing ring = rings.get(topic);
+            if (ring != null) ring.touch();
+        }
+    }
+
+    private void heartbeatQuietly() {
+        try {
+            // Also how stalled writers are noticed on topics that have gone quiet
+            subscribers.forEach(s -> s.offer(HEARTBEAT_KEY, StreamFrame.HEARTBEAT));
+            long idleBefore = System.currentTimeMillis() - props.getReplayRetentionMs();
+            for (String topic : rings.keySet()) {
+                rings.computeIfPresent(topic, (k, ring) ->
+                        topics.containsKey(k) || ring.lastUsedMillis() > idleBefore ? ring : null);
+            }
+        } catch (Exception e) {
+            log.warn("[SSE] Heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /** The sequence part of an id this hub issued; null for anyone else's (or a malformed one). */
+    private Long parseEventId(String lastEventId) {
+        String id = lastEventId.trim();
+        if (!id.startsWith(epoch + "-")) return null;
+        try {
+            return Long.parseLong(id.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void disconnect(Subscriber subscriber, String reason) {
+        unsubscribe(subscriber);
+        meterRegistry.counter("sse.disconnected", "reason", reason).increment();
+        log.debug("[SSE] Disconnecting subscriber of {} ({})", subscriber.topics, reason);
+        try {
+            subscriber.sink.close();
+        } catch (Exception ignored) { }
+    }
+
+    private static Sink sseSink(SseEmitter emitter) {
+        return new Sink() {
+            @Override
+            public void send(List<StreamFrame> frames) throws IOException {
+                Set<DataWithMediaType> batch = new LinkedHashSet<>(frames.size() * 2);
+                for (StreamFrame frame : frames) batch.add(frame.payload());
+                emitter.send(batch);
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        };
+    }
+
+    private static Sink webSocketSink(WebSocketSession session) {
+        return new Sink() {
+            @Override
+            public void send(List<StreamFrame> frames) throws IOException {
+                StringBuilder text = new StringBuilder("[");
+                for (StreamFrame frame : frames) {
+                    String envelope = frame.envelope();
+                    if (envelope == null) continue; // heartbeat
+                    if (text.length() > 1) text.append(',');
+                    text.append(envelope);
+                }
+                if (text.length() == 1) {
+                    session.sendMessage(new PingMessage());
+                } else {
+                    session.sendMessage(new TextMessage(text.append(']')));
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                // 1013 "try again later": the client may reconnect with its last id
+                session.close(CloseStatus.SERVICE_OVERLOAD);
+            }
+        };
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        heartbeat.shutdownNow();
+        writers.shutdown();
+        writers.awaitTermination(2, TimeUnit.SECONDS);
+    }
+
+    final class Subscriber {
+        final Sink sink;
+        final Set<String> topics;
+
+        // Insertion-ordered; telemetry keeps its slot when a newer value replaces it
+        private final LinkedHashMap<Object, StreamFrame> pending = new LinkedHashMap<>();
+        // Frames already queued by the replay; a publisher racing the subscription may offer them again
+        private Set<StreamFrame> replayed;
+        private boolean draining;
+        private boolean closed;
+        private volatile long sendStartedNanos;
+
+        Subscriber(Sink sink, Set<String> topics) {
+            this.sink = sink;
+            this.topics = topics;
+        }
+
+        /** @param conflationKey events with the same key replace each other while queued; null never conflates */
+        void offer(Object conflationKey, StreamFrame frame) {
+            String overflow = null;
+            synchronized (this) {
+                if (closed || (replayed != null && replayed.contains(frame))) return;
+                long started = sendStartedNanos;
+                if (started != 0 && System.nanoTime() - started > TimeUnit.MILLISECONDS.toNanos(props.getMaxStallMs())) {
+                    overflow = "stalled";
+                } else if (conflationKey != null && pending.containsKey(conflationKey)) {
+                    // Moved to the back so the queue stays in id order (Last-Event-ID is the last one sent)
+                    pending.remove(conflationKey);
+                    pending.put(conflationKey, frame);
+                    meterRegistry.counter("sse.conflated").increment();
+                    return;
+                } else if (pending.size() >= props.getSubscriberQueueCapacity()) {
+                    overflow = "backlog";
+                } else {
+                    pending.put(conflationKey != null ? conflationKey : new Object(), frame);
+                    if (draining) return;
+                    draining = true;
+                }
+                if (overflow != null) close();
+            }
+            if (overflow != null) {
+                disconnect(this, overflow);
+            } else {
+                writers.execute(this::drain);
+            }
+        }
+
+        /** Queued regardless of capacity: bounded by the rings, and the client asked for it. */
+        synchronized void replay(List<StreamFrame> frames) {
+            if (frames.isEmpty() || closed) return;
+            replayed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (StreamFrame frame : frames) {
+                replayed.add(frame);
+                pending.put(new Object(), frame);
+            }
+            if (!draining) {
+                draining = true;
+                writers.execute(this::drain);
+            }
+        }
+
+        int queued() {
+            synchronized (this) {
+                return pending.size();
+            }
+        }
+
+        /** Stops delivery; anything still queued is discarded. */
+        synchronized void cancel() {
+            close();
+        }
+
+        private void close() {
+            closed = true;
+            pending.clear();
+        }
+
+        private void drain() {
+            while (true) {
+                List<StreamFrame> batch;
+                synchronized (this) {
+                    if (closed || pending.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    pending.clear();
+                    replayed = null;
+                }
+                try {
+                    sendStartedNanos = System.nanoTime();
+                    // Everything queued goes out in one write and one flush
+                    sink.send(batch);
+                } catch (Exception e) {
+                    synchronized (this) {
+                        close();
+                        draining = false;
+                    }
+                    disconnect(this, "error");
+                    return;
+                } finally {
+                    sendStartedNanos = 0;
+                }
+            }
+        }
+    }
+}
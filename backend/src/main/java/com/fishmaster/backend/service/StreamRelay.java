@@ -0,0 +1,211 @@
+package com.fishmaster.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fishmaster.backend.config.StreamProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Carries StreamHub events between backend nodes over PostgreSQL LISTEN/NOTIFY, so a browser
+ * connected to any node sees telemetry ingested and alerts raised on every other node.
+ * <p>
+ * Each locally published event becomes one line {@code nodeId \t topic \t event \t json}; the
+ * sender packs as many queued lines as fit into one NOTIFY payload (Postgres caps it at 8000
+ * bytes). Each node listens on one dedicated connection and republishes other nodes' lines
+ * into its own hub, where they get local ids and replay like local events. NOTIFY is
+ * fire-and-forget: events sent while a listener is reconnecting are lost to that node.
+ * <p>
+ * {@link TankConfigChangedEvent}s travel the same way (topic {@value #TANK_CONFIG_TOPIC}), so a
+ * threshold or fish edit handled by one node evicts the threshold cache on the node ingesting
+ * that tank.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StreamRelay {
+
+    static final int MAX_PAYLOAD_BYTES = 7_900;
+    static final String TANK_CONFIG_TOPIC = "tank-config";
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final long RECONNECT_DELAY_MS = 2_000;
+
+    private final StreamHub streamHub;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final StreamProperties props;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private BlockingQueue<String> outgoing;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!props.isRelayEnabled()) return;
+        if (!CHANNEL.matcher(props.getRelayChannel()).matches()) {
+            throw new IllegalStateException("stream.relay-channel must be a lower-case SQL identifier: " + props.getRelayChannel());
+        }
+        outgoing = new ArrayBlockingQueue<>(Math.max(1, props.getRelayQueueCapacity()));
+        threads.add(Thread.ofPlatform().daemon().name("stream-relay-listener").start(this::listenLoop));
+        threads.add(Thread.ofPlatform().daemon().name("stream-relay-sender").start(this::sendLoop));
+        streamHub.setForwarder(this::forward);
+        log.info("[SSE-RELAY] Relaying stream events on channel {} as node {}", props.getRelayChannel(), nodeId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        streamHub.setForwarder(null);
+        threads.forEach(Thread::interrupt);
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+
+    /** Forwards a committed local config change; ones relayed from other nodes stop here. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTankConfigChanged(TankConfigChangedEvent event) {
+        if (outgoing == null || event.relayed()) return;
+        try {
+            forward(TANK_CONFIG_TOPIC, "changed", objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.warn("[SSE-RELAY] Could not relay config change of tank {}: {}", event.tankId(), e.getMessage());
+        }
+    }
+
+    void forward(String topic, String event, String json) {
+        if (topic.indexOf('\t') >= 0 || topic.indexOf('\n') >= 0) return; // tank ids come from devices
+        String line = encode(nodeId, topic, event, json);
+        if (line.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES || !outgoing.offer(line)) {
+            meterRegistry.counter("sse.relay.dropped").increment();
+        }
+    }
+
+    private void sendLoop() {
+        List<String> batch = new ArrayList<>();
+        while (running) {
+            try {
+                String first = outgoing.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                // Whatever piled up while the previous NOTIFY was in flight goes out together
+                batch.add(first);
+                outgoing.drainTo(batch);
+                for (String payload : pack(batch, MAX_PAYLOAD_BYTES)) {
+                    jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, props.getRelayChannel(), payload);
+                }
+                meterRegistry.counter("sse.relay.sent").increment(batch.size());
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                meterRegistry.counter("sse.relay.dropped").increment(batch.size());
+                log.warn("[SSE-RELAY] NOTIFY failed, {} events dropped: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            // Held for the node's lifetime: one pool connection is reserved for listening
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + props.getRelayChannel());
+                }
+                log.info("[SSE-RELAY] Listening on {}", props.getRelayChannel());
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(1_000);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) return;
+                log.warn("[SSE-RELAY] Listener connection failed, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void receive(String payload) {
+        for (String line : payload.split("\n")) {
+            String[] parts = line.split("\t", 4);
+            if (parts.length < 4 || parts[0].equals(nodeId)) continue;
+            if (TANK_CONFIG_TOPIC.equals(parts[1])) {
+                receiveConfigChange(parts[3]);
+            } else {
+                streamHub.publishRelayed(parts[1], parts[2], parts[3]);
+            }
+            meterRegistry.counter("sse.relay.received").increment();
+        }
+    }
+
+    private void receiveConfigChange(String json) {
+        try {
+            TankConfigChangedEvent event = objectMapper.readValue(json, TankConfigChangedEvent.class);
+            eventPublisher.publishEvent(new TankConfigChangedEvent(event.tankId(), event.mqttTankId(), event.deleted(), true));
+        } catch (Exception e) {
+            log.warn("[SSE-RELAY] Could not apply config change {}: {}", json, e.getMessage());
+        }
+    }
+
+    static String encode(String nodeId, String topic, String event, String json) {
+        // Jackson escapes control characters inside strings, so json holds no raw tab or newline
+        return nodeId + '\t' + topic + '\t' + event + '\t' + json;
+    }
+
+    /** Joins lines with '\n' into payloads of at most {@code maxBytes} (UTF-8). */
+    static List<String> pack(List<String> lines, int maxBytes) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentBytes = 0;
+        for (String line : lines) {
+            int bytes = line.getBytes(StandardCharsets.UTF_8).length;
+            if (currentBytes > 0 && currentBytes + 1 + bytes > maxBytes) {
+                payloads.add(current.toString());
+                current.setLength(0);
+                currentBytes = 0;
+            }
+            if (currentBytes > 0) {
+                current.append('\n');
+                currentBytes++;
+            }
+            current.append(line);
+            currentBytes += bytes;
+        }
+        if (currentBytes > 0) payloads.add(current.toString());
+        return payloads;
+    }
+}
@@ -0,0 +1,52 @@
+package com.fishmaster.backend.service;
+
+import java.util.Collection;
+
+/**
+ * The last N frames published on one topic, so a reconnecting client can be caught up from
+ * memory (Last-Event-ID) instead of re-reading the database.
+ */
+final class StreamReplayRing {
+
+    private final StreamFrame[] slots;
+    // Ids at or below this may have been published before the ring existed
+    private final long coveredAfter;
+    private long appended;
+    private long evictedUpTo;
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+
+    StreamReplayRing(int capacity, long coveredAfter) {
+        this.slots = new StreamFrame[Math.max(1, capacity)];
+        this.coveredAfter = coveredAfter;
+    }
+
+    synchronized void append(StreamFrame frame) {
+        int slot = (int) (appended++ % slots.length);
+        StreamFrame evicted = slots[slot];
+        if (evicted != null) {
+            evictedUpTo = Math.max(evictedUpTo, evicted.id());
+        }
+        slots[slot] = frame;
+    }
+
+    /**
+     * Adds every retained frame newer than {@code afterId} to {@code out}.
+     *
+     * @return false when frames newer than {@code afterId} may be missing (evicted, or published
+     *         before the ring was created), i.e. the client has to reload instead
+     */
+    synchronized boolean collectSince(long afterId, Collection<StreamFrame> out) {
+        for (StreamFrame frame : slots) {
+            if (frame != null && frame.id() > afterId) out.add(frame);
+        }
+        return afterId >= coveredAfter && afterId >= evictedUpTo;
+    }
+
+    void touch() {
+        lastUsedMillis = System.currentTimeMillis();
+    }
+
+    long lastUsedMillis() {
+        return lastUsedMillis;
+    }
+}
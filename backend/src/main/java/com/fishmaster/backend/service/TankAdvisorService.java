@@ -3,21 +3,39 @@ package com.fishmaster.backend.service;
 import com.fishmaster.backend.model.*;
 import com.fishmaster.backend.repositories.*;
 import dto.*;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
+/**
+ * Builds the advisor snapshot. Its queries mostly do not depend on each other, so they run
+ * concurrently on virtual threads (see {@link QueryScope}) and a snapshot takes about as long as
+ * its slowest query rather than the sum of all of them.
+ */
 @Service
 @RequiredArgsConstructor
 public class TankAdvisorService {
 
+    private static final Duration REPORT_WINDOW = Duration.ofDays(7);
+    private static final int MAX_HISTORY_HOURS = 24 * 7;
+    private static final TrendWindow NO_TREND = new TrendWindow(0L, null, null);
+
     private static final List<String> QUEST_KEYS = List.of(
             "check_temperature", "check_ph", "check_clarity", "feed_fish", "clean_filter", "watch_fish"
     );
@@ -29,50 +47,251 @@ public class TankAdvisorService {
     private final TemperatureReadingRepository temperatureRepository;
     private final PhReadingRepository phRepository;
     private final TurbidityReadingRepository turbidityRepository;
+    private final TankHealthRepository healthRepository;
+    private final TankHealthHistoryRepository healthHistoryRepository;
+    private final HourReadingRollupRepository hourlyRollupRepository;
+
+    // Advisor queries in flight across all requests; keeps snapshot fan-out from draining the connection pool
+    @Value("${advisor.max-concurrent-queries:4}")
+    private int maxConcurrentQueries;
+
+    private Semaphore queryPermits;
+
+    @PostConstruct
+    void init() {
+        queryPermits = new Semaphore(Math.max(1, maxConcurrentQueries), true);
+    }
 
-    @Transactional(readOnly = true)
+    /**
+     * Read-only, but not transactional: every query runs in its own short read on a virtual
+     * thread, and the calling thread touches no connection while it waits for them.
+     */
     public AdvisorSnapshotDto getSnapshot(User user, Long tankId) {
-        Tank tank = tankRepository.findByIdWithFish(tankId)
-                .orElseThrow(() -> new IllegalArgumentException("Tank not found"));
-        if (!tank.getUser().getId().equals(user.getId())) {
-            throw new SecurityException("Unauthorized");
+        try (QueryScope scope = new QueryScope()) {
+            // Keyed by tankId, so they start together with the tank lookup
+            Future<Tank> tankQuery = scope.fork(() -> tankRepository.findByIdWithFish(tankId)
+                    .orElseThrow(() -> new IllegalArgumentException("Tank not found")));
+            Future<Optional<AlertThreshold>> thresholdQuery = scope.fork(() -> thresholdRepository.findByTankId(tankId));
+            Future<List<Alert>> alertQuery = scope.fork(() -> openAlerts(tankId));
+            // Auto quests are completed at ingest (AutoQuestService); this only reads them
+            LocalDate today = LocalDate.now();
+            Future<List<AdvisorQuestDto>> questQuery = scope.fork(() ->
+                    buildQuests(questRepository.findByUserIdAndTankIdAndQuestDate(user.getId(), tankId, today)));
+            Future<Optional<TankHealth>> healthQuery = scope.fork(() -> healthRepository.findById(tankId));
+
+            Tank tank = scope.join(tankQuery);
+            if (!tank.getUser().getId().equals(user.getId())) {
+                throw new SecurityException("Unauthorized");
+            }
+
+            String mqttTankId = mqttTankId(tank);
+            // Maintained at ingest (TankHealthProjector); tanks without a row yet read the latest readings instead
+            TankHealth projected = scope.join(healthQuery).orElse(null);
+            Future<BigDecimal> tempQuery = projected != null
+                    ? CompletableFuture.completedFuture(projected.getTemperature())
+                    : scope.fork(() -> latestTemperature(mqttTankId));
+            Future<BigDecimal> phQuery = projected != null
+                    ? CompletableFuture.completedFuture(projected.getPh())
+                    : scope.fork(() -> latestPh(mqttTankId));
+            Future<BigDecimal> turbidityQuery = projected != null
+                    ? CompletableFuture.completedFuture(projected.getTurbidity())
+                    : scope.fork(() -> latestTurbidity(mqttTankId));
+            // The week ends now; its older and newer halves are averaged from the hourly rollups
+            Instant weekEnd = Instant.now();
+            Instant weekMid = weekMid(weekEnd);
+            Instant weekStart = weekStart(weekEnd);
+            Future<TrendWindow> tempTrend = scope.fork(() ->
+                    hourlyRollupRepository.findTrendWindow(mqttTankId, "temperature", weekStart, weekMid, weekEnd));
+            Future<TrendWindow> phTrend = scope.fork(() ->
+                    hourlyRollupRepository.findTrendWindow(mqttTankId, "ph", weekStart, weekMid, weekEnd));
+            Future<TrendWindow> turbidityTrend = scope.fork(() ->
+                    hourlyRollupRepository.findTrendWindow(mqttTankId, "turbidity", weekStart, weekMid, weekEnd));
+
+            return assemble(tank, scope.join(thresholdQuery).orElse(null), projected,
+                    scope.join(tempQuery), scope.join(phQuery), scope.join(turbidityQuery), scope.join(alertQuery),
+                    scope.join(questQuery), scope.join(tempTrend), scope.join(phTrend), scope.join(turbidityTrend));
         }
+    }
 
-        String mqttTankId = tank.getMqttTankId() != null ? tank.getMqttTankId() : "tank" + tankId;
-        AlertThreshold stored = thresholdRepository.findByTankId(tankId).orElse(null);
-        TankHealthCalculator.Thresholds thresholds = TankHealthCalculator.resolveThresholds(tank, stored);
+    /**
+     * Snapshots of all the user's tanks with one query per table rather than one set per tank:
+     * tanks, tank_health, open alerts and today's quests by user, thresholds by tank id, the
+     * weekly trends grouped by tank and, only for tanks not projected yet, the latest readings
+     * with DISTINCT ON. The count stays the same however many tanks there are.
+     */
+    public List<AdvisorSnapshotDto> getSnapshots(User user) {
+        Long userId = user.getId();
+        try (QueryScope scope = new QueryScope()) {
+            // Keyed by the user, so they start together with the tank list
+            Future<List<Tank>> tankQuery = scope.fork(() -> tankRepository.findByUserIdWithFish(userId));
+            Future<List<TankHealth>> healthQuery = scope.fork(() -> healthRepository.findByUserId(userId));
+            Future<List<Alert>> alertQuery = scope.fork(() ->
+                    alertRepository.findByUserIdAndResolvedAtIsNullOrderByCreatedAtDesc(userId));
+            LocalDate today = LocalDate.now();
+            Future<List<TankQuestCompletion>> questQuery = scope.fork(() ->
+                    questRepository.findByUserIdAndQuestDate(userId, today));
+
+            List<Tank> tanks = scope.join(tankQuery);
+            if (tanks.isEmpty()) return List.of();
+            List<Long> tankIds = tanks.stream().map(Tank::getId).toList();
+            List<String> mqttTankIds = tanks.stream().map(TankAdvisorService::mqttTankId).distinct().toList();
+
+            Future<List<AlertThreshold>> thresholdQuery = scope.fork(() -> thresholdRepository.findByTankIdIn(tankIds));
+            Instant weekEnd = Instant.now();
+            Instant weekMid = weekMid(weekEnd);
+            Instant weekStart = weekStart(weekEnd);
+            Future<List<TankTrendWindow>> tempTrends = scope.fork(() ->
+                    hourlyRollupRepository.findTrendWindows(mqttTankIds, "temperature", weekStart, weekMid, weekEnd));
+            Future<List<TankTrendWindow>> phTrends = scope.fork(() ->
+                    hourlyRollupRepository.findTrendWindows(mqttTankIds, "ph", weekStart, weekMid, weekEnd));
+            Future<List<TankTrendWindow>> turbidityTrends = scope.fork(() ->
+                    hourlyRollupRepository.findTrendWindows(mqttTankIds, "turbidity", weekStart, weekMid, weekEnd));
+
+            Map<Long, TankHealth> projected = scope.join(healthQuery).stream()
+                    .collect(Collectors.toMap(TankHealth::getTankId, h -> h));
+            List<String> unprojected = tanks.stream()
+                    .filter(t -> !projected.containsKey(t.getId()))
+                    .map(TankAdvisorService::mqttTankId)
+                    .distinct()
+                    .toList();
+            Future<List<TemperatureReading>> tempQuery = unprojected.isEmpty()
+                    ? CompletableFuture.completedFuture(List.of())
+                    : scope.fork(() -> temperatureRepository.findLatestByTankIdIn(unprojected));
+            Future<List<PhReading>> phQuery = unprojected.isEmpty()
+                    ? CompletableFuture.completedFuture(List.of())
+                    : scope.fork(() -> phRepository.findLatestByTankIdIn(unprojected));
+            Future<List<TurbidityReading>> turbidityQuery = unprojected.isEmpty()
+                    ? CompletableFuture.completedFuture(List.of())
+                    : scope.fork(() -> turbidityRepository.findLatestByTankIdIn(unprojected));
+
+            Map<Long, AlertThreshold> thresholds = scope.join(thresholdQuery).stream()
+                    .collect(Collectors.toMap(AlertThreshold::getTankId, t -> t, (a, b) -> a));
+            Map<Long, List<Alert>> alerts = scope.join(alertQuery).stream()
+                    .collect(Collectors.groupingBy(Alert::getTankId));
+            Map<Long, List<TankQuestCompletion>> completions = scope.join(questQuery).stream()
+                    .collect(Collectors.groupingBy(TankQuestCompletion::getTankId));
+            Map<String, BigDecimal> temps = new HashMap<>();
+            scope.join(tempQuery).forEach(r -> temps.put(r.getTankId(), r.getTemperature()));
+            Map<String, BigDecimal> phs = new HashMap<>();
+            scope.join(phQuery).forEach(r -> phs.put(r.getTankId(), r.getPhValue()));
+            Map<String, BigDecimal> turbidities = new HashMap<>();
+            scope.join(turbidityQuery).forEach(r -> turbidities.put(r.getTankId(), r.getNtu()));
+            Map<String, TrendWindow> tempTrend = byTank(scope.join(tempTrends));
+            Map<String, TrendWindow> phTrend = byTank(scope.join(phTrends));
+            Map<String, TrendWindow> turbidityTrend = byTank(scope.join(turbidityTrends));
+
+            List<AdvisorSnapshotDto> snapshots = new ArrayList<>(tanks.size());
+            for (Tank tank : tanks) {
+                String mqttTankId = mqttTankId(tank);
+                TankHealth health = projected.get(tank.getId());
+                snapshots.add(assemble(tank, thresholds.get(tank.getId()), health,
+                        health != null ? health.getTemperature() : temps.get(mqttTankId),
+                        health != null ? health.getPh() : phs.get(mqttTankId),
+                        health != null ? health.getTurbidity() : turbidities.get(mqttTankId),
+                        alerts.getOrDefault(tank.getId(), List.of()),
+                        buildQuests(completions.getOrDefault(tank.getId(), List.of())),
+                        tempTrend.getOrDefault(mqttTankId, NO_TREND),
+                        phTrend.getOrDefault(mqttTankId, NO_TREND),
+                        turbidityTrend.getOrDefault(mqttTankId, NO_TREND)));
+            }
+            return snapshots;
+        }
+    }
 
-        BigDecimal temp = latestTemperature(mqttTankId);
-        BigDecimal ph = latestPh(mqttTankId);
-        BigDecimal turbidity = latestTurbidity(mqttTankId);
+    // Readings are keyed by the device's tank id, which comes from the tank row
+    private static String mqttTankId(Tank tank) {
+        return tank.getMqttTankId() != null ? tank.getMqttTankId() : "tank" + tank.getId();
+    }
 
-        TankHealthCalculator.MetricScore scores = TankHealthCalculator.scoreReadings(temp, ph, turbidity, thresholds);
-        int health = TankHealthCalculator.overallPercent(scores);
+    // The rollups are hourly, so the week's start and middle fall on whole hours
+    private static Instant weekStart(Instant weekEnd) {
+        return weekEnd.minus(REPORT_WINDOW).truncatedTo(ChronoUnit.HOURS);
+    }
 
-        List<Alert> openAlerts = alertRepository.findByTankIdOrderByCreatedAtDesc(tankId).stream()
-                .filter(a -> a.getResolvedAt() == null)
-                .toList();
+    private static Instant weekMid(Instant weekEnd) {
+        return weekEnd.minus(REPORT_WINDOW.dividedBy(2)).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static Map<String, TrendWindow> byTank(List<TankTrendWindow> windows) {
+        return windows.stream().collect(Collectors.toMap(TankTrendWindow::tankId, TankTrendWindow::window));
+    }
+
+    /** The DTO from one tank's query results; shared by the single and the all-tanks snapshot. */
+    private AdvisorSnapshotDto assemble(Tank tank, AlertThreshold stored, TankHealth projected,
+                                        BigDecimal temp, BigDecimal ph, BigDecimal turbidity, List<Alert> openAlerts,
+                                        List<AdvisorQuestDto> quests, TrendWindow tempTrend, TrendWindow phTrend,
+                                        TrendWindow turbidityTrend) {
+        TankHealthCalculator.Thresholds thresholds = TankHealthCalculator.resolveThresholds(tank, stored);
+        int health = projected != null
+                ? projected.getHealthPercent()
+                : TankHealthCalculator.overallPercent(TankHealthCalculator.scoreReadings(temp, ph, turbidity, thresholds));
+
+        // Mood is re-derived from the alerts just read, so a resolution shows before the next reading
         boolean critical = openAlerts.stream().anyMatch(a -> a.getSeverity() == AlertSeverity.CRITICAL);
         String mood = TankHealthCalculator.moodFromHealth(health, critical);
 
-        LocalDate today = LocalDate.now();
-        syncAutoQuests(user.getId(), tankId, today, temp, ph, turbidity, thresholds);
-
         AdvisorSnapshotDto dto = new AdvisorSnapshotDto();
-        dto.setTankId(tankId);
+        dto.setTankId(tank.getId());
         dto.setTankName(tank.getName());
         dto.setHealthPercent(health);
         dto.setMood(mood);
         dto.setMoodLabel(TankHealthCalculator.moodLabel(mood));
         dto.setAlertCards(buildAlertCards(openAlerts, temp, ph, turbidity, thresholds));
-        dto.setQuests(buildQuests(user.getId(), tankId, today));
+        dto.setQuests(quests);
         dto.setSpeciesWarnings(buildSpeciesWarnings(tank));
-        dto.setWeeklyReport(buildWeeklyReport(mqttTankId));
+        dto.setWeeklyReport(buildWeeklyReport(tempTrend, phTrend, turbidityTrend));
         dto.setRecommendedActions(buildRecommendedActions(dto.getAlertCards(), dto.getQuests()));
         populateTankCareSummary(dto, tank, temp, thresholds, dto.getSpeciesWarnings());
         return dto;
     }
 
+    /**
+     * The queries of one snapshot. Each runs on its own virtual thread and holds one of the shared
+     * {@code advisor.max-concurrent-queries} permits (and so at most one pooled connection) while
+     * it runs. The first failure a join sees cancels the rest; closing the scope cancels anything
+     * not joined (e.g. after an authorization failure) and waits for it to stop.
+     */
+    private final class QueryScope implements AutoCloseable {
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        <T> Future<T> fork(Callable<T> query) {
+            return executor.submit(() -> {
+                queryPermits.acquire();
+                try {
+                    return query.call();
+                } finally {
+                    queryPermits.release();
+                }
+            });
+        }
+
+        <T> T join(Future<T> query) {
+            try {
+                return query.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                throw new IllegalStateException("Interrupted while building the advisor snapshot", e);
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            executor.close();
+        }
+    }
+
+    private List<Alert> openAlerts(Long tankId) {
+        return alertRepository.findByTankIdOrderByCreatedAtDesc(tankId).stream()
+                .filter(a -> a.getResolvedAt() == null)
+                .toList();
+    }
+
     private void populateTankCareSummary(AdvisorSnapshotDto dto, Tank tank, BigDecimal temp,
                                          TankHealthCalculator.Thresholds thresholds,
                                          List<AdvisorSpeciesWarningDto> speciesWarnings) {
@@ -129,7 +348,22 @@ public class TankAdvisorService {
         return Math.min(150, Math.round((required * 100f) / tank.getSizeLiters()));
     }
 
-    @Transactional
+    /** The tank's overall health per minute over the last {@code hours}, oldest first. */
+    public List<HealthPointDto> getHealthHistory(User user, Long tankId, int hours) {
+        if (hours < 1 || hours > MAX_HISTORY_HOURS) {
+            throw new IllegalArgumentException("hours must be between 1 and " + MAX_HISTORY_HOURS);
+        }
+        Tank tank = tankRepository.findById(tankId).orElseThrow(() -> new IllegalArgumentException("Tank not found"));
+        if (!tank.getUser().getId().equals(user.getId())) {
+            throw new SecurityException("Unauthorized");
+        }
+        Instant from = Instant.now().minus(Duration.ofHours(hours));
+        return healthHistoryRepository.findByTankIdAndMinuteGreaterThanEqualOrderByMinuteAsc(tankId, from).stream()
+                .map(h -> new HealthPointDto(h.getMinute(), h.getHealthPercent()))
+                .toList();
+    }
+
+    /** The completion is committed before the snapshot is built, whose queries run on other connections. */
     public AdvisorSnapshotDto completeQuest(User user, Long tankId, String questKey) {
         if (!QUEST_KEYS.contains(questKey)) {
             throw new IllegalArgumentException("Unknown quest: " + questKey);
@@ -155,43 +389,8 @@ public class TankAdvisorService {
         return getSnapshot(user, tankId);
     }
 
-    private void syncAutoQuests(Long userId, Long tankId, LocalDate today,
-                                BigDecimal temp, BigDecimal ph, BigDecimal turbidity,
-                                TankHealthCalculator.Thresholds thresholds) {
-        Map<String, Boolean> autoDone = Map.of(
-                "check_temperature", inRange(temp, thresholds.tempMin(), thresholds.tempMax()),
-                "check_ph", inRange(ph, thresholds.phMin(), thresholds.phMax()),
-                "check_clarity", turbidity != null && thresholds.turbidityMax() != null
-                        && turbidity.compareTo(thresholds.turbidityMax()) <= 0
-        );
-
-        for (var entry : autoDone.entrySet()) {
-            if (!entry.getValue()) continue;
-            upsertQuest(userId, tankId, entry.getKey(), today, QuestCompletionSource.AUTO);
-        }
-    }
-
-    private void upsertQuest(Long userId, Long tankId, String questKey, LocalDate date, QuestCompletionSource source) {
-        Optional<TankQuestCompletion> existing = questRepository
-                .findByUserIdAndTankIdAndQuestKeyAndQuestDate(userId, tankId, questKey, date);
-        if (existing.isPresent()) {
-            TankQuestCompletion c = existing.get();
-            if (c.getSource() == QuestCompletionSource.MANUAL) return;
-            return;
-        }
-        TankQuestCompletion c = new TankQuestCompletion();
-        c.setUserId(userId);
-        c.setTankId(tankId);
-        c.setQuestKey(questKey);
-        c.setQuestDate(date);
-        c.setSource(source);
-        c.setCompletedAt(Instant.now());
-        questRepository.save(c);
-    }
-
-    private List<AdvisorQuestDto> buildQuests(Long userId, Long tankId, LocalDate today) {
-        Map<String, TankQuestCompletion> completed = questRepository
-                .findByUserIdAndTankIdAndQuestDate(userId, tankId, today).stream()
+    private List<AdvisorQuestDto> buildQuests(List<TankQuestCompletion> completions) {
+        Map<String, TankQuestCompletion> completed = completions.stream()
                 .collect(Collectors.toMap(TankQuestCompletion::getQuestKey, c -> c, (a, b) -> a));
 
         List<AdvisorQuestDto> quests = new ArrayList<>();
@@ -305,11 +504,11 @@ public class TankAdvisorService {
         return warnings;
     }
 
-    private List<String> buildWeeklyReport(String mqttTankId) {
+    private List<String> buildWeeklyReport(TrendWindow temperatures, TrendWindow phs, TrendWindow turbidities) {
         List<String> lines = new ArrayList<>();
-        lines.add(trendSentence("Temperature", temperatureValues(mqttTankId, 160)));
-        lines.add(trendSentence("pH", phValues(mqttTankId, 160)));
-        lines.add(trendSentence("Water clarity", turbidityValues(mqttTankId, 160)));
+        lines.add(trendSentence("Temperature", temperatures));
+        lines.add(trendSentence("pH", phs));
+        lines.add(trendSentence("Water clarity", turbidities));
         return lines.stream().filter(s -> s != null && !s.isBlank()).limit(4).toList();
     }
 
@@ -336,32 +535,19 @@ public class TankAdvisorService {
         return actions.stream().distinct().limit(3).toList();
     }
 
-    private String trendSentence(String label, List<BigDecimal> values) {
-        if (values.size() < 4) return label + ": not enough data yet.";
-        int mid = values.size() / 2;
-        double first = values.subList(0, mid).stream().mapToDouble(BigDecimal::doubleValue).average().orElse(0);
-        double second = values.subList(mid, values.size()).stream().mapToDouble(BigDecimal::doubleValue).average().orElse(0);
+    private String trendSentence(String label, TrendWindow window) {
+        if (window == null || window.count() == null || window.count() < 4
+                || window.olderAverage() == null || window.newerAverage() == null) {
+            return label + ": not enough data yet.";
+        }
+        double first = window.olderAverage();
+        double second = window.newerAverage();
         double change = first == 0 ? 0 : ((second - first) / Math.abs(first)) * 100;
         if (Math.abs(change) < 2) return label + " stayed steady this week.";
         if (change > 0) return label + " went up a little this week.";
         return label + " went down a little this week.";
     }
 
-    private List<BigDecimal> temperatureValues(String tankId, int limit) {
-        return temperatureRepository.findByTankIdOrderByServerTimestampDesc(tankId, PageRequest.of(0, limit))
-                .stream().map(TemperatureReading::getTemperature).filter(Objects::nonNull).toList();
-    }
-
-    private List<BigDecimal> phValues(String tankId, int limit) {
-        return phRepository.findByTankIdOrderByServerTimestampDesc(tankId, PageRequest.of(0, limit))
-                .stream().map(PhReading::getPhValue).filter(Objects::nonNull).toList();
-    }
-
-    private List<BigDecimal> turbidityValues(String tankId, int limit) {
-        return turbidityRepository.findByTankIdOrderByServerTimestampDesc(tankId, PageRequest.of(0, limit))
-                .stream().map(TurbidityReading::getNtu).filter(Objects::nonNull).toList();
-    }
-
     private BigDecimal latestTemperature(String tankId) {
         return temperatureRepository.findTopByTankIdOrderByServerTimestampDesc(tankId)
                 .map(TemperatureReading::getTemperature).orElse(null);
@@ -376,11 +562,4 @@ public class TankAdvisorService {
         return turbidityRepository.findTopByTankIdOrderByServerTimestampDesc(tankId)
                 .map(TurbidityReading::getNtu).orElse(null);
     }
-
-    private boolean inRange(BigDecimal value, BigDecimal min, BigDecimal max) {
-        if (value == null) return false;
-        if (min != null && value.compareTo(min) < 0) return false;
-        if (max != null && value.compareTo(max) > 0) return false;
-        return true;
-    }
 }
@@ -0,0 +1,19 @@
+package com.fishmaster.backend.service;
+
+/**
+ * Published when anything AlertEngine derives thresholds from changes for a tank:
+ * the tank itself, its fish, or its stored alert thresholds.
+ * {@code mqttTankId} may be null when only the database id is known; {@code deleted} is set
+ * when the tank itself was deleted. StreamRelay forwards local events to the other nodes and
+ * republishes theirs with {@code relayed} set, so they are not forwarded again.
+ */
+public record TankConfigChangedEvent(Long tankId, String mqttTankId, boolean deleted, boolean relayed) {
+
+    public TankConfigChangedEvent(Long tankId, String mqttTankId, boolean deleted) {
+        this(tankId, mqttTankId, deleted, false);
+    }
+
+    public TankConfigChangedEvent(Long tankId, String mqttTankId) {
+        this(tankId, mqttTankId, false, false);
+    }
+}
@@ -3,9 +3,9 @@ package com.fishmaster.backend.service;
 import com.fishmaster.backend.model.AlertThreshold;
 import com.fishmaster.backend.model.Fish;
 import com.fishmaster.backend.model.Tank;
+import com.fishmaster.backend.util.DoubleMath;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.List;
 
 public final class TankHealthCalculator {
@@ -13,6 +13,12 @@ public final class TankHealthCalculator {
     public record MetricScore(int temperature, int ph, int turbidity) {}
     public record Thresholds(BigDecimal tempMin, BigDecimal tempMax, BigDecimal phMin, BigDecimal phMax, BigDecimal turbidityMax) {}
 
+    private static final BigDecimal DEFAULT_TEMP_MIN = new BigDecimal("22.0");
+    private static final BigDecimal DEFAULT_TEMP_MAX = new BigDecimal("28.0");
+    private static final BigDecimal DEFAULT_PH_MIN = new BigDecimal("6.5");
+    private static final BigDecimal DEFAULT_PH_MAX = new BigDecimal("7.5");
+    private static final BigDecimal DEFAULT_TURBIDITY_MAX = new BigDecimal("5.0");
+
     private TankHealthCalculator() {}
 
     public static Thresholds resolveThresholds(Tank tank, AlertThreshold stored) {
@@ -29,10 +35,10 @@ public final class TankHealthCalculator {
     }
 
     public static Thresholds defaultThresholdsFromFish(Tank tank) {
-        BigDecimal tempMin = new BigDecimal("22.0");
-        BigDecimal tempMax = new BigDecimal("28.0");
-        BigDecimal phMin = new BigDecimal("6.5");
-        BigDecimal phMax = new BigDecimal("7.5");
+        BigDecimal tempMin = DEFAULT_TEMP_MIN;
+        BigDecimal tempMax = DEFAULT_TEMP_MAX;
+        BigDecimal phMin = DEFAULT_PH_MIN;
+        BigDecimal phMax = DEFAULT_PH_MAX;
 
         List<Fish> fishList = tank != null ? tank.getFish() : List.of();
         if (!fishList.isEmpty()) {
@@ -42,28 +48,36 @@ public final class TankHealthCalculator {
             phMax = fishList.stream().map(f -> f.getFishType().getMaxPh()).min(BigDecimal::compareTo).orElse(phMax);
         }
 
-        return new Thresholds(tempMin, tempMax, phMin, phMax, new BigDecimal("5.0"));
+        return new Thresholds(tempMin, tempMax, phMin, phMax, DEFAULT_TURBIDITY_MAX);
     }
 
     public static int scoreValue(BigDecimal value, BigDecimal safeMin, BigDecimal safeMax, boolean lowerIsBetterOnly) {
-        if (value == null) return 50;
-        if (lowerIsBetterOnly && safeMax != null) {
-            return clamp(100 - value.divide(safeMax.max(BigDecimal.ONE), 4, RoundingMode.HALF_UP)
-                    .multiply(new BigDecimal("100")).intValue());
+        return scoreValue(DoubleMath.of(value), DoubleMath.of(safeMin), DoubleMath.of(safeMax), lowerIsBetterOnly);
+    }
+
+    /** Primitive form of {@link #scoreValue(BigDecimal, BigDecimal, BigDecimal, boolean)}; NaN means missing. */
+    public static int scoreValue(double value, double safeMin, double safeMax, boolean lowerIsBetterOnly) {
+        if (Double.isNaN(value)) return 50;
+        if (lowerIsBetterOnly && !Double.isNaN(safeMax)) {
+            // ratio rounded to 4 places, times 100, truncated: units of 1e-4 divided by 100
+            return clamp(100 - DoubleMath.halfUpUnits(value / Math.max(safeMax, 1.0), 4) / 100);
         }
-        if (safeMin == null || safeMax == null) return 70;
-        BigDecimal midpoint = safeMin.add(safeMax).divide(new BigDecimal("2"), 2, RoundingMode.HALF_UP);
-        BigDecimal span = safeMax.subtract(safeMin);
-        if (span.compareTo(BigDecimal.ZERO) <= 0) span = BigDecimal.ONE;
-        BigDecimal distance = value.subtract(midpoint).abs();
-        return clamp(100 - distance.divide(span.divide(new BigDecimal("2"), 4, RoundingMode.HALF_UP), 4, RoundingMode.HALF_UP)
-                .multiply(new BigDecimal("100")).intValue());
+        if (Double.isNaN(safeMin) || Double.isNaN(safeMax)) return 70;
+        double midpoint = DoubleMath.roundHalfUp((safeMin + safeMax) / 2, 2);
+        double span = safeMax - safeMin;
+        if (span <= 0) span = 1;
+        double distance = Math.abs(value - midpoint);
+        return clamp(100 - DoubleMath.halfUpUnits(distance / DoubleMath.roundHalfUp(span / 2, 4), 4) / 100);
     }
 
     public static MetricScore scoreReadings(BigDecimal temp, BigDecimal ph, BigDecimal turbidity, Thresholds t) {
-        int temperature = scoreValue(temp, t.tempMin(), t.tempMax(), false);
-        int phScore = scoreValue(ph, t.phMin(), t.phMax(), false);
-        int turbidityScore = scoreValue(turbidity, BigDecimal.ZERO, t.turbidityMax(), true);
+        return scoreReadings(DoubleMath.of(temp), DoubleMath.of(ph), DoubleMath.of(turbidity), t);
+    }
+
+    public static MetricScore scoreReadings(double temp, double ph, double turbidity, Thresholds t) {
+        int temperature = scoreValue(temp, DoubleMath.of(t.tempMin()), DoubleMath.of(t.tempMax()), false);
+        int phScore = scoreValue(ph, DoubleMath.of(t.phMin()), DoubleMath.of(t.phMax()), false);
+        int turbidityScore = scoreValue(turbidity, 0.0, DoubleMath.of(t.turbidityMax()), true);
         return new MetricScore(temperature, phScore, turbidityScore);
     }
 
@@ -89,4 +103,8 @@ public final class TankHealthCalculator {
     private static int clamp(int value) {
         return Math.min(100, Math.max(0, value));
     }
+
+    private static int clamp(long value) {
+        return (int) Math.min(100, Math.max(0, value));
+    }
 }
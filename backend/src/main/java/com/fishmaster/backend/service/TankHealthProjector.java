@@ -0,0 +1,293 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import com.fishmaster.backend.model.TankHealth;
+import com.fishmaster.backend.repositories.TankHealthRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the tank_health projection as readings arrive: each reading updates the tank's
+ * in-memory state (latest value and score per metric, overall percent, mood) on its telemetry
+ * lane, and tanks that changed are upserted in one JDBC batch every
+ * {@code telemetry.health-flush-interval-ms}, so the write rate follows the number of tanks rather
+ * than the reading rate. The same flush keeps tank_health_history at one row per tank and minute;
+ * rows past {@code telemetry.health-history-retention-days} are deleted hourly.
+ * <p>
+ * Assumes one ingesting node per tank (the lanes already do); state is seeded from the stored
+ * row on a tank's first reading after startup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TankHealthProjector {
+
+    private static final String UPSERT_HEALTH = """
+            INSERT INTO tank_health (tank_id, user_id, temperature, ph, turbidity, temperature_score, ph_score,
+                                     turbidity_score, health_percent, mood, reading_at, last_changed_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (tank_id) DO UPDATE SET
+                user_id = EXCLUDED.user_id, temperature = EXCLUDED.temperature, ph = EXCLUDED.ph,
+                turbidity = EXCLUDED.turbidity, temperature_score = EXCLUDED.temperature_score,
+                ph_score = EXCLUDED.ph_score, turbidity_score = EXCLUDED.turbidity_score,
+                health_percent = EXCLUDED.health_percent, mood = EXCLUDED.mood,
+                reading_at = EXCLUDED.reading_at, last_changed_at = EXCLUDED.last_changed_at
+            """;
+    private static final int[] HEALTH_TYPES = {Types.BIGINT, Types.BIGINT, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC,
+            Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    private static final String UPSERT_HISTORY = """
+            INSERT INTO tank_health_history (tank_id, minute, health_percent) VALUES (?, ?, ?)
+            ON CONFLICT (tank_id, minute) DO UPDATE SET health_percent = EXCLUDED.health_percent
+            """;
+    private static final int[] HISTORY_TYPES = {Types.BIGINT, Types.TIMESTAMP, Types.INTEGER};
+
+    private static final long HISTORY_PURGE_INTERVAL_MS = 3_600_000;
+
+    // Largest values tank_health holds: temperature and ph are NUMERIC(5,2), turbidity NUMERIC(7,2)
+    private static final BigDecimal MAX_TEMPERATURE_OR_PH = new BigDecimal("999.99");
+    private static final BigDecimal MAX_TURBIDITY = new BigDecimal("99999.99");
+
+    private final TankThresholdCache thresholdCache;
+    private final AlertStateTracker alertState;
+    private final TankHealthRepository healthRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TelemetryProperties props;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "health-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Map<Long, State> states = new ConcurrentHashMap<>();
+
+    /** One tank's projection; guarded by its own monitor (lane thread writes, flusher reads). */
+    private static final class State {
+        final Long tankId;
+        Long userId;
+        BigDecimal temperature;
+        BigDecimal ph;
+        BigDecimal turbidity;
+        TankHealthCalculator.MetricScore scores;
+        Integer healthPercent;
+        String mood;
+        Instant readingAt;
+        Instant lastChangedAt;
+        boolean dirty;
+        // Last minute and percent written to tank_health_history
+        Instant historyMinute;
+        Integer historyPercent;
+
+        State(Long tankId) {
+            this.tankId = tankId;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        long interval = Math.max(10, props.getHealthFlushIntervalMs());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        if (props.getHealthHistoryRetentionDays() > 0) {
+            flusher.scheduleWithFixedDelay(this::purgeHistoryQuietly, 60_000, HISTORY_PURGE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void onReading(String mqttTankId, String metric, BigDecimal value) {
+        if (value == null) return;
+        BigDecimal max = switch (metric) {
+            case "temperature", "ph" -> MAX_TEMPERATURE_OR_PH;
+            case "turbidity" -> MAX_TURBIDITY;
+            default -> null;
+        };
+        if (max == null) return;
+        if (value.setScale(2, RoundingMode.HALF_UP).abs().compareTo(max) > 0) {
+            // Could never be stored, and would fail every flush until the metric's next reading
+            log.debug("[HEALTH] Ignored {} {} for {}: out of range for tank_health", metric, value, mqttTankId);
+            return;
+        }
+        TankThresholdCache.ThresholdContext context = thresholdCache.get(mqttTankId);
+        if (context == null) return;
+
+        State state = states.computeIfAbsent(context.tankId(), this::load);
+        boolean critical = alertState.hasCritical(context.tankId());
+        Instant now = Instant.now();
+        synchronized (state) {
+            switch (metric) {
+                case "temperature" -> state.temperature = value;
+                case "ph" -> state.ph = value;
+                default -> state.turbidity = value;
+            }
+            // Thresholds come from the cache, so a config change is picked up by the next reading
+            TankHealthCalculator.MetricScore scores = TankHealthCalculator.scoreReadings(
+                    state.temperature, state.ph, state.turbidity, thresholds(context));
+            int percent = TankHealthCalculator.overallPercent(scores);
+            String mood = TankHealthCalculator.moodFromHealth(percent, critical);
+            if (state.healthPercent == null || state.healthPercent != percent || !mood.equals(state.mood)) {
+                state.lastChangedAt = now;
+            }
+            state.userId = context.userId();
+            state.scores = scores;
+            state.healthPercent = percent;
+            state.mood = mood;
+            state.readingAt = now;
+            state.dirty = true;
+        }
+    }
+
+    /** Writes every tank that changed since the last flush. */
+    public void flush() {
+        List<State> flushed = new ArrayList<>();
+        List<Object[]> healthRows = new ArrayList<>();
+        List<Object[]> historyRows = new ArrayList<>();
+        for (State state : states.values()) {
+            synchronized (state) {
+                if (!state.dirty) continue;
+                state.dirty = false;
+                flushed.add(state);
+                healthRows.add(new Object[]{
+                        state.tankId, state.userId, state.temperature, state.ph, state.turbidity,
+                        state.scores.temperature(), state.scores.ph(), state.scores.turbidity(), state.healthPercent,
+                        state.mood, Timestamp.from(state.readingAt), Timestamp.from(state.lastChangedAt)
+                });
+                // Rewrite the minute's row only when the percent moved; a new minute always gets one
+                Instant minute = state.readingAt.truncatedTo(ChronoUnit.MINUTES);
+                if (!minute.equals(state.historyMinute) || !state.healthPercent.equals(state.historyPercent)) {
+                    historyRows.add(new Object[]{state.tankId, Timestamp.from(minute), state.healthPercent});
+                    state.historyMinute = minute;
+                    state.historyPercent = state.healthPercent;
+                }
+            }
+        }
+        Set<Long> failed = new HashSet<>(write("tank_health", UPSERT_HEALTH, healthRows, HEALTH_TYPES));
+        failed.addAll(write("tank_health_history", UPSERT_HISTORY, historyRows, HISTORY_TYPES));
+        for (State state : flushed) {
+            if (!failed.contains(state.tankId)) continue;
+            // Retry with the next flush, whatever the tank's state is by then
+            synchronized (state) {
+                state.dirty = true;
+                state.historyMinute = null;
+            }
+        }
+    }
+
+    /**
+     * Forgets a deleted tank and removes its rows. The rows are deleted on the flusher thread,
+     * after any flush that picked the tank up before it was removed here.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTankConfigChanged(TankConfigChangedEvent event) {
+        if (!event.deleted() || event.tankId() == null) return;
+        Long tankId = event.tankId();
+        states.remove(tankId);
+        flusher.execute(() -> {
+            try {
+                jdbcTemplate.update("DELETE FROM tank_health WHERE tank_id = ?", tankId);
+                jdbcTemplate.update("DELETE FROM tank_health_history WHERE tank_id = ?", tankId);
+            } catch (Exception e) {
+                log.error("[HEALTH] Failed to delete health rows of tank {}: {}", tankId, e.getMessage(), e);
+            }
+        });
+    }
+
+    /** Deletes tank_health_history rows past {@code telemetry.health-history-retention-days}. */
+    void purgeHistory() {
+        Instant before = Instant.now().minus(Duration.ofDays(props.getHealthHistoryRetentionDays()));
+        int deleted = jdbcTemplate.update("DELETE FROM tank_health_history WHERE minute < ?", Timestamp.from(before));
+        if (deleted > 0) log.info("[HEALTH] Deleted {} health history rows before {}", deleted, before);
+    }
+
+    private State load(Long tankId) {
+        State state = new State(tankId);
+        TankHealth stored = healthRepository.findById(tankId).orElse(null);
+        if (stored != null) {
+            // Keep the other metrics' last values so one new reading does not score them as missing
+            state.temperature = stored.getTemperature();
+            state.ph = stored.getPh();
+            state.turbidity = stored.getTurbidity();
+            state.healthPercent = stored.getHealthPercent();
+            state.mood = stored.getMood();
+            state.lastChangedAt = stored.getLastChangedAt();
+        }
+        return state;
+    }
+
+    private static TankHealthCalculator.Thresholds thresholds(TankThresholdCache.ThresholdContext context) {
+        return new TankHealthCalculator.Thresholds(
+                context.temperature().low(), context.temperature().high(),
+                context.ph().low(), context.ph().high(),
+                context.turbidity().high());
+    }
+
+    /** @return the tank ids whose rows could not be written */
+    private List<Long> write(String table, String sql, List<Object[]> rows, int[] types) {
+        if (rows.isEmpty()) return List.of();
+        try {
+            jdbcTemplate.batchUpdate(sql, rows, types);
+            log.debug("[HEALTH] Upserted {} {} rows", rows.size(), table);
+            return List.of();
+        } catch (Exception e) {
+            // One bad row fails the whole batch; the other tanks must not wait for it
+            log.warn("[HEALTH] Batch of {} {} rows failed ({}); retrying one by one", rows.size(), table, e.getMessage());
+            List<Long> failed = new ArrayList<>();
+            for (Object[] row : rows) {
+                try {
+                    jdbcTemplate.update(sql, row, types);
+                } catch (Exception rowError) {
+                    log.error("[HEALTH] Failed to upsert {} row for tank {}: {}", table, row[0], rowError.getMessage());
+                    failed.add((Long) row[0]);
+                }
+            }
+            return failed;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("[HEALTH] Health flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void purgeHistoryQuietly() {
+        try {
+            purgeHistory();
+        } catch (Exception e) {
+            log.error("[HEALTH] Health history purge failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+}
@@ -11,9 +11,11 @@ import com.fishmaster.backend.repositories.TankRepository;
 import com.fishmaster.backend.repositories.WaterParametersRepository;
 import dto.FishDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
 import java.util.List;
 
 @Service
@@ -24,6 +26,7 @@ public class TankService {
     private final FishRepository fishRepository;
     private final FishTypeRepository fishTypeRepository;
     private final WaterParametersRepository waterParametersRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public List<Tank> getUserTanks(User user) {
@@ -32,19 +35,45 @@ public class TankService {
 
     public Tank createTank(User user, Tank tank) {
         tank.setUser(user);
-        return tankRepository.save(tank);
+        Tank saved = tankRepository.save(tank);
+        // A device may already be publishing under this mqttTankId (cached as unknown)
+        eventPublisher.publishEvent(new TankConfigChangedEvent(saved.getId(), saved.getMqttTankId()));
+        return saved;
     }
 
     public Tank updateTank(User user, Long tankId, Tank updatedTank) {
         Tank existingTank = requireOwnedTank(user, tankId);
         existingTank.setName(updatedTank.getName());
         existingTank.setSizeLiters(updatedTank.getSizeLiters());
-        return tankRepository.save(existingTank);
+        Tank saved = tankRepository.save(existingTank);
+        eventPublisher.publishEvent(new TankConfigChangedEvent(tankId, saved.getMqttTankId()));
+        return saved;
     }
 
     public void deleteTank(User user, Long tankId) {
         Tank existingTank = requireOwnedTank(user, tankId);
         tankRepository.delete(existingTank);
+        eventPublisher.publishEvent(new TankConfigChangedEvent(tankId, existingTank.getMqttTankId(), true));
+    }
+
+    /**
+     * The tank id readings are stored under (mqttTankId) for a telemetry query: the given one if
+     * one of the user's tanks publishes under it, otherwise the user's first tank when none is given.
+     */
+    @Transactional(readOnly = true)
+    public String resolveTelemetryTankId(User user, String tankId) {
+        List<Tank> tanks = tankRepository.findByUserId(user.getId());
+        if (tankId == null) {
+            return tanks.stream()
+                    .min(Comparator.comparing(Tank::getId))
+                    .map(Tank::getMqttTankId)
+                    .orElseThrow(() -> new IllegalArgumentException("Tank not found"));
+        }
+        return tanks.stream()
+                .map(Tank::getMqttTankId)
+                .filter(tankId::equals)
+                .findFirst()
+                .orElseThrow(() -> new SecurityException("Unauthorized to view this tank"));
     }
 
     @Transactional(readOnly = true)
@@ -80,6 +109,7 @@ public class TankService {
         tank.getFish().add(fish);
 
         recalculateWaterParametersIfAuto(tank);
+        eventPublisher.publishEvent(new TankConfigChangedEvent(tankId, tank.getMqttTankId()));
         return fish;
     }
 
@@ -100,6 +130,7 @@ public class TankService {
         tank.getFish().remove(fish);
         fishRepository.delete(fish);
         recalculateWaterParametersIfAuto(tank);
+        eventPublisher.publishEvent(new TankConfigChangedEvent(tankId, tank.getMqttTankId()));
     }
 
     private void recalculateWaterParametersIfAuto(Tank tank) {
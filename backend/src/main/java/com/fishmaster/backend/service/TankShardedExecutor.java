@@ -0,0 +1,188 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs telemetry work on N single-threaded lanes chosen by a hash of the tank id.
+ * Work for one tank always lands on the same lane, so it is processed in submission
+ * order (AlertEngine cooldown and auto-resolve depend on that), while different
+ * tanks proceed in parallel.
+ */
+@Service
+@DependsOn("telemetryBatchWriter") // lanes drain into the writer, so it must outlive them on shutdown
+@RequiredArgsConstructor
+@Slf4j
+public class TankShardedExecutor {
+
+    public record LaneStats(int lane, int backlog, long processed, double avgMillis, double maxMillis,
+                            Map<String, Double> hottestTanksMillis) {}
+
+    private static final int HOT_TANKS_REPORTED = 5;
+    // Tanks timed per lane; tank ids come from devices, so the table must not grow with them
+    private static final int HOT_TANKS_TRACKED = 32;
+
+    private final TelemetryProperties props;
+    private final MeterRegistry meterRegistry;
+
+    private final List<Lane> lanes = new ArrayList<>();
+
+    @PostConstruct
+    void start() {
+        int count = props.getLanes() > 0 ? props.getLanes() : Runtime.getRuntime().availableProcessors();
+        int capacity = Math.max(1, props.getLaneQueueCapacity());
+        for (int i = 0; i < count; i++) {
+            lanes.add(new Lane(i, capacity));
+        }
+        log.info("[TELEMETRY] Started {} tank lanes (queue capacity {})", count, capacity);
+    }
+
+    /**
+     * Queues {@code task} on the lane owning {@code tankId}. When that lane is full the caller
+     * waits for room rather than running the task itself, which would break per-tank order.
+     */
+    public void execute(String tankId, Runnable task) {
+        lanes.get(laneFor(tankId)).submit(tankId, task);
+    }
+
+    public int laneFor(String tankId) {
+        int h = tankId != null ? tankId.hashCode() : 0;
+        h ^= (h >>> 16);
+        return Math.floorMod(h, lanes.size());
+    }
+
+    public List<LaneStats> stats() {
+        return lanes.stream().map(Lane::stats).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : lanes) {
+            try {
+                if (!lane.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    log.warn("[TELEMETRY] Lane {} stopped with {} queued tasks", lane.index, lane.executor.getQueue().size());
+                    lane.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private final class Lane {
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final Timer timer;
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        // Space-saving top-k: a new tank replaces the least busy one and inherits its total, so
+        // totals may be overestimated but a tank that dominates the lane is always listed
+        private final Map<String, Long> nanosByTank = new HashMap<>();
+
+        Lane(int index, int capacity) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity),
+                    r -> {
+                        Thread t = new Thread(r, "telemetry-lane-" + index);
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    (r, pool) -> {
+                        if (pool.isShutdown()) {
+                            throw new RejectedExecutionException("Telemetry lane " + index + " is shut down");
+                        }
+                        try {
+                            pool.getQueue().put(r);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted while waiting for lane " + index, e);
+                        }
+                    });
+            String lane = String.valueOf(index);
+            Gauge.builder("telemetry.lane.backlog", executor, e -> e.getQueue().size())
+                    .tag("lane", lane)
+                    .description("Telemetry tasks waiting on this tank lane")
+                    .register(meterRegistry);
+            this.timer = Timer.builder("telemetry.lane.processing")
+                    .tag("lane", lane)
+                    .description("Time spent processing one reading on this tank lane")
+                    .register(meterRegistry);
+        }
+
+        void submit(String tankId, Runnable task) {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("[TELEMETRY] Lane {} task failed for tank={}: {}", index, tankId, e.getMessage(), e);
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    timer.record(elapsed, TimeUnit.NANOSECONDS);
+                    processed.increment();
+                    totalNanos.add(elapsed);
+                    maxNanos.accumulateAndGet(elapsed, Math::max);
+                    recordTank(tankId != null ? tankId : "", elapsed);
+                }
+            });
+        }
+
+        private void recordTank(String tankId, long elapsed) {
+            synchronized (nanosByTank) {
+                Long total = nanosByTank.get(tankId);
+                if (total == null && nanosByTank.size() >= HOT_TANKS_TRACKED) {
+                    Map.Entry<String, Long> coldest = Collections.min(nanosByTank.entrySet(), Map.Entry.comparingByValue());
+                    nanosByTank.remove(coldest.getKey());
+                    total = coldest.getValue();
+                }
+                nanosByTank.put(tankId, (total != null ? total : 0L) + elapsed);
+            }
+        }
+
+        LaneStats stats() {
+            long count = processed.sum();
+            Map<String, Double> hottest = new LinkedHashMap<>();
+            synchronized (nanosByTank) {
+                nanosByTank.entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                        .limit(HOT_TANKS_REPORTED)
+                        .forEach(e -> hottest.put(e.getKey(), e.getValue() / 1_000_000.0));
+            }
+            return new LaneStats(
+                    index,
+                    executor.getQueue().size(),
+                    count,
+                    count == 0 ? 0 : totalNanos.sum() / (double) count / 1_000_000.0,
+                    maxNanos.get() / 1_000_000.0,
+                    hottest
+            );
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import com.fishmaster.backend.model.AlertThreshold;
+import com.fishmaster.backend.model.Fish;
+import com.fishmaster.backend.model.Tank;
+import com.fishmaster.backend.repositories.AlertThresholdRepository;
+import com.fishmaster.backend.repositories.TankRepository;
+import com.fishmaster.backend.util.DoubleMath;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * mqttTankId -> everything AlertEngine needs per reading: tank and owner ids, the stored
+ * thresholds and the effective low/high per metric with fish-based defaults already resolved.
+ * Entries are dropped on {@link TankConfigChangedEvent}, including changes made on other nodes
+ * (relayed by StreamRelay), and otherwise reloaded after {@code telemetry.threshold-cache-ttl-ms}.
+ * Unknown tank ids are cached for {@code telemetry.unknown-tank-cache-ttl-ms} so unregistered
+ * devices do not cost a query per reading, yet a tank registered without an event is still
+ * picked up. Bounded LRU.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TankThresholdCache {
+
+    /** Effective limits for one metric; NaN in the double fields means no limit. */
+    public record MetricLimits(boolean enabled, BigDecimal low, BigDecimal high, double lowValue, double highValue) {
+        static MetricLimits of(boolean enabled, BigDecimal low, BigDecimal high) {
+            return new MetricLimits(enabled, low, high, DoubleMath.of(low), DoubleMath.of(high));
+        }
+    }
+
+    public record ThresholdContext(Long tankId, Long userId, AlertThreshold stored,
+                                   MetricLimits temperature, MetricLimits ph, MetricLimits turbidity) {
+        public MetricLimits limits(String metric) {
+            return switch (metric) {
+                case "temperature" -> temperature;
+                case "ph" -> ph;
+                case "turbidity" -> turbidity;
+                default -> null;
+            };
+        }
+    }
+
+    // Default thresholds if none configured
+    private static final BigDecimal DEFAULT_TEMP_MIN = new BigDecimal("22.0");
+    private static final BigDecimal DEFAULT_TEMP_MAX = new BigDecimal("28.0");
+    private static final BigDecimal DEFAULT_PH_MIN = new BigDecimal("6.5");
+    private static final BigDecimal DEFAULT_PH_MAX = new BigDecimal("7.5");
+    private static final BigDecimal DEFAULT_TURBIDITY_MAX = new BigDecimal("5.0");
+
+    private static final ThresholdContext NO_TANK = new ThresholdContext(null, null, null, null, null, null);
+
+    /** A cached context; NO_TANK entries expire sooner than the others. */
+    private record Entry(ThresholdContext context, long loadedAtNanos) {}
+
+    private final TankRepository tankRepository;
+    private final AlertThresholdRepository thresholdRepository;
+    private final TelemetryProperties props;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate loadTemplate;
+
+    private Map<String, Entry> entries;
+    // Bumped on every invalidation so a load that raced with one is not cached
+    private long generation;
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    void init() {
+        loadTemplate = new TransactionTemplate(transactionManager);
+        loadTemplate.setReadOnly(true);
+        int maxSize = Math.max(1, props.getThresholdCacheSize());
+        entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        hits = Counter.builder("alerts.threshold.cache").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("alerts.threshold.cache").tag("result", "miss").register(meterRegistry);
+        evictions = Counter.builder("alerts.threshold.cache.evictions").tag("cause", "size").register(meterRegistry);
+        Gauge.builder("alerts.threshold.cache.size", this, TankThresholdCache::size)
+                .description("Cached mqttTankId threshold contexts")
+                .register(meterRegistry);
+    }
+
+    /** @return the context, or null when no tank uses this mqttTankId */
+    public ThresholdContext get(String mqttTankId) {
+        ThresholdContext context = null;
+        long loadedAt;
+        synchronized (this) {
+            Entry entry = entries.get(mqttTankId);
+            if (entry != null) {
+                long ttlMs = entry.context() == NO_TANK ? props.getUnknownTankCacheTtlMs() : props.getThresholdCacheTtlMs();
+                if (System.nanoTime() - entry.loadedAtNanos() < TimeUnit.MILLISECONDS.toNanos(ttlMs)) {
+                    context = entry.context();
+                }
+            }
+            loadedAt = generation;
+        }
+        if (context != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            long loadedAtNanos = System.nanoTime();
+            context = loadTemplate.execute(status -> load(mqttTankId));
+            synchronized (this) {
+                if (generation == loadedAt) {
+                    entries.put(mqttTankId, new Entry(context, loadedAtNanos));
+                }
+            }
+        }
+        return context == NO_TANK ? null : context;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTankConfigChanged(TankConfigChangedEvent event) {
+        synchronized (this) {
+            generation++;
+            if (event.mqttTankId() != null) {
+                entries.remove(event.mqttTankId());
+            }
+            if (event.tankId() != null) {
+                entries.values().removeIf(e -> event.tankId().equals(e.context().tankId()));
+            }
+        }
+        log.debug("[ALERT] Threshold cache evicted tank={} mqttTankId={}", event.tankId(), event.mqttTankId());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private ThresholdContext load(String mqttTankId) {
+        Tank tank = tankRepository.findFirstByMqttTankId(mqttTankId).orElse(null);
+        if (tank == null) return NO_TANK;
+
+        AlertThreshold t = thresholdRepository.findByTankId(tank.getId()).orElse(null);
+        boolean global = t == null || Boolean.TRUE.equals(t.getGlobalAlertsEnabled());
+        MetricLimits temperature;
+        MetricLimits ph;
+        MetricLimits turbidity;
+        if (t != null) {
+            temperature = MetricLimits.of(global && Boolean.TRUE.equals(t.getTemperatureEnabled()), t.getTemperatureMin(), t.getTemperatureMax());
+            ph = MetricLimits.of(global && Boolean.TRUE.equals(t.getPhEnabled()), t.getPhMin(), t.getPhMax());
+            turbidity = MetricLimits.of(global && Boolean.TRUE.equals(t.getTurbidityEnabled()), null, t.getTurbidityMax()); // turbidity has no min threshold
+        } else {
+            // Fall back to fish-type based safe ranges
+            List<Fish> fish = tank.getFish();
+            temperature = MetricLimits.of(true,
+                    fishOverlap(fish, f -> f.getFishType().getMinTemp(), true, DEFAULT_TEMP_MIN),
+                    fishOverlap(fish, f -> f.getFishType().getMaxTemp(), false, DEFAULT_TEMP_MAX));
+            ph = MetricLimits.of(true,
+                    fishOverlap(fish, f -> f.getFishType().getMinPh(), true, DEFAULT_PH_MIN),
+                    fishOverlap(fish, f -> f.getFishType().getMaxPh(), false, DEFAULT_PH_MAX));
+            turbidity = MetricLimits.of(true, null, DEFAULT_TURBIDITY_MAX);
+        }
+        return new ThresholdContext(tank.getId(), tank.getUser().getId(), t, temperature, ph, turbidity);
+    }
+
+    /** Range every fish tolerates: the highest minimum or the lowest maximum. */
+    private static BigDecimal fishOverlap(List<Fish> fish, Function<Fish, BigDecimal> bound, boolean highest,
+                                          BigDecimal fallback) {
+        if (fish == null || fish.isEmpty()) return fallback;
+        try {
+            return fish.stream()
+                    .map(bound)
+                    .reduce((a, b) -> highest ? a.max(b) : a.min(b))
+                    .orElse(fallback);
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+}
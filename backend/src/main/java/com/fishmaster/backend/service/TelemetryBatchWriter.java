@@ -0,0 +1,210 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import com.fishmaster.backend.model.PhReading;
+import com.fishmaster.backend.model.TemperatureReading;
+import com.fishmaster.backend.model.TurbidityReading;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage for sensor readings. Parsed readings are buffered in memory and
+ * written as JDBC batch inserts once either the batch size or the flush interval is reached,
+ * instead of one transaction and one INSERT per reading. The rows that were written are then
+ * merged into the minute/hour/day rollups ({@link ReadingRollupService}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TelemetryBatchWriter {
+
+    private static final String INSERT_TEMPERATURE =
+            "INSERT INTO temperature_readings (tank_id, temperature, device_timestamp, server_timestamp) VALUES (?, ?, ?, ?)";
+    private static final int[] TEMPERATURE_TYPES = {Types.VARCHAR, Types.NUMERIC, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    private static final String INSERT_TURBIDITY =
+            "INSERT INTO turbidity_readings (tank_id, source_client_id, raw_adc, ntu, server_timestamp) VALUES (?, ?, ?, ?, ?)";
+    private static final int[] TURBIDITY_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.NUMERIC, Types.TIMESTAMP};
+
+    private static final String INSERT_PH =
+            "INSERT INTO ph_readings (tank_id, ph_voltage, ph_value, internal_chip_temp, uptime_ms, server_timestamp) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final int[] PH_TYPES = {Types.VARCHAR, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.BIGINT, Types.TIMESTAMP};
+
+    private enum Kind { TEMPERATURE, TURBIDITY, PH }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TelemetryProperties props;
+    private final ReadingRollupService rollupService;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "telemetry-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private List<Object[]> temperatureRows = new ArrayList<>();
+    private List<Object[]> turbidityRows = new ArrayList<>();
+    private List<Object[]> phRows = new ArrayList<>();
+    private int pending;
+    private boolean flushScheduled;
+
+    @PostConstruct
+    void start() {
+        long interval = Math.max(10, props.getFlushIntervalMs());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void enqueue(TemperatureReading r) {
+        add(Kind.TEMPERATURE, new Object[]{
+                r.getTankId(), r.getTemperature(), toTimestamp(r.getDeviceTimestamp()), toTimestamp(r.getServerTimestamp())
+        });
+    }
+
+    public void enqueue(TurbidityReading r) {
+        add(Kind.TURBIDITY, new Object[]{
+                r.getTankId(), r.getSourceClientId(), r.getRawAdc(), r.getNtu(), toTimestamp(r.getServerTimestamp())
+        });
+    }
+
+    public void enqueue(PhReading r) {
+        add(Kind.PH, new Object[]{
+                r.getTankId(), r.getPhVoltage(), r.getPhValue(), r.getInternalChipTemp(), r.getUptimeMs(),
+                toTimestamp(r.getServerTimestamp())
+        });
+    }
+
+    public int getPending() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    private void add(Kind kind, Object[] row) {
+        boolean flushInline = false;
+        synchronized (lock) {
+            // Buffers are swapped on flush, so resolve the live list under the lock
+            switch (kind) {
+                case TEMPERATURE -> temperatureRows.add(row);
+                case TURBIDITY -> turbidityRows.add(row);
+                case PH -> phRows.add(row);
+            }
+            pending++;
+            if (pending >= props.getMaxPending()) {
+                flushInline = true;
+            } else if (pending >= props.getBatchSize() && !flushScheduled) {
+                flushScheduled = true;
+                flusher.execute(this::flushQuietly);
+            }
+        }
+        if (flushInline) {
+            log.warn("[TELEMETRY] Write-behind buffer full ({} readings); flushing on caller thread", props.getMaxPending());
+            flushQuietly();
+        }
+    }
+
+    /**
+     * Writes everything buffered so far. Flushes are serialized so batches reach the
+     * database in the order the readings were enqueued.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<Object[]> temperature;
+            List<Object[]> turbidity;
+            List<Object[]> ph;
+            synchronized (lock) {
+                temperature = temperatureRows;
+                turbidity = turbidityRows;
+                ph = phRows;
+                temperatureRows = new ArrayList<>();
+                turbidityRows = new ArrayList<>();
+                phRows = new ArrayList<>();
+                pending = 0;
+                flushScheduled = false;
+            }
+            ReadingRollupService.Batch rollup = new ReadingRollupService.Batch();
+            addToRollup(rollup, "temperature", write("temperature", INSERT_TEMPERATURE, temperature, TEMPERATURE_TYPES), 1, 3);
+            addToRollup(rollup, "turbidity", write("turbidity", INSERT_TURBIDITY, turbidity, TURBIDITY_TYPES), 3, 4);
+            addToRollup(rollup, "ph", write("pH", INSERT_PH, ph, PH_TYPES), 2, 5);
+            rollupService.write(rollup);
+        }
+    }
+
+    /**
+     * Writes the rows in batches and returns the ones that were stored. A batch that fails is
+     * retried row by row, so a bad reading (e.g. a value too large for its column) only loses
+     * itself and the batches after it are still written.
+     */
+    private List<Object[]> write(String label, String sql, List<Object[]> rows, int[] types) {
+        if (rows.isEmpty()) return rows;
+        int batchSize = Math.max(1, props.getBatchSize());
+        List<Object[]> written = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Object[]> chunk = rows.subList(from, Math.min(rows.size(), from + batchSize));
+            try {
+                // One round trip per chunk; PostgreSQL runs the batch as one implicit transaction
+                jdbcTemplate.batchUpdate(sql, chunk, types);
+                written.addAll(chunk);
+            } catch (Exception e) {
+                log.warn("[TELEMETRY] Batch of {} {} readings failed ({}); retrying one by one",
+                        chunk.size(), label, e.getMessage());
+                for (Object[] row : chunk) {
+                    try {
+                        jdbcTemplate.update(sql, row, types);
+                        written.add(row);
+                    } catch (Exception rowError) {
+                        log.error("[TELEMETRY] Dropped {} reading for {}: {}", label, row[0], rowError.getMessage());
+                    }
+                }
+            }
+        }
+        log.debug("[TELEMETRY] Flushed {} of {} {} readings", written.size(), rows.size(), label);
+        return written;
+    }
+
+    private static void addToRollup(ReadingRollupService.Batch rollup, String metric, List<Object[]> rows,
+                                    int valueIndex, int timestampIndex) {
+        for (Object[] row : rows) {
+            Timestamp at = (Timestamp) row[timestampIndex];
+            rollup.add((String) row[0], metric, (BigDecimal) row[valueIndex], at != null ? at.toInstant() : null);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("[TELEMETRY] Write-behind flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+}
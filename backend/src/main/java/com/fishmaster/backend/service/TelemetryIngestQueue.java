@@ -0,0 +1,150 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import com.fishmaster.backend.config.TelemetryProperties.OverflowPolicy;
+import com.fishmaster.backend.util.BoundedRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded hand-off between the MQTT client thread and telemetry processing.
+ * The Paho callback only enqueues; a single dispatcher thread drains the ring buffer and runs
+ * the handler, so messages reach the per-tank lanes in arrival order. The dispatcher parks while
+ * the queue is empty and is unparked by the producer that makes it non-empty. What happens when
+ * the ring is full is decided by {@link OverflowPolicy}.
+ */
+@Slf4j
+public class TelemetryIngestQueue {
+
+    public record Message(String topic, byte[] payload) {}
+
+    // BLOCK: backoff cap while the producer waits for room in a full ring
+    private static final long MAX_FULL_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final BoundedRingBuffer<Message> ring;
+    private final Queue<Message> spill = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger spillSize = new AtomicInteger();
+    private final OverflowPolicy policy;
+    private final int spillCapacity;
+    private final BiConsumer<String, byte[]> handler;
+    private final Thread dispatcher;
+    private final Counter droppedOldest;
+    private final Counter droppedSpillFull;
+    private final Counter processed;
+    private volatile boolean running = true;
+    // Set by the dispatcher before it parks; producers only unpark it while this is set
+    private volatile boolean idle;
+
+    public TelemetryIngestQueue(TelemetryProperties props, MeterRegistry meterRegistry, BiConsumer<String, byte[]> handler) {
+        this.ring = new BoundedRingBuffer<>(Math.max(2, props.getIngestQueueCapacity()));
+        this.policy = props.getOverflowPolicy() != null ? props.getOverflowPolicy() : OverflowPolicy.BLOCK;
+        this.spillCapacity = Math.max(0, props.getSpillCapacity());
+        this.handler = handler;
+
+        Gauge.builder("telemetry.ingest.queue.depth", ring, BoundedRingBuffer::size)
+                .description("MQTT messages waiting in the ingest ring buffer")
+                .register(meterRegistry);
+        Gauge.builder("telemetry.ingest.spill.depth", spillSize, AtomicInteger::get)
+                .description("MQTT messages parked in the overflow spill queue")
+                .register(meterRegistry);
+        this.droppedOldest = Counter.builder("telemetry.ingest.dropped").tag("reason", "drop_oldest").register(meterRegistry);
+        this.droppedSpillFull = Counter.builder("telemetry.ingest.dropped").tag("reason", "spill_full").register(meterRegistry);
+        this.processed = Counter.builder("telemetry.ingest.processed").register(meterRegistry);
+
+        dispatcher = new Thread(this::drainLoop, "telemetry-ingest");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("[MQTT] Ingest queue started: capacity={}, overflow={}", ring.capacity(), policy);
+    }
+
+    /** Called on the MQTT client thread; never runs the handler itself. */
+    public void submit(String topic, byte[] payload) {
+        Message message = new Message(topic, payload);
+        switch (policy) {
+            case BLOCK -> {
+                long parkNanos = 1_000;
+                while (!ring.offer(message)) {
+                    if (!running) return;
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(MAX_FULL_PARK_NANOS, parkNanos * 2);
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!ring.offer(message)) {
+                    if (ring.poll() != null) {
+                        droppedOldest.increment();
+                    }
+                }
+            }
+            case SPILL -> {
+                // Once anything is spilled, newer messages queue behind it to keep arrival order
+                if (spillSize.get() != 0 || !ring.offer(message)) {
+                    if (spillSize.incrementAndGet() > spillCapacity) {
+                        spillSize.decrementAndGet();
+                        droppedSpillFull.increment();
+                        return;
+                    }
+                    spill.offer(message);
+                }
+            }
+        }
+        if (idle) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    public int depth() {
+        return ring.size() + spillSize.get();
+    }
+
+    private void drainLoop() {
+        while (running || !ring.isEmpty() || spillSize.get() > 0) {
+            Message message = ring.poll();
+            if (message == null) {
+                message = spill.poll();
+                if (message != null) spillSize.decrementAndGet();
+            }
+            if (message == null) {
+                if (!running) break;
+                idle = true;
+                // Re-check after announcing: a producer that enqueued before seeing the flag is caught here
+                if (running && ring.isEmpty() && spillSize.get() == 0) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            try {
+                handler.accept(message.topic(), message.payload());
+            } catch (Exception e) {
+                log.error("[MQTT] Failed processing message from {}: {}", message.topic(), e.getMessage(), e);
+            } finally {
+                processed.increment();
+            }
+        }
+    }
+
+    /** Stops accepting work and gives the dispatcher a bounded window to drain what is queued. */
+    public void shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        try {
+            unit.timedJoin(dispatcher, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int left = depth();
+        if (left > 0) {
+            log.warn("[MQTT] Ingest queue stopped with {} unprocessed messages", left);
+        }
+    }
+}
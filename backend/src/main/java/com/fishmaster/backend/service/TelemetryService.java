@@ -5,37 +5,32 @@ import com.fishmaster.backend.model.PhReading;
 import com.fishmaster.backend.model.TemperatureReading;
 import com.fishmaster.backend.model.TurbidityReading;
 import com.fishmaster.backend.repositories.DeviceInfoSnapshotRepository;
-import com.fishmaster.backend.repositories.TemperatureReadingRepository;
-import com.fishmaster.backend.repositories.PhReadingRepository;
-import com.fishmaster.backend.repositories.TurbidityReadingRepository;
+import com.fishmaster.backend.util.SensorPayloadDecoder;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TelemetryService {
 
-    private final TemperatureReadingRepository temperatureRepository;
-    private final TurbidityReadingRepository turbidityRepository;
+    private final TelemetryBatchWriter batchWriter;
+    private final TankShardedExecutor laneExecutor;
     private final DeviceInfoSnapshotRepository deviceInfoRepository;
-    private final PhReadingRepository phRepository;
     private final AlertEngine alertEngine;
+    private final AutoQuestService autoQuests;
+    private final TankHealthProjector healthProjector;
+    private final StreamHub streamHub;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final java.util.Set<SseEmitter> tempEmitters = java.util.Collections.synchronizedSet(new java.util.HashSet<>());
-    private final java.util.Set<SseEmitter> turbidityEmitters = java.util.Collections.synchronizedSet(new java.util.HashSet<>());
-    private final java.util.Set<SseEmitter> phEmitters = java.util.Collections.synchronizedSet(new java.util.HashSet<>());
-
     @Value("${TELEMETRY_DEFAULT_TANK_ID:tank1}")
     private String defaultTankId;
 
@@ -43,140 +38,91 @@ public class TelemetryService {
     private double turbidityAlertThreshold;
 
     public void handleTemperaturePayload(String payload) {
+        handleTemperaturePayload(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void handleTemperaturePayload(byte[] payload) {
         try {
-            JsonNode node = objectMapper.readTree(payload);
-            JsonNode tempNode = node.get("temperature");
-            if (tempNode == null || !tempNode.isNumber()) {
-                log.warn("[MQTT] Received payload missing numeric 'temperature': {}", payload);
+            SensorPayloadDecoder.Temperature decoded = SensorPayloadDecoder.temperature();
+            if (!decoded.decode(payload)) {
+                log.warn("[MQTT] Received payload missing numeric 'temperature': {}", asText(payload));
                 return;
             }
 
-            BigDecimal value = tempNode.decimalValue();
-
             TemperatureReading reading = new TemperatureReading();
-            reading.setTemperature(value);
-            reading.setTankId(Optional.ofNullable(node.path("tankId").asText(null))
-                    .filter(s -> !s.isBlank()).orElse(defaultTankId));
+            reading.setTemperature(decoded.getTemperature());
+            reading.setTankId(tankIdOrDefault(decoded.getTankId()));
 
-            if (node.has("timestamp")) {
+            if (decoded.hasTimestamp()) {
                 try {
-                    reading.setDeviceTimestamp(Instant.parse(node.get("timestamp").asText()));
+                    reading.setDeviceTimestamp(Instant.parse(decoded.getTimestamp()));
                 } catch (Exception ignored) { }
             }
 
             // serverTimestamp is initialized in entity
-            TemperatureReading saved = temperatureRepository.save(reading);
-            log.info("[TELEMETRY] Stored temperature reading: tank={}, value={}, id={}",
-                    saved.getTankId(), saved.getTemperature(), saved.getId());
-            try {
-                alertEngine.evaluate(saved.getTankId(), "temperature", saved.getTemperature());
-            } catch (Exception e) {
-                log.warn("[ALERT] Alert evaluation failed for temperature: {}", e.getMessage());
-            }
-            emitTemperature(saved);
+            laneExecutor.execute(reading.getTankId(), () -> processTemperature(reading));
         } catch (Exception ex) {
-            log.error("[TELEMETRY] Failed to parse/store payload: {}", payload, ex);
+            log.error("[TELEMETRY] Failed to parse/queue payload: {}", asText(payload), ex);
         }
     }
 
-    public SseEmitter registerEmitter() {
-        SseEmitter emitter = new SseEmitter(0L); // no timeout, client controls
-        tempEmitters.add(emitter);
-        emitter.onCompletion(() -> tempEmitters.remove(emitter));
-        emitter.onTimeout(() -> tempEmitters.remove(emitter));
-        return emitter;
-    }
-
-    private void emitTemperature(TemperatureReading reading) {
-        synchronized (tempEmitters) {
-            java.util.Iterator<SseEmitter> it = tempEmitters.iterator();
-            while (it.hasNext()) {
-                SseEmitter emitter = it.next();
-                try {
-                    emitter.send(SseEmitter.event()
-                            .name("temperature")
-                            .data(reading));
-                } catch (Exception e) {
-                    it.remove();
-                }
-            }
-        }
+    private void processTemperature(TemperatureReading reading) {
+        // The row is written by the next batch flush
+        batchWriter.enqueue(reading);
+        log.debug("[TELEMETRY] Queued temperature reading: tank={}, value={}",
+                reading.getTankId(), reading.getTemperature());
+        evaluate(reading.getTankId(), "temperature", reading.getTemperature());
+        streamHub.publishTelemetry("temperature", reading.getTankId(), reading);
     }
 
     // --- Turbidity handling ---
     public void handleTurbidityPayload(String payload, String sourceClientId) {
+        handleTurbidityPayload(payload.getBytes(StandardCharsets.UTF_8), sourceClientId);
+    }
+
+    public void handleTurbidityPayload(byte[] payload, String sourceClientId) {
         try {
-            JsonNode node = objectMapper.readTree(payload);
-            JsonNode rawNode = node.get("raw_adc");
-            JsonNode ntuNode = node.get("ntu");
-            if (rawNode == null || !rawNode.isInt() || ntuNode == null || !ntuNode.isNumber()) {
-                log.warn("[MQTT] Received payload missing required turbidity fields: {}", payload);
+            SensorPayloadDecoder.Turbidity decoded = SensorPayloadDecoder.turbidity();
+            if (!decoded.decode(payload)) {
+                log.warn("[MQTT] Received payload missing required turbidity fields: {}", asText(payload));
                 return;
             }
 
             TurbidityReading reading = new TurbidityReading();
-            reading.setRawAdc(rawNode.asInt());
-            reading.setNtu(ntuNode.decimalValue());
+            reading.setRawAdc(decoded.getRawAdc());
+            reading.setNtu(decoded.getNtu());
             reading.setSourceClientId(sourceClientId);
-            reading.setTankId(java.util.Optional.ofNullable(node.path("tankId").asText(null))
-                    .filter(s -> !s.isBlank()).orElse(defaultTankId));
+            reading.setTankId(tankIdOrDefault(decoded.getTankId()));
 
-            TurbidityReading saved = turbidityRepository.save(reading);
-            log.info("[TELEMETRY] Stored turbidity reading: tank={}, ntu={}, raw={}, id={}",
-                    saved.getTankId(), saved.getNtu(), saved.getRawAdc(), saved.getId());
-            try {
-                alertEngine.evaluate(saved.getTankId(), "turbidity", saved.getNtu());
-            } catch (Exception e) {
-                log.warn("[ALERT] Alert evaluation failed for turbidity: {}", e.getMessage());
-            }
-            emitTurbidity(saved);
+            laneExecutor.execute(reading.getTankId(), () -> processTurbidity(reading));
         } catch (Exception ex) {
-            log.error("[TELEMETRY] Failed to parse/store turbidity payload: {}", payload, ex);
+            log.error("[TELEMETRY] Failed to parse/queue turbidity payload: {}", asText(payload), ex);
         }
     }
 
-    public SseEmitter registerTurbidityEmitter() {
-        SseEmitter emitter = new SseEmitter(0L);
-        turbidityEmitters.add(emitter);
-        emitter.onCompletion(() -> turbidityEmitters.remove(emitter));
-        emitter.onTimeout(() -> turbidityEmitters.remove(emitter));
-        return emitter;
-    }
-
-    private void emitTurbidity(TurbidityReading reading) {
-        synchronized (turbidityEmitters) {
-            java.util.Iterator<SseEmitter> it = turbidityEmitters.iterator();
-            while (it.hasNext()) {
-                SseEmitter emitter = it.next();
-                try {
-                    emitter.send(SseEmitter.event()
-                            .name("turbidity")
-                            .data(reading));
-                } catch (Exception e) {
-                    it.remove();
-                }
-            }
-        }
+    private void processTurbidity(TurbidityReading reading) {
+        batchWriter.enqueue(reading);
+        log.debug("[TELEMETRY] Queued turbidity reading: tank={}, ntu={}, raw={}",
+                reading.getTankId(), reading.getNtu(), reading.getRawAdc());
+        evaluate(reading.getTankId(), "turbidity", reading.getNtu());
+        streamHub.publishTelemetry("turbidity", reading.getTankId(), reading);
     }
 
     // --- pH handling ---
     public void handlePhPayload(String payload) {
-        try {
-            JsonNode node = objectMapper.readTree(payload);
-
-            // Accept standard keys first
-            JsonNode vNode = node.get("ph_voltage");
-            JsonNode pNode = node.get("ph_value");
-
-            // Fallback aliases commonly used by devices/firmware
-            if (pNode == null) pNode = firstPresent(node, "ph", "pH", "phValue");
-            if (vNode == null) vNode = firstPresent(node, "voltage", "v", "phVolt");
+        handlePhPayload(payload.getBytes(StandardCharsets.UTF_8));
+    }
 
-            java.math.BigDecimal phValue = parseDecimalNode(pNode);
-            java.math.BigDecimal phVoltage = parseDecimalNode(vNode);
+    public void handlePhPayload(byte[] payload) {
+        try {
+            // Standard keys first, then aliases commonly used by devices/firmware
+            SensorPayloadDecoder.Ph decoded = SensorPayloadDecoder.ph();
+            decoded.decode(payload);
+            BigDecimal phValue = decoded.getPhValue();
+            BigDecimal phVoltage = decoded.getPhVoltage();
 
             if (phValue == null && phVoltage == null) {
-                log.warn("[MQTT] pH payload missing/invalid 'ph_value' and 'ph_voltage': {}", payload);
+                log.warn("[MQTT] pH payload missing/invalid 'ph_value' and 'ph_voltage': {}", asText(payload));
                 return;
             }
 
@@ -185,92 +131,60 @@ public class TelemetryService {
                 double v = phValue.doubleValue();
                 if (v < 0.0) v = 0.0;
                 if (v > 14.0) v = 14.0;
-                phValue = java.math.BigDecimal.valueOf(v);
+                phValue = BigDecimal.valueOf(v);
             }
 
             PhReading reading = new PhReading();
             if (phVoltage != null) reading.setPhVoltage(phVoltage);
             if (phValue != null) reading.setPhValue(phValue);
+            if (decoded.getInternalChipTemp() != null) reading.setInternalChipTemp(decoded.getInternalChipTemp());
+            if (decoded.getUptimeMs() != null) reading.setUptimeMs(decoded.getUptimeMs());
+            reading.setTankId(tankIdOrDefault(decoded.getTankId()));
 
-            if (node.has("internal_chip_temp") && node.get("internal_chip_temp").isNumber()) {
-                reading.setInternalChipTemp(node.get("internal_chip_temp").decimalValue());
-            } else if (node.has("chip_temp") && node.get("chip_temp").isNumber()) {
-                reading.setInternalChipTemp(node.get("chip_temp").decimalValue());
-            }
-
-            if (node.has("uptime_ms") && node.get("uptime_ms").canConvertToLong()) {
-                reading.setUptimeMs(node.get("uptime_ms").asLong());
-            }
-
-            reading.setTankId(java.util.Optional.ofNullable(node.path("tankId").asText(null))
-                    .filter(s -> !s.isBlank()).orElse(defaultTankId));
-
-            PhReading saved = phRepository.save(reading);
-            log.info("[TELEMETRY] Stored pH reading: tank={}, ph={}, voltage={}, id={}",
-                    saved.getTankId(), saved.getPhValue(), saved.getPhVoltage(), saved.getId());
-            try {
-                if (saved.getPhValue() != null) {
-                    alertEngine.evaluate(saved.getTankId(), "ph", saved.getPhValue());
-                }
-            } catch (Exception e) {
-                log.warn("[ALERT] Alert evaluation failed for pH: {}", e.getMessage());
-            }
-            emitPh(saved);
+            laneExecutor.execute(reading.getTankId(), () -> processPh(reading));
         } catch (Exception ex) {
-            log.error("[TELEMETRY] Failed to parse/store pH payload: {}", payload, ex);
+            log.error("[TELEMETRY] Failed to parse/queue pH payload: {}", asText(payload), ex);
         }
     }
 
-    private JsonNode firstPresent(JsonNode node, String... keys) {
-        for (String k : keys) {
-            JsonNode n = node.get(k);
-            if (n != null && !n.isNull()) return n;
+    private void processPh(PhReading reading) {
+        batchWriter.enqueue(reading);
+        log.debug("[TELEMETRY] Queued pH reading: tank={}, ph={}, voltage={}",
+                reading.getTankId(), reading.getPhValue(), reading.getPhVoltage());
+        if (reading.getPhValue() != null) {
+            evaluate(reading.getTankId(), "ph", reading.getPhValue());
         }
-        return null;
+        streamHub.publishTelemetry("ph", reading.getTankId(), reading);
     }
 
-    private java.math.BigDecimal parseDecimalNode(JsonNode n) {
+    /**
+     * Alerts, the day's auto quests and the tank_health projection (after alerts, whose critical
+     * state sets the mood); a failure in any of them is logged and does not stop the stream.
+     */
+    private void evaluate(String tankId, String metric, BigDecimal value) {
         try {
-            if (n == null || n.isNull()) return null;
-            if (n.isNumber()) return n.decimalValue();
-            if (n.isTextual()) {
-                String s = n.asText();
-                if (s == null) return null;
-                s = s.trim();
-                if (s.isEmpty()) return null;
-                // Accept comma as decimal separator occasionally used, replace with dot
-                s = s.replace(',', '.');
-                double d = Double.parseDouble(s);
-                if (Double.isNaN(d) || Double.isInfinite(d)) return null;
-                return java.math.BigDecimal.valueOf(d);
-            }
-        } catch (Exception ignore) {
+            alertEngine.evaluate(tankId, metric, value);
+        } catch (Exception e) {
+            log.warn("[ALERT] Alert evaluation failed for {}: {}", metric, e.getMessage());
+        }
+        try {
+            autoQuests.onReading(tankId, metric, value);
+        } catch (Exception e) {
+            log.warn("[QUEST] Auto-quest check failed for {}: {}", metric, e.getMessage());
+        }
+        try {
+            healthProjector.onReading(tankId, metric, value);
+        } catch (Exception e) {
+            log.warn("[HEALTH] Health projection failed for {}: {}", metric, e.getMessage());
         }
-        return null;
     }
 
-    public SseEmitter registerPhEmitter() {
-        SseEmitter emitter = new SseEmitter(0L);
-        phEmitters.add(emitter);
-        emitter.onCompletion(() -> phEmitters.remove(emitter));
-        emitter.onTimeout(() -> phEmitters.remove(emitter));
-        return emitter;
+    private String tankIdOrDefault(String tankId) {
+        return tankId != null && !tankId.isBlank() ? tankId : defaultTankId;
     }
 
-    private void emitPh(PhReading reading) {
-        synchronized (phEmitters) {
-            java.util.Iterator<SseEmitter> it = phEmitters.iterator();
-            while (it.hasNext()) {
-                SseEmitter emitter = it.next();
-                try {
-                    emitter.send(SseEmitter.event()
-                            .name("ph")
-                            .data(reading));
-                } catch (Exception e) {
-                    it.remove();
-                }
-            }
-        }
+    private static String asText(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
     }
 
     // --- Device info handling ---
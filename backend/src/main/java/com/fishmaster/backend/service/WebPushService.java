@@ -3,24 +3,65 @@ package com.fishmaster.backend.service;
 import com.fishmaster.backend.model.Alert;
 import com.fishmaster.backend.model.PushSubscription;
 import com.fishmaster.backend.repositories.PushSubscriptionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import nl.martijndwars.webpush.AbstractPushService;
+import nl.martijndwars.webpush.Encoding;
+import nl.martijndwars.webpush.HttpRequest;
 import nl.martijndwars.webpush.Notification;
-import nl.martijndwars.webpush.PushService;
-import nl.martijndwars.webpush.Subscription;
+import nl.martijndwars.webpush.Utils;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
 import java.security.Security;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Web Push delivery. One VAPID-configured sender and one {@link HttpClient} live for the whole
+ * application, so keys are parsed once and connections to the push services (FCM, Mozilla, Apple)
+ * are reused. A user's subscriptions are sent to concurrently, bounded by a global permit count.
+ */
 @Service
 @Slf4j
 public class WebPushService {
 
+    /** Exposes the library's request preparation (encryption + VAPID header) without its HTTP client. */
+    static final class VapidSender extends AbstractPushService<VapidSender> {
+        HttpRequest prepare(Notification notification) throws Exception {
+            return prepareRequest(notification, Encoding.AESGCM);
+        }
+    }
+
+    /** Decoded subscriber key material; kept as long as the stored strings are unchanged. */
+    private record SubscriberKeys(String p256dh, String auth, PublicKey publicKey, byte[] authSecret) {}
+
+    private record Outcome(PushSubscription subscription, int status, Exception error) {
+        boolean sent() {
+            return error == null && status >= 200 && status < 300;
+        }
+
+        boolean expired() {
+            return status == 404 || status == 410;
+        }
+    }
+
     private final PushSubscriptionRepository pushSubscriptionRepository;
+    private final MeterRegistry meterRegistry;
 
     @Value("${vapid.public-key:}")
     private String vapidPublicKey;
@@ -31,15 +72,58 @@ public class WebPushService {
     @Value("${vapid.subject:mailto:alerts@fishmaster.app}")
     private String vapidSubject;
 
-    public WebPushService(PushSubscriptionRepository pushSubscriptionRepository) {
+    // In-flight push requests across all users and outbox workers
+    @Value("${web-push.max-concurrency:16}")
+    private int maxConcurrency = 16;
+
+    @Value("${web-push.request-timeout-ms:10000}")
+    private long requestTimeoutMs = 10_000;
+
+    // Endpoints whose decoded subscriber keys are kept (LRU beyond this)
+    @Value("${web-push.key-cache-size:10000}")
+    private int keyCacheSize = 10_000;
+
+    private volatile VapidSender sender;
+    private HttpClient httpClient;
+    private Semaphore permits;
+    private Map<String, SubscriberKeys> keyCache;
+
+    public WebPushService(PushSubscriptionRepository pushSubscriptionRepository, MeterRegistry meterRegistry) {
         this.pushSubscriptionRepository = pushSubscriptionRepository;
+        this.meterRegistry = meterRegistry;
     }
 
     @PostConstruct
-    void registerSecurityProvider() {
+    void init() {
         if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
             Security.addProvider(new BouncyCastleProvider());
         }
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(requestTimeoutMs))
+                .build();
+        permits = new Semaphore(Math.max(1, maxConcurrency));
+        int capacity = Math.max(1, keyCacheSize);
+        keyCache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SubscriberKeys> eldest) {
+                return size() > capacity;
+            }
+        };
+        if (isConfigured()) {
+            try {
+                sender = new VapidSender()
+                        .setPublicKey(vapidPublicKey)
+                        .setPrivateKey(vapidPrivateKey)
+                        .setSubject(vapidSubject);
+            } catch (Exception e) {
+                log.error("[WEB-PUSH] Invalid VAPID keys, push notifications disabled: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        httpClient.close();
     }
 
     public boolean isConfigured() {
@@ -51,59 +135,126 @@ public class WebPushService {
         return vapidPublicKey;
     }
 
-    @Async
-    public void sendPush(Long userId, Alert alert) {
-        if (!isConfigured()) {
+    /**
+     * Sends the alert to every subscription of the user. Called from the alert outbox workers:
+     * throws when no subscription got it and at least one failure is worth retrying (a retry
+     * re-sends to all subscriptions, so partial successes are not retried).
+     *
+     * @return false when there was nothing to send to
+     */
+    public boolean sendPush(Long userId, Alert alert) throws Exception {
+        VapidSender vapid = sender;
+        if (vapid == null) {
             log.debug("[WEB-PUSH] VAPID keys not configured, skipping push notification");
-            return;
+            return false;
         }
 
         List<PushSubscription> subscriptions = pushSubscriptionRepository.findByUserId(userId);
         if (subscriptions.isEmpty()) {
             log.debug("[WEB-PUSH] No push subscriptions for user={}", userId);
-            return;
+            return false;
         }
 
         FriendlyAlertCopy.FriendlyMessage friendly = FriendlyAlertCopy.forAlert(alert);
         String title = FriendlyAlertCopy.pushTitle(friendly).replace("\"", "\\\"");
         String body = FriendlyAlertCopy.pushBody(friendly).replace("\"", "\\\"");
 
-        String payload = """
+        byte[] payload = """
                 {"title":"%s","body":"%s","icon":"/android/launchericon-192x192.png","url":"/advisor"}
-                """.formatted(title, body).trim();
+                """.formatted(title, body).trim().getBytes(StandardCharsets.UTF_8);
 
-        try {
-            PushService pushService = new PushService();
-            pushService.setPublicKey(vapidPublicKey);
-            pushService.setPrivateKey(vapidPrivateKey);
-            pushService.setSubject(vapidSubject);
-
-            for (PushSubscription sub : subscriptions) {
-                try {
-                    Subscription subscription = new Subscription(
-                            sub.getEndpoint(),
-                            new Subscription.Keys(sub.getP256dh(), sub.getAuth())
-                    );
-                    Notification notification = new Notification(subscription, payload);
-                    pushService.send(notification);
-                    log.info("[WEB-PUSH] Push sent successfully to user={}", userId);
-                } catch (Exception e) {
-                    handlePushFailure(sub, e);
-                }
+        List<CompletableFuture<Outcome>> inFlight = new ArrayList<>(subscriptions.size());
+        for (PushSubscription sub : subscriptions) {
+            inFlight.add(send(vapid, sub, payload));
+        }
+
+        int sent = 0;
+        Exception retryable = null;
+        List<PushSubscription> expired = new ArrayList<>();
+        for (CompletableFuture<Outcome> future : inFlight) {
+            Outcome outcome = future.join();
+            if (outcome.sent()) {
+                sent++;
+            } else if (outcome.expired()) {
+                expired.add(outcome.subscription());
+            } else {
+                Exception e = outcome.error() != null ? outcome.error()
+                        : new IllegalStateException("Push service returned HTTP " + outcome.status());
+                log.warn("[WEB-PUSH] Failed to send push to {}: {}", outcome.subscription().getEndpoint(), e.getMessage());
+                retryable = e;
             }
+        }
+        removeExpired(expired);
+        log.info("[WEB-PUSH] Push for alert={} sent to {}/{} subscriptions of user={}",
+                alert.getId(), sent, subscriptions.size(), userId);
+
+        if (sent == 0 && retryable != null) {
+            throw retryable;
+        }
+        return true;
+    }
+
+    /** Encrypts on the calling thread, then hands the request to the shared client once a permit is free. */
+    private CompletableFuture<Outcome> send(VapidSender vapid, PushSubscription sub, byte[] payload) {
+        java.net.http.HttpRequest request;
+        try {
+            SubscriberKeys keys = keysFor(sub);
+            HttpRequest prepared = vapid.prepare(new Notification(sub.getEndpoint(), keys.publicKey(), keys.authSecret(), payload));
+            java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(prepared.getUrl()))
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .POST(java.net.http.HttpRequest.BodyPublishers.ofByteArray(prepared.getBody()));
+            prepared.getHeaders().forEach(builder::header);
+            request = builder.build();
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(new Outcome(sub, 0, e));
         } catch (Exception e) {
-            log.error("[WEB-PUSH] Failed to initialize push service: {}", e.getMessage());
+            return CompletableFuture.completedFuture(new Outcome(sub, 0, e));
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    permits.release();
+                    Outcome outcome = error != null
+                            ? new Outcome(sub, 0, error instanceof Exception ex ? ex : new RuntimeException(error))
+                            : new Outcome(sub, response.statusCode(), null);
+                    meterRegistry.counter("alerts.push.sent", "status",
+                            outcome.error() != null ? "error" : String.valueOf(outcome.status())).increment();
+                    return outcome;
+                });
+    }
+
+    private SubscriberKeys keysFor(PushSubscription sub) throws Exception {
+        synchronized (keyCache) {
+            SubscriberKeys cached = keyCache.get(sub.getEndpoint());
+            if (cached != null && cached.p256dh().equals(sub.getP256dh()) && cached.auth().equals(sub.getAuth())) {
+                return cached;
+            }
         }
+        SubscriberKeys keys = new SubscriberKeys(sub.getP256dh(), sub.getAuth(),
+                Utils.loadPublicKey(sub.getP256dh()), decodeBase64(sub.getAuth()));
+        synchronized (keyCache) {
+            keyCache.put(sub.getEndpoint(), keys);
+        }
+        return keys;
     }
 
-    private void handlePushFailure(PushSubscription sub, Exception e) {
-        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
-        if (message.contains("410") || message.contains("404") || message.contains("Gone")) {
-            log.info("[WEB-PUSH] Subscription expired, removing: {}", sub.getEndpoint());
-            pushSubscriptionRepository.delete(sub);
-        } else {
-            log.warn("[WEB-PUSH] Failed to send push to {}: {}", sub.getEndpoint(), message);
+    /** Drops subscriptions the push service reported as gone (404/410) in a single statement. */
+    private void removeExpired(List<PushSubscription> expired) {
+        if (expired.isEmpty()) return;
+        pushSubscriptionRepository.deleteAllByIdInBatch(expired.stream().map(PushSubscription::getId).toList());
+        synchronized (keyCache) {
+            expired.forEach(sub -> keyCache.remove(sub.getEndpoint()));
         }
+        log.info("[WEB-PUSH] Removed {} expired subscriptions: {}", expired.size(),
+                expired.stream().map(PushSubscription::getEndpoint).toList());
     }
 
+    /** Browsers hand out URL-safe base64 without padding; tolerate the standard alphabet too. */
+    private static byte[] decodeBase64(String value) {
+        String normalized = value.trim().replace('+', '-').replace('/', '_');
+        int end = normalized.length();
+        while (end > 0 && normalized.charAt(end - 1) == '=') end--;
+        return Base64.getUrlDecoder().decode(normalized.substring(0, end));
+    }
 }
@@ -0,0 +1,43 @@
+package com.fishmaster.backend.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Primitive-double helpers for the telemetry hot path (alert evaluation, health scoring).
+ * They mirror the {@code BigDecimal} arithmetic previously used there, including
+ * {@code RoundingMode.HALF_UP}, at the precision readings and thresholds actually carry
+ * (a handful of decimal places). Missing values are represented as {@code NaN}.
+ */
+public final class DoubleMath {
+
+    // Absorbs binary representation error so decimal ties like 0.20005 still round up
+    private static final double TIE_EPSILON = 1e-9;
+
+    private static final double[] POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private DoubleMath() {}
+
+    /** {@code value.doubleValue()}, or NaN for null. */
+    public static double of(BigDecimal value) {
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    public static boolean isMissing(double value) {
+        return Double.isNaN(value);
+    }
+
+    /**
+     * {@code x} rounded HALF_UP to {@code places} decimals, expressed as a whole number of
+     * {@code 10^-places} units (e.g. 0.20005 at 4 places -> 2001).
+     */
+    public static long halfUpUnits(double x, int places) {
+        double scaled = Math.abs(x) * POW10[places];
+        long units = (long) Math.floor(scaled + 0.5 + TIE_EPSILON);
+        return x < 0 ? -units : units;
+    }
+
+    /** Same as {@code BigDecimal.setScale(places, HALF_UP)}, returned as a double. */
+    public static double roundHalfUp(double x, int places) {
+        return halfUpUnits(x, places) / POW10[places];
+    }
+}
@@ -0,0 +1,164 @@
+package com.fishmaster.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling that consumes points one at a time, in time order,
+ * and emits at most {@code threshold} of them: the first point, the last point, and per bucket
+ * the point forming the largest triangle with the previously emitted point and the average of
+ * the next bucket. Unlike averaging, this keeps spikes and dips.
+ * <p>
+ * Buckets split the requested time range evenly (not the point count, which a cursor does not
+ * know up front), so empty buckets are simply skipped. Only the bucket being decided and the one
+ * after it are held in memory, every reading in them; callers bound that by bounding the bucket
+ * width, {@code (to - from) / (threshold - 2)}.
+ */
+public final class LttbDownsampler {
+
+    /** Receives the selected points in time order. */
+    @FunctionalInterface
+    public interface PointSink {
+        void accept(long epochMillis, double value);
+    }
+
+    private final PointSink sink;
+    private final int threshold;
+    private final long from;
+    private final double bucketWidth;
+
+    private boolean started;
+    // Last emitted point (the triangle's fixed vertex)
+    private long anchorTime;
+    private double anchorValue;
+    private Bucket current = new Bucket();
+    private Bucket next = new Bucket();
+
+    /** Points are bucketed over [from, to); {@code threshold} is the most points emitted (at least 3). */
+    public LttbDownsampler(long fromMillis, long toMillis, int threshold, PointSink sink) {
+        if (threshold < 3) {
+            throw new IllegalArgumentException("threshold must be at least 3");
+        }
+        if (toMillis <= fromMillis) {
+            throw new IllegalArgumentException("empty range");
+        }
+        this.sink = sink;
+        this.threshold = threshold;
+        this.from = fromMillis;
+        this.bucketWidth = (double) (toMillis - fromMillis) / (threshold - 2);
+    }
+
+    public void add(long epochMillis, double value) {
+        if (Double.isNaN(value)) return;
+        if (!started) {
+            started = true;
+            anchorTime = epochMillis;
+            anchorValue = value;
+            sink.accept(epochMillis, value);
+            return;
+        }
+        int index = bucketOf(epochMillis);
+        if (current.isEmpty() || index == current.index) {
+            current.add(index, epochMillis, epochMillis - from, value);
+        } else if (next.isEmpty() || index == next.index) {
+            next.add(index, epochMillis, epochMillis - from, value);
+        } else {
+            // The next bucket is complete, so the current one can be decided against its average
+            emitLargest(current, from + next.averageOffset(), next.averageValue());
+            Bucket done = current;
+            current = next;
+            next = done;
+            next.clear();
+            next.add(index, epochMillis, epochMillis - from, value);
+        }
+    }
+
+    /** Emits the remaining buckets and the last point. */
+    public void finish() {
+        Bucket tail = next.isEmpty() ? current : next;
+        if (tail.isEmpty()) return; // zero or one point in total
+        long lastTime = tail.times[tail.size - 1];
+        double lastValue = tail.values[tail.size - 1];
+        tail.removeLast(lastTime - from);
+        if (!next.isEmpty()) {
+            emitLargest(current, from + next.averageOffset(), next.averageValue());
+            emitLargest(next, lastTime, lastValue);
+        } else if (!current.isEmpty()) {
+            emitLargest(current, lastTime, lastValue);
+        }
+        sink.accept(lastTime, lastValue);
+        current.clear();
+        next.clear();
+    }
+
+    private int bucketOf(long epochMillis) {
+        long index = (long) ((epochMillis - from) / bucketWidth);
+        return (int) Math.max(0, Math.min(threshold - 3, index));
+    }
+
+    private void emitLargest(Bucket bucket, double nextTime, double nextValue) {
+        // Times are taken relative to the anchor so the products stay precise
+        double cx = nextTime - anchorTime;
+        double cy = nextValue - anchorValue;
+        int best = 0;
+        double bestArea = -1;
+        for (int i = 0; i < bucket.size; i++) {
+            double bx = bucket.times[i] - anchorTime;
+            double by = bucket.values[i] - anchorValue;
+            double area = Math.abs(bx * cy - cx * by); // twice the triangle's area
+            if (area > bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        anchorTime = bucket.times[best];
+        anchorValue = bucket.values[best];
+        sink.accept(anchorTime, anchorValue);
+    }
+
+    /** Points of one bucket in primitive arrays, reused once the bucket is decided. */
+    private static final class Bucket {
+        int index;
+        int size;
+        long[] times = new long[64];
+        double[] values = new double[64];
+        double offsetSum; // times relative to the range start, so the sum stays exact
+        double valueSum;
+
+        void add(int index, long time, long offset, double value) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            this.index = index;
+            times[size] = time;
+            values[size] = value;
+            size++;
+            offsetSum += offset;
+            valueSum += value;
+        }
+
+        void removeLast(long offset) {
+            size--;
+            offsetSum -= offset;
+            valueSum -= values[size];
+        }
+
+        double averageOffset() {
+            return offsetSum / size;
+        }
+
+        double averageValue() {
+            return valueSum / size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+            offsetSum = 0;
+            valueSum = 0;
+        }
+    }
+}
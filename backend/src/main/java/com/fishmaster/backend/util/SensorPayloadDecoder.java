@@ -0,0 +1,276 @@
+package com.fishmaster.backend.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Streaming decoders for the sensor payloads published by the ESP32 firmware.
+ * Each decoder reads only the fields it knows straight from the MQTT byte[] with Jackson's
+ * {@link JsonParser}, without building a JsonNode tree or copying the payload into a String.
+ * <p>
+ * Decoders are mutable and meant to be reused by one thread at a time (see {@link #temperature()}
+ * and friends); every {@code decode} call resets the previous result. Field semantics match the
+ * earlier {@code ObjectMapper.readTree} handling: floats go through {@code double} like a
+ * DoubleNode would, the last duplicate key wins and only top-level fields are considered.
+ */
+public final class SensorPayloadDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final ThreadLocal<Temperature> TEMPERATURE = ThreadLocal.withInitial(Temperature::new);
+    private static final ThreadLocal<Turbidity> TURBIDITY = ThreadLocal.withInitial(Turbidity::new);
+    private static final ThreadLocal<Ph> PH = ThreadLocal.withInitial(Ph::new);
+
+    private SensorPayloadDecoder() {}
+
+    /** Per-thread reusable decoder for {@code FishMaster/Temperature}. */
+    public static Temperature temperature() {
+        return TEMPERATURE.get();
+    }
+
+    /** Per-thread reusable decoder for {@code FishMaster/Turbidity}. */
+    public static Turbidity turbidity() {
+        return TURBIDITY.get();
+    }
+
+    /** Per-thread reusable decoder for pH telemetry ({@code aquarium/telemetry}). */
+    public static Ph ph() {
+        return PH.get();
+    }
+
+    public static final class Temperature {
+        private BigDecimal temperature;
+        private String tankId;
+        private String timestamp;
+        private boolean hasTimestamp;
+
+        /** @return false when the payload has no numeric {@code temperature} */
+        public boolean decode(byte[] payload) throws IOException {
+            temperature = null;
+            tankId = null;
+            timestamp = null;
+            hasTimestamp = false;
+            try (JsonParser p = JSON.createParser(payload)) {
+                if (p.nextToken() != JsonToken.START_OBJECT) return false;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    JsonToken value = p.nextToken();
+                    switch (field) {
+                        case "temperature" -> temperature = isNumber(value) ? decimal(p, value) : null;
+                        case "tankId" -> tankId = text(p, value);
+                        case "timestamp" -> {
+                            hasTimestamp = true;
+                            timestamp = text(p, value);
+                        }
+                        default -> p.skipChildren();
+                    }
+                }
+            }
+            return temperature != null;
+        }
+
+        public BigDecimal getTemperature() { return temperature; }
+        public String getTankId() { return tankId; }
+        public boolean hasTimestamp() { return hasTimestamp; }
+        public String getTimestamp() { return timestamp; }
+    }
+
+    public static final class Turbidity {
+        private Integer rawAdc;
+        private BigDecimal ntu;
+        private String tankId;
+
+        /** @return false unless {@code raw_adc} is an int and {@code ntu} is numeric */
+        public boolean decode(byte[] payload) throws IOException {
+            rawAdc = null;
+            ntu = null;
+            tankId = null;
+            try (JsonParser p = JSON.createParser(payload)) {
+                if (p.nextToken() != JsonToken.START_OBJECT) return false;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    JsonToken value = p.nextToken();
+                    switch (field) {
+                        case "raw_adc" -> rawAdc = value == JsonToken.VALUE_NUMBER_INT
+                                && p.getNumberType() == JsonParser.NumberType.INT ? p.getIntValue() : null;
+                        case "ntu" -> ntu = isNumber(value) ? decimal(p, value) : null;
+                        case "tankId" -> tankId = text(p, value);
+                        default -> p.skipChildren();
+                    }
+                }
+            }
+            return rawAdc != null && ntu != null;
+        }
+
+        public Integer getRawAdc() { return rawAdc; }
+        public BigDecimal getNtu() { return ntu; }
+        public String getTankId() { return tankId; }
+    }
+
+    public static final class Ph {
+        // Fallback aliases in priority order, used only when the standard key is absent
+        private static final String[] VALUE_ALIASES = {"ph", "pH", "phValue"};
+        private static final String[] VOLTAGE_ALIASES = {"voltage", "v", "phVolt"};
+
+        private boolean hasPhValue;
+        private BigDecimal phValue;
+        private boolean hasPhVoltage;
+        private BigDecimal phVoltage;
+        private final boolean[] valueAliasPresent = new boolean[VALUE_ALIASES.length];
+        private final BigDecimal[] valueAliases = new BigDecimal[VALUE_ALIASES.length];
+        private final boolean[] voltageAliasPresent = new boolean[VOLTAGE_ALIASES.length];
+        private final BigDecimal[] voltageAliases = new BigDecimal[VOLTAGE_ALIASES.length];
+        private BigDecimal internalChipTemp;
+        private BigDecimal chipTemp;
+        private Long uptimeMs;
+        private String tankId;
+
+        /**
+         * Decodes the payload; use {@link #getPhValue()} / {@link #getPhVoltage()} to see whether
+         * anything usable was present (both null means the payload should be rejected).
+         */
+        public void decode(byte[] payload) throws IOException {
+            reset();
+            try (JsonParser p = JSON.createParser(payload)) {
+                if (p.nextToken() != JsonToken.START_OBJECT) return;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    JsonToken value = p.nextToken();
+                    switch (field) {
+                        case "ph_value" -> {
+                            hasPhValue = true;
+                            phValue = lenientDecimal(p, value);
+                        }
+                        case "ph_voltage" -> {
+                            hasPhVoltage = true;
+                            phVoltage = lenientDecimal(p, value);
+                        }
+                        case "ph", "pH", "phValue" -> alias(VALUE_ALIASES, valueAliasPresent, valueAliases, field, p, value);
+                        case "voltage", "v", "phVolt" -> alias(VOLTAGE_ALIASES, voltageAliasPresent, voltageAliases, field, p, value);
+                        case "internal_chip_temp" -> internalChipTemp = isNumber(value) ? decimal(p, value) : null;
+                        case "chip_temp" -> chipTemp = isNumber(value) ? decimal(p, value) : null;
+                        case "uptime_ms" -> uptimeMs = longValue(p, value);
+                        case "tankId" -> tankId = text(p, value);
+                        default -> p.skipChildren();
+                    }
+                }
+            }
+        }
+
+        private void reset() {
+            hasPhValue = false;
+            phValue = null;
+            hasPhVoltage = false;
+            phVoltage = null;
+            for (int i = 0; i < VALUE_ALIASES.length; i++) {
+                valueAliasPresent[i] = false;
+                valueAliases[i] = null;
+            }
+            for (int i = 0; i < VOLTAGE_ALIASES.length; i++) {
+                voltageAliasPresent[i] = false;
+                voltageAliases[i] = null;
+            }
+            internalChipTemp = null;
+            chipTemp = null;
+            uptimeMs = null;
+            tankId = null;
+        }
+
+        private static void alias(String[] names, boolean[] present, BigDecimal[] values,
+                                  String field, JsonParser p, JsonToken value) throws IOException {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(field)) {
+                    // JSON null does not count as present, so a later alias can still win
+                    present[i] = value != JsonToken.VALUE_NULL;
+                    values[i] = lenientDecimal(p, value);
+                    return;
+                }
+            }
+        }
+
+        private static BigDecimal firstPresent(boolean[] present, BigDecimal[] values) {
+            for (int i = 0; i < present.length; i++) {
+                if (present[i]) return values[i];
+            }
+            return null;
+        }
+
+        /** Unclamped pH value, from {@code ph_value} or the first present alias. */
+        public BigDecimal getPhValue() {
+            return hasPhValue ? phValue : firstPresent(valueAliasPresent, valueAliases);
+        }
+
+        public BigDecimal getPhVoltage() {
+            return hasPhVoltage ? phVoltage : firstPresent(voltageAliasPresent, voltageAliases);
+        }
+
+        /** {@code internal_chip_temp}, falling back to {@code chip_temp}. */
+        public BigDecimal getInternalChipTemp() {
+            return internalChipTemp != null ? internalChipTemp : chipTemp;
+        }
+
+        public Long getUptimeMs() { return uptimeMs; }
+        public String getTankId() { return tankId; }
+    }
+
+    private static boolean isNumber(JsonToken token) {
+        return token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT;
+    }
+
+    /** Same value JsonNode#decimalValue would produce for this numeric token. */
+    private static BigDecimal decimal(JsonParser p, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return BigDecimal.valueOf(p.getDoubleValue());
+        }
+        if (p.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+            return new BigDecimal(p.getBigIntegerValue());
+        }
+        return BigDecimal.valueOf(p.getLongValue());
+    }
+
+    /** Numbers as-is; strings trimmed, with ',' accepted as decimal separator; anything else null. */
+    private static BigDecimal lenientDecimal(JsonParser p, JsonToken token) throws IOException {
+        if (isNumber(token)) return decimal(p, token);
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                String s = p.getText().trim();
+                if (s.isEmpty()) return null;
+                double d = Double.parseDouble(s.replace(',', '.'));
+                if (Double.isNaN(d) || Double.isInfinite(d)) return null;
+                return BigDecimal.valueOf(d);
+            } catch (NumberFormatException ignore) {
+                return null;
+            }
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static Long longValue(JsonParser p, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            if (p.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                return p.getBigIntegerValue().bitLength() <= 63 ? p.getBigIntegerValue().longValue() : null;
+            }
+            return p.getLongValue();
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            double d = p.getDoubleValue();
+            return d >= Long.MIN_VALUE && d <= Long.MAX_VALUE ? (long) d : null;
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    /** Scalar text like JsonNode#asText(null); objects, arrays and null yield null. */
+    private static String text(JsonParser p, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        return token == JsonToken.VALUE_NULL ? null : p.getText();
+    }
+}
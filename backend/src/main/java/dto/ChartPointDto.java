@@ -0,0 +1,20 @@
+package dto;
+
+import java.time.Instant;
+
+public class ChartPointDto {
+    private Instant at;
+    private double value;
+
+    public ChartPointDto() {}
+
+    public ChartPointDto(Instant at, double value) {
+        this.at = at;
+        this.value = value;
+    }
+
+    public Instant getAt() { return at; }
+    public void setAt(Instant at) { this.at = at; }
+    public double getValue() { return value; }
+    public void setValue(double value) { this.value = value; }
+}
@@ -0,0 +1,20 @@
+package dto;
+
+import java.time.Instant;
+
+public class HealthPointDto {
+    private Instant minute;
+    private int healthPercent;
+
+    public HealthPointDto() {}
+
+    public HealthPointDto(Instant minute, int healthPercent) {
+        this.minute = minute;
+        this.healthPercent = healthPercent;
+    }
+
+    public Instant getMinute() { return minute; }
+    public void setMinute(Instant minute) { this.minute = minute; }
+    public int getHealthPercent() { return healthPercent; }
+    public void setHealthPercent(int healthPercent) { this.healthPercent = healthPercent; }
+}
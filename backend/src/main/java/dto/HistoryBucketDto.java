@@ -0,0 +1,32 @@
+package dto;
+
+import java.time.Instant;
+
+public class HistoryBucketDto {
+    private Instant bucket;
+    private Double min;   // min/avg/max are null for a bucket without readings (count 0)
+    private Double avg;
+    private Double max;
+    private long count;
+
+    public HistoryBucketDto() {}
+
+    public HistoryBucketDto(Instant bucket, Double min, Double avg, Double max, long count) {
+        this.bucket = bucket;
+        this.min = min;
+        this.avg = avg;
+        this.max = max;
+        this.count = count;
+    }
+
+    public Instant getBucket() { return bucket; }
+    public void setBucket(Instant bucket) { this.bucket = bucket; }
+    public Double getMin() { return min; }
+    public void setMin(Double min) { this.min = min; }
+    public Double getAvg() { return avg; }
+    public void setAvg(Double avg) { this.avg = avg; }
+    public Double getMax() { return max; }
+    public void setMax(Double max) { this.max = max; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
@@ -0,0 +1,40 @@
+package dto;
+
+import java.time.Instant;
+
+public class RollupPointDto {
+    private Instant bucket;
+    private double min;
+    private double max;
+    private double avg;
+    private long count;
+    private double first;
+    private double last;
+
+    public RollupPointDto() {}
+
+    public RollupPointDto(Instant bucket, double min, double max, double avg, long count, double first, double last) {
+        this.bucket = bucket;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+        this.count = count;
+        this.first = first;
+        this.last = last;
+    }
+
+    public Instant getBucket() { return bucket; }
+    public void setBucket(Instant bucket) { this.bucket = bucket; }
+    public double getMin() { return min; }
+    public void setMin(double min) { this.min = min; }
+    public double getMax() { return max; }
+    public void setMax(double max) { this.max = max; }
+    public double getAvg() { return avg; }
+    public void setAvg(double avg) { this.avg = avg; }
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    public double getFirst() { return first; }
+    public void setFirst(double first) { this.first = first; }
+    public double getLast() { return last; }
+    public void setLast(double last) { this.last = last; }
+}
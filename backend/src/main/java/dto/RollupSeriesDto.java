@@ -0,0 +1,28 @@
+package dto;
+
+import java.util.List;
+
+public class RollupSeriesDto {
+    private String tankId;
+    private String metric;
+    private String resolution; // minute | hour | day
+    private List<RollupPointDto> points;
+
+    public RollupSeriesDto() {}
+
+    public RollupSeriesDto(String tankId, String metric, String resolution, List<RollupPointDto> points) {
+        this.tankId = tankId;
+        this.metric = metric;
+        this.resolution = resolution;
+        this.points = points;
+    }
+
+    public String getTankId() { return tankId; }
+    public void setTankId(String tankId) { this.tankId = tankId; }
+    public String getMetric() { return metric; }
+    public void setMetric(String metric) { this.metric = metric; }
+    public String getResolution() { return resolution; }
+    public void setResolution(String resolution) { this.resolution = resolution; }
+    public List<RollupPointDto> getPoints() { return points; }
+    public void setPoints(List<RollupPointDto> points) { this.points = points; }
+}
@@ -0,0 +1,18 @@
+-- Alert notification outbox (documentation; JPA ddl-auto may apply schema)
+-- One row per alert and channel, written in the same transaction as the alert.
+CREATE TABLE IF NOT EXISTS alert_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    alert_id BIGINT NOT NULL REFERENCES alerts(id) ON DELETE CASCADE,
+    kind VARCHAR(16) NOT NULL,            -- ALERT | RESOLVED
+    channel VARCHAR(16) NOT NULL,         -- IN_APP | EMAIL | PUSH
+    status VARCHAR(16) NOT NULL DEFAULT 'PENDING', -- PENDING | IN_PROGRESS | SENT | SKIPPED | FAILED
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    locked_until TIMESTAMPTZ,             -- lease held by the worker that claimed the row
+    last_error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    sent_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS idx_alert_outbox_due ON alert_outbox(status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_alert_outbox_alert ON alert_outbox(alert_id);
@@ -0,0 +1,26 @@
+-- Tank health projection (documentation; JPA ddl-auto may apply schema)
+-- Current health per tank, upserted by the ingest path (TankHealthProjector).
+CREATE TABLE IF NOT EXISTS tank_health (
+    tank_id BIGINT PRIMARY KEY REFERENCES tanks(id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL,
+    temperature NUMERIC(5,2),             -- latest value per metric, NULL until the first reading
+    ph NUMERIC(5,2),
+    turbidity NUMERIC(7,2),
+    temperature_score INT NOT NULL,
+    ph_score INT NOT NULL,
+    turbidity_score INT NOT NULL,
+    health_percent INT NOT NULL,
+    mood VARCHAR(16) NOT NULL,            -- happy | okay | stressed
+    reading_at TIMESTAMPTZ NOT NULL,
+    last_changed_at TIMESTAMPTZ NOT NULL  -- when health_percent or mood last changed
+);
+
+CREATE INDEX IF NOT EXISTS idx_tank_health_user ON tank_health(user_id);
+
+-- Overall health per tank and minute, for charts
+CREATE TABLE IF NOT EXISTS tank_health_history (
+    tank_id BIGINT NOT NULL REFERENCES tanks(id) ON DELETE CASCADE,
+    minute TIMESTAMPTZ NOT NULL,
+    health_percent INT NOT NULL,
+    PRIMARY KEY (tank_id, minute)
+);
@@ -0,0 +1,56 @@
+-- Monthly range partitions for readings, the same conversion PartitionManager runs at startup
+-- (PartitionManager.convert / conversionStatements; JPA ddl-auto creates the plain tables).
+-- Each plain table becomes the first partition of a new partitioned table, named
+-- <table>_before_YYYY_MM and holding every row before the first day of next month (UTC);
+-- PartitionManager then keeps <table>_pYYYY_MM partitions months-ahead of now.
+-- Tables that do not exist yet or are already partitioned are left alone.
+DO $$
+DECLARE
+    t RECORD;
+    boundary DATE := (date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '1 month')::date;
+    bound TEXT := quote_literal(to_char(boundary, 'YYYY-MM-DD') || ' 00:00:00+00');
+    legacy TEXT;
+    next_id BIGINT;
+BEGIN
+    FOR t IN SELECT * FROM (VALUES
+            ('temperature_readings', 'idx_temp_tank_time', 'tank_id, server_timestamp'),
+            ('ph_readings', 'idx_ph_tank_time', 'tank_id, server_timestamp'),
+            ('turbidity_readings', 'idx_turbidity_tank_time', 'tank_id, server_timestamp'),
+            ('device_info_snapshots', 'idx_device_info_device_time', 'device_id, server_timestamp')
+        ) AS managed(name, index_name, index_columns)
+    LOOP
+        CONTINUE WHEN (SELECT relkind FROM pg_class WHERE oid = to_regclass(t.name)) IS DISTINCT FROM 'r';
+        legacy := t.name || '_before_' || to_char(boundary, 'YYYY_MM');
+
+        EXECUTE format('LOCK TABLE %I IN ACCESS EXCLUSIVE MODE', t.name);
+        EXECUTE format('SELECT coalesce(max(id), 0) + 1 FROM %I', t.name) INTO next_id;
+        -- Validated CHECK matching the partition bound, so ATTACH skips its scan
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (server_timestamp < %s)',
+                       t.name, legacy || '_check', bound);
+        EXECUTE format('CREATE UNIQUE INDEX %I ON %I (id, server_timestamp)', legacy || '_pkey', t.name);
+
+        -- The id moves to a sequence owned by the parent; identity columns cannot be attached
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t.name);
+        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT IF EXISTS %I', t.name, t.name || '_pkey');
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I PRIMARY KEY USING INDEX %I',
+                       t.name, legacy || '_pkey', legacy || '_pkey');
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', t.name, legacy);
+        EXECUTE format('ALTER INDEX IF EXISTS %I RENAME TO %I', t.index_name, legacy || '_idx');
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH %s', t.name || '_id_seq', next_id);
+        EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) PARTITION BY RANGE (server_timestamp)',
+                       t.name, legacy);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', t.name, t.name || '_id_seq');
+        EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', t.name || '_id_seq', t.name);
+        -- The partition key must be part of the primary key
+        EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, server_timestamp)', t.name);
+        EXECUTE format('CREATE INDEX %I ON %I (%s)', t.index_name, t.name, t.index_columns);
+
+        -- Both indexes already exist on the old table, so attaching reuses them
+        EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (MINVALUE) TO (%s)',
+                       t.name, legacy, bound);
+        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', legacy, legacy || '_check');
+    END LOOP;
+END $$;
+
+-- Retention (partitions.retention-months) drops whole months:
+-- DROP TABLE IF EXISTS temperature_readings_pYYYY_MM;
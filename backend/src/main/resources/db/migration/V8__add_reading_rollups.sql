@@ -0,0 +1,20 @@
+-- Reading rollups per tank and metric (documentation; JPA ddl-auto may apply schema)
+-- Merged at ingest by ReadingRollupService; avg = sum_value / sample_count.
+CREATE TABLE IF NOT EXISTS reading_rollups_minute (
+    tank_id VARCHAR(64) NOT NULL,
+    metric VARCHAR(16) NOT NULL,          -- temperature | ph | turbidity
+    bucket TIMESTAMPTZ NOT NULL,          -- start of the minute
+    min_value DOUBLE PRECISION NOT NULL,
+    max_value DOUBLE PRECISION NOT NULL,
+    sum_value DOUBLE PRECISION NOT NULL,
+    sample_count BIGINT NOT NULL,
+    first_value DOUBLE PRECISION NOT NULL,
+    first_at TIMESTAMPTZ NOT NULL,        -- server_timestamp of the first reading in the bucket
+    last_value DOUBLE PRECISION NOT NULL,
+    last_at TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (tank_id, metric, bucket)
+);
+
+-- Same columns; bucket is the start of the hour / the UTC day
+CREATE TABLE IF NOT EXISTS reading_rollups_hour (LIKE reading_rollups_minute INCLUDING ALL);
+CREATE TABLE IF NOT EXISTS reading_rollups_day (LIKE reading_rollups_minute INCLUDING ALL);
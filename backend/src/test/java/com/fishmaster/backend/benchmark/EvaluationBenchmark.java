@@ -0,0 +1,65 @@
+package com.fishmaster.backend.benchmark;
+
+import com.fishmaster.backend.service.AlertEngine;
+import com.fishmaster.backend.service.DecimalReference;
+import com.fishmaster.backend.service.TankHealthCalculator;
+import com.fishmaster.backend.util.DoubleMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-reading threshold check, severity and health score: the original BigDecimal arithmetic
+ * ({@link DecimalReference}) versus the primitive double path. Run with {@code -prof gc} for B/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+
+    private final BigDecimal low = new BigDecimal("22.0");
+    private final BigDecimal high = new BigDecimal("28.0");
+    private final BigDecimal turbidityMax = new BigDecimal("5.0");
+    private final BigDecimal[] temperatures = {
+            new BigDecimal("25.43"), new BigDecimal("29.10"), new BigDecimal("21.75"), new BigDecimal("34.2")
+    };
+    private int next;
+
+    private BigDecimal nextTemperature() {
+        return temperatures[next++ & 3];
+    }
+
+    @Benchmark
+    public void decimal(Blackhole bh) {
+        BigDecimal value = nextTemperature();
+        boolean violation = value.compareTo(low) < 0 || value.compareTo(high) > 0;
+        bh.consume(violation ? DecimalReference.calculateSeverity(value, low, high) : null);
+        bh.consume(DecimalReference.scoreValue(value, low, high, false));
+        bh.consume(DecimalReference.scoreValue(value, BigDecimal.ZERO, turbidityMax, true));
+    }
+
+    @Benchmark
+    public void primitive(Blackhole bh) {
+        // Conversion at the boundary is part of the measured cost
+        double value = nextTemperature().doubleValue();
+        double lo = DoubleMath.of(low);
+        double hi = DoubleMath.of(high);
+        boolean violation = value < lo || value > hi;
+        bh.consume(violation ? AlertEngine.calculateSeverity(value, lo, hi) : null);
+        bh.consume(TankHealthCalculator.scoreValue(value, lo, hi, false));
+        bh.consume(TankHealthCalculator.scoreValue(value, 0.0, DoubleMath.of(turbidityMax), true));
+    }
+}
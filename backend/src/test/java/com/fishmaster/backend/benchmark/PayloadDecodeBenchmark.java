@@ -0,0 +1,97 @@
+package com.fishmaster.backend.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fishmaster.backend.util.SensorPayloadDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tree-model parsing (what TelemetryService used to do: bytes -> String -> readTree) versus the
+ * streaming {@link SensorPayloadDecoder}. Run with {@code -prof gc} to compare allocation per message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadDecodeBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final byte[] temperature = bytes("{\"temperature\":25.43,\"tankId\":\"tank1\",\"timestamp\":\"2025-01-01T10:00:00Z\"}");
+    private final byte[] turbidity = bytes("{\"raw_adc\":1834,\"ntu\":3.27,\"tankId\":\"tank1\"}");
+    private final byte[] ph = bytes("{\"ph_value\":7.12,\"ph_voltage\":1.652,\"internal_chip_temp\":41.5,"
+            + "\"uptime_ms\":86400123,\"wifi_rssi\":-61,\"tankId\":\"tank1\"}");
+
+    @Benchmark
+    public void temperatureTree(Blackhole bh) throws Exception {
+        JsonNode node = objectMapper.readTree(new String(temperature, StandardCharsets.UTF_8));
+        bh.consume(node.get("temperature").decimalValue());
+        bh.consume(node.path("tankId").asText(null));
+        bh.consume(node.get("timestamp").asText());
+    }
+
+    @Benchmark
+    public void temperatureStreaming(Blackhole bh) throws Exception {
+        SensorPayloadDecoder.Temperature decoded = SensorPayloadDecoder.temperature();
+        decoded.decode(temperature);
+        bh.consume(decoded.getTemperature());
+        bh.consume(decoded.getTankId());
+        bh.consume(decoded.getTimestamp());
+    }
+
+    @Benchmark
+    public void turbidityTree(Blackhole bh) throws Exception {
+        JsonNode node = objectMapper.readTree(new String(turbidity, StandardCharsets.UTF_8));
+        bh.consume(node.get("raw_adc").asInt());
+        bh.consume(node.get("ntu").decimalValue());
+        bh.consume(node.path("tankId").asText(null));
+    }
+
+    @Benchmark
+    public void turbidityStreaming(Blackhole bh) throws Exception {
+        SensorPayloadDecoder.Turbidity decoded = SensorPayloadDecoder.turbidity();
+        decoded.decode(turbidity);
+        bh.consume(decoded.getRawAdc());
+        bh.consume(decoded.getNtu());
+        bh.consume(decoded.getTankId());
+    }
+
+    @Benchmark
+    public void phTree(Blackhole bh) throws Exception {
+        JsonNode node = objectMapper.readTree(new String(ph, StandardCharsets.UTF_8));
+        bh.consume(node.get("ph_value").decimalValue());
+        bh.consume(node.get("ph_voltage").decimalValue());
+        bh.consume(node.get("internal_chip_temp").decimalValue());
+        bh.consume(node.get("uptime_ms").asLong());
+        bh.consume(node.path("tankId").asText(null));
+    }
+
+    @Benchmark
+    public void phStreaming(Blackhole bh) throws Exception {
+        SensorPayloadDecoder.Ph decoded = SensorPayloadDecoder.ph();
+        decoded.decode(ph);
+        bh.consume(decoded.getPhValue());
+        bh.consume(decoded.getPhVoltage());
+        bh.consume(decoded.getInternalChipTemp());
+        bh.consume(decoded.getUptimeMs());
+        bh.consume(decoded.getTankId());
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
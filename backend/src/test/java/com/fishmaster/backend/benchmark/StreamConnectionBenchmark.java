@@ -0,0 +1,152 @@
+package com.fishmaster.backend.benchmark;
+
+import com.fishmaster.backend.config.StreamProperties;
+import com.fishmaster.backend.config.WebSocketConfig;
+import com.fishmaster.backend.controllers.StreamWebSocketHandler;
+import com.fishmaster.backend.service.StreamHub;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Server heap per idle dashboard connection: SSE ({@code /api/stream}, one servlet async request
+ * each) versus the multiplexed WebSocket ({@code /api/ws/stream}). Boots only the web layer and
+ * StreamHub on an embedded Tomcat, opens N connections that subscribe to every metric of every
+ * tank, waits for each one's ready event and compares heap after full GCs.
+ * <p>
+ * Not a JMH benchmark (it measures retained memory, not time). Run it like the others, with a
+ * fixed heap so GC noise stays low:
+ * {@code java -Xms1g -Xmx1g -cp ... com.fishmaster.backend.benchmark.StreamConnectionBenchmark 5000}.
+ * The clients are plain sockets in the same JVM; they cost the same few hundred bytes for both
+ * transports. Raise the open-files limit (ulimit -n) above 2N first.
+ */
+public class StreamConnectionBenchmark {
+
+    // Keeps Server and SseEndpoint out of the application context when tests component-scan this package
+    private static final String PROFILE = "stream-connection-benchmark";
+
+    private static final byte[] SSE_REQUEST = ("GET /api/stream HTTP/1.1\r\nHost: localhost\r\n"
+            + "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WS_REQUEST = ("GET /api/ws/stream HTTP/1.1\r\nHost: localhost\r\n"
+            + "Upgrade: websocket\r\nConnection: Upgrade\r\nSec-WebSocket-Version: 13\r\n"
+            + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(Server.class)
+                .profiles(PROFILE)
+                .properties("server.port=0",
+                        "server.tomcat.max-connections=" + (connections + 100),
+                        "stream.heartbeat-interval-ms=1000",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn")
+                .run(args)) {
+            int port = context.getWebServer().getPort();
+            StreamHub hub = context.getBean(StreamHub.class);
+
+            // Warm both paths so class loading and pools are not counted
+            measure("warmup-ws", port, WS_REQUEST, 20, hub);
+            measure("warmup-sse", port, SSE_REQUEST, 20, hub);
+
+            System.out.printf("%-10s %12s %16s %10s%n", "transport", "connections", "heap/connection", "threads");
+            // WebSocket first: Tomcat sees a closed socket at once, an abandoned SSE response only on the next write
+            measure("websocket", port, WS_REQUEST, connections, hub);
+            measure("sse", port, SSE_REQUEST, connections, hub);
+        }
+    }
+
+    private static void measure(String label, int port, byte[] request, int connections, StreamHub hub) throws Exception {
+        long before = usedHeapAfterGc();
+        List<SocketChannel> open = new ArrayList<>(connections);
+        ByteBuffer buffer = ByteBuffer.allocate(4_096);
+        try {
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+                open.add(channel);
+                channel.write(ByteBuffer.wrap(request));
+                awaitReady(channel, buffer);
+            }
+            long after = usedHeapAfterGc();
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+            if (!label.startsWith("warmup")) {
+                System.out.printf("%-10s %12d %14d B %10d%n", label, connections, (after - before) / connections, threads);
+            }
+        } finally {
+            for (SocketChannel channel : open) channel.close();
+        }
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (hub.subscriberCount() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(100);
+    }
+
+    /** Reads until the ready event (SSE frame or WebSocket envelope) has arrived. */
+    private static void awaitReady(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        StringBuilder received = new StringBuilder();
+        while (received.indexOf("ready") < 0) {
+            buffer.clear();
+            if (channel.read(buffer) < 0) throw new IOException("Closed before ready: " + received);
+            received.append(new String(buffer.array(), 0, buffer.position(), StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Configuration
+    @Profile(PROFILE)
+    @EnableConfigurationProperties
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class, JacksonAutoConfiguration.class,
+            WebSocketServletAutoConfiguration.class})
+    @Import({StreamProperties.class, StreamHub.class, StreamWebSocketHandler.class, WebSocketConfig.class, SseEndpoint.class})
+    static class Server {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    /** StreamController without Spring Security (no authenticated user, so no alert topic). */
+    @RestController
+    @Profile(PROFILE)
+    @RequiredArgsConstructor
+    static class SseEndpoint {
+        private final StreamHub streamHub;
+
+        @GetMapping(value = "/api/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        SseEmitter stream() {
+            return streamHub.subscribe(StreamHub.dashboardTopics(null, null, null), "ready", null);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.model.AlertSeverity;
+import com.fishmaster.backend.util.DoubleMath;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlertEngineTest {
+
+    @Test
+    public void testSeverityMatchesDecimalImplementation() {
+        for (String[] range : TankHealthCalculatorTest.RANGES) {
+            BigDecimal low = range[0] != null ? new BigDecimal(range[0]) : null;
+            BigDecimal high = range[1] != null ? new BigDecimal(range[1]) : null;
+            for (int thousandths = -5000; thousandths <= 40000; thousandths++) {
+                BigDecimal value = BigDecimal.valueOf(thousandths, 3);
+                AlertSeverity expected = DecimalReference.calculateSeverity(value, low, high);
+                assertEquals(expected,
+                        AlertEngine.calculateSeverity(value.doubleValue(), DoubleMath.of(low), DoubleMath.of(high)),
+                        () -> "value=" + value + " range=" + low + ".." + high);
+            }
+        }
+        // Exact HALF_UP tie on the 20% boundary: 0.20005 rounds to 0.2001
+        assertEquals(AlertSeverity.CRITICAL, AlertEngine.calculateSeverity(24.001, Double.NaN, 20.0));
+        assertEquals(AlertSeverity.WARNING, AlertEngine.calculateSeverity(24.0, Double.NaN, 20.0));
+    }
+}
@@ -0,0 +1,109 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.AlertOutboxProperties;
+import com.fishmaster.backend.model.Alert;
+import com.fishmaster.backend.model.AlertOutboxEntry;
+import com.fishmaster.backend.model.AlertSeverity;
+import com.fishmaster.backend.model.AlertThreshold;
+import com.fishmaster.backend.repositories.AlertOutboxRepository;
+import com.fishmaster.backend.repositories.AlertRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlertOutboxServiceTest {
+
+    private final AlertOutboxRepository outboxRepository = mock(AlertOutboxRepository.class);
+    private final AlertOutboxProperties props = new AlertOutboxProperties();
+    private final AlertRepository alertRepository = mock(AlertRepository.class);
+    private final AlertNotificationService notificationService = mock(AlertNotificationService.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AlertOutboxService outbox = new AlertOutboxService(outboxRepository, alertRepository,
+            notificationService, jdbcTemplate, props, new SimpleMeterRegistry());
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEnqueueAlertHonoursChannelPreferences() {
+        Alert alert = new Alert();
+        alert.setId(42L);
+        alert.setSeverity(AlertSeverity.CRITICAL);
+        AlertThreshold thresholds = new AlertThreshold();
+        thresholds.setInAppAlertsEnabled(false);
+
+        outbox.enqueueAlert(alert, thresholds);
+
+        ArgumentCaptor<List<AlertOutboxEntry>> saved = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).saveAll(saved.capture());
+        assertEquals(List.of(AlertOutboxEntry.Channel.EMAIL, AlertOutboxEntry.Channel.PUSH),
+                saved.getValue().stream().map(AlertOutboxEntry::getChannel).toList());
+        assertTrue(saved.getValue().stream().allMatch(e -> e.getAlertId() == 42L
+                && e.getStatus() == AlertOutboxEntry.Status.PENDING));
+    }
+
+    @Test
+    public void testBackoffDoublesUpToCap() {
+        props.setInitialBackoffMs(1_000);
+        props.setMaxBackoffMs(10_000);
+
+        assertBetween(1_000, 1_200, outbox.backoffMillis(1));
+        assertBetween(2_000, 2_400, outbox.backoffMillis(2));
+        assertBetween(8_000, 9_600, outbox.backoffMillis(4));
+        assertBetween(10_000, 12_000, outbox.backoffMillis(30));
+        verify(outboxRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    public void testRowReclaimedByAnotherWorkerIsNotSentAgain() throws Exception {
+        // Claim returns rows 1 and 2; row 2's lease ran out and another worker re-claimed it
+        when(jdbcTemplate.query(startsWith("UPDATE alert_outbox o"), ArgumentMatchers.<RowMapper<Object>>any(),
+                any(Object[].class))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(claimRow(1L), 0), mapper.mapRow(claimRow(2L), 1));
+        });
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            boolean renew = sql.startsWith("UPDATE alert_outbox SET locked_until");
+            return renew && invocation.<Long>getArgument(2) == 2L ? 0 : 1;
+        });
+        Alert alert = new Alert();
+        alert.setId(42L);
+        when(alertRepository.findAllById(List.of(42L))).thenReturn(List.of(alert));
+
+        assertEquals(2, outbox.dispatchBatch());
+
+        verify(notificationService, times(1)).sendInApp(alert);
+        // Lease renewed and outcome recorded under the attempt count of this claim
+        verify(jdbcTemplate).update(startsWith("UPDATE alert_outbox SET locked_until"), any(), eq(1L), eq(3));
+        verify(jdbcTemplate).update(startsWith("UPDATE alert_outbox SET status"), eq("SENT"), any(), eq(1L), eq(3));
+        verify(jdbcTemplate, never()).update(startsWith("UPDATE alert_outbox SET status"), any(), any(), eq(2L), any());
+    }
+
+    private static ResultSet claimRow(long id) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getLong("alert_id")).thenReturn(42L);
+        when(rs.getString("kind")).thenReturn("ALERT");
+        when(rs.getString("channel")).thenReturn("IN_APP");
+        when(rs.getInt("attempts")).thenReturn(3);
+        return rs;
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual >= min && actual <= max, actual + " not in [" + min + ", " + max + "]");
+    }
+}
@@ -0,0 +1,70 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.model.Alert;
+import com.fishmaster.backend.repositories.AlertRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AlertStateTrackerTest {
+
+    @Mock
+    private AlertRepository alertRepository;
+
+    @InjectMocks
+    private AlertStateTracker tracker;
+
+    @Test
+    public void testRebuildsFromUnresolvedAlertsOnce() {
+        Instant now = Instant.now();
+        when(alertRepository.findByResolvedAtIsNullOrderByCreatedAtAsc()).thenReturn(List.of(
+                alert(1L, 10L, "ph", now.minus(Duration.ofHours(2))),
+                alert(2L, 10L, "ph", now.minus(Duration.ofMinutes(5)))
+        ));
+
+        assertEquals(2L, tracker.newestOpen(10L, "ph").id());
+        assertTrue(tracker.inCooldown(10L, "ph", now.minus(Duration.ofMinutes(15))));
+        assertNull(tracker.newestOpen(10L, "temperature"));
+        assertFalse(tracker.inCooldown(11L, "ph", now.minus(Duration.ofMinutes(15))));
+
+        verify(alertRepository, times(1)).findByResolvedAtIsNullOrderByCreatedAtAsc();
+    }
+
+    @Test
+    public void testOpenAndResolveWithoutTransaction() {
+        when(alertRepository.findByResolvedAtIsNullOrderByCreatedAtAsc()).thenReturn(List.of());
+
+        Alert older = alert(5L, 3L, "temperature", Instant.now().minus(Duration.ofHours(1)));
+        Alert newer = alert(6L, 3L, "temperature", Instant.now());
+        tracker.opened(older);
+        tracker.opened(newer);
+        assertEquals(6L, tracker.newestOpen(3L, "temperature").id());
+
+        tracker.resolved(3L, "temperature", 6L);
+        assertEquals(5L, tracker.newestOpen(3L, "temperature").id());
+        assertFalse(tracker.inCooldown(3L, "temperature", Instant.now().minus(Duration.ofMinutes(15))));
+
+        tracker.forget(3L, "temperature", 5L);
+        assertNull(tracker.newestOpen(3L, "temperature"));
+    }
+
+    private static Alert alert(Long id, Long tankId, String metric, Instant createdAt) {
+        Alert alert = new Alert();
+        alert.setId(id);
+        alert.setUserId(1L);
+        alert.setTankId(tankId);
+        alert.setMetric(metric);
+        alert.setCreatedAt(createdAt);
+        return alert;
+    }
+}
@@ -0,0 +1,62 @@
+package com.fishmaster.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AutoQuestServiceTest {
+
+    private final TankThresholdCache thresholdCache = mock(TankThresholdCache.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final AutoQuestService autoQuests = new AutoQuestService(thresholdCache, jdbcTemplate, new SimpleMeterRegistry());
+
+    @BeforeEach
+    public void setUp() {
+        TankThresholdCache.ThresholdContext context = new TankThresholdCache.ThresholdContext(5L, 1L, null,
+                TankThresholdCache.MetricLimits.of(true, new BigDecimal("22.0"), new BigDecimal("28.0")),
+                TankThresholdCache.MetricLimits.of(true, new BigDecimal("6.5"), new BigDecimal("7.5")),
+                TankThresholdCache.MetricLimits.of(true, null, null));
+        when(thresholdCache.get("tank5")).thenReturn(context);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(1);
+    }
+
+    @Test
+    public void testFirstInRangeReadingCompletesQuestOncePerDay() {
+        autoQuests.onReading("tank5", "temperature", new BigDecimal("30.1"));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+
+        autoQuests.onReading("tank5", "temperature", new BigDecimal("25.0"));
+        autoQuests.onReading("tank5", "temperature", new BigDecimal("25.2"));
+
+        verify(jdbcTemplate, times(1)).update(contains("ON CONFLICT"),
+                eq(1L), eq(5L), eq("check_temperature"), any(), any());
+    }
+
+    @Test
+    public void testConflictStillMarksQuestDone() {
+        // Completed manually or by another node: nothing inserted, and no further inserts today
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+
+        autoQuests.onReading("tank5", "ph", new BigDecimal("7.0"));
+        autoQuests.onReading("tank5", "ph", new BigDecimal("7.1"));
+
+        verify(jdbcTemplate, times(1)).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    public void testClarityNeedsAMaximumAndUnknownTanksAreIgnored() {
+        autoQuests.onReading("tank5", "turbidity", new BigDecimal("1.0"));
+        autoQuests.onReading("unknown", "temperature", new BigDecimal("25.0"));
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+}
@@ -0,0 +1,54 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.model.AlertSeverity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The original BigDecimal implementations of severity and health scoring, kept as the
+ * reference the primitive fast path is checked (and benchmarked) against.
+ */
+public final class DecimalReference {
+
+    private DecimalReference() {}
+
+    public static AlertSeverity calculateSeverity(BigDecimal value, BigDecimal low, BigDecimal high) {
+        BigDecimal deviation;
+        BigDecimal rangeSize;
+
+        if (high != null && value.compareTo(high) > 0) {
+            deviation = value.subtract(high).abs();
+            rangeSize = high.abs().max(BigDecimal.ONE);
+        } else if (low != null && value.compareTo(low) < 0) {
+            deviation = low.subtract(value).abs();
+            rangeSize = low.abs().max(BigDecimal.ONE);
+        } else {
+            return AlertSeverity.INFO;
+        }
+
+        BigDecimal pct = deviation.divide(rangeSize, 4, RoundingMode.HALF_UP)
+                .multiply(new BigDecimal("100"));
+
+        return pct.compareTo(new BigDecimal("20")) > 0 ? AlertSeverity.CRITICAL : AlertSeverity.WARNING;
+    }
+
+    public static int scoreValue(BigDecimal value, BigDecimal safeMin, BigDecimal safeMax, boolean lowerIsBetterOnly) {
+        if (value == null) return 50;
+        if (lowerIsBetterOnly && safeMax != null) {
+            return clamp(100 - value.divide(safeMax.max(BigDecimal.ONE), 4, RoundingMode.HALF_UP)
+                    .multiply(new BigDecimal("100")).intValue());
+        }
+        if (safeMin == null || safeMax == null) return 70;
+        BigDecimal midpoint = safeMin.add(safeMax).divide(new BigDecimal("2"), 2, RoundingMode.HALF_UP);
+        BigDecimal span = safeMax.subtract(safeMin);
+        if (span.compareTo(BigDecimal.ZERO) <= 0) span = BigDecimal.ONE;
+        BigDecimal distance = value.subtract(midpoint).abs();
+        return clamp(100 - distance.divide(span.divide(new BigDecimal("2"), 4, RoundingMode.HALF_UP), 4, RoundingMode.HALF_UP)
+                .multiply(new BigDecimal("100")).intValue());
+    }
+
+    private static int clamp(int value) {
+        return Math.min(100, Math.max(0, value));
+    }
+}
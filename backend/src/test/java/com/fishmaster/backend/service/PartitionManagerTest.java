@@ -0,0 +1,53 @@
+package com.fishmaster.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionManagerTest {
+
+    private static final YearMonth NOW = YearMonth.of(2026, 10);
+
+    @Test
+    public void testCreatesMonthsAfterTheConvertedTable() {
+        List<String> statements = PartitionManager.maintenanceStatements("ph_readings",
+                List.of("ph_readings_before_2026_11"), NOW, 2, 0);
+
+        assertEquals(List.of(
+                "CREATE TABLE IF NOT EXISTS ph_readings_p2026_11 PARTITION OF ph_readings "
+                        + "FOR VALUES FROM ('2026-11-01 00:00:00+00') TO ('2026-12-01 00:00:00+00')",
+                "CREATE TABLE IF NOT EXISTS ph_readings_p2026_12 PARTITION OF ph_readings "
+                        + "FOR VALUES FROM ('2026-12-01 00:00:00+00') TO ('2027-01-01 00:00:00+00')"
+        ), statements);
+    }
+
+    @Test
+    public void testNothingToDoWhenMonthsAheadExist() {
+        List<String> partitions = List.of("ph_readings_p2026_10", "ph_readings_p2026_11", "ph_readings_p2026_12");
+
+        assertTrue(PartitionManager.maintenanceStatements("ph_readings", partitions, NOW, 2, 0).isEmpty());
+    }
+
+    @Test
+    public void testRetentionDropsOnlyWholeMonthsBeforeTheWindow() {
+        List<String> partitions = List.of("ph_readings_before_2026_06", "ph_readings_p2026_06",
+                "ph_readings_p2026_07", "ph_readings_p2026_08", "ph_readings_p2026_10", "ph_readings_p2026_11",
+                "ph_readings_manual");
+
+        List<String> statements = PartitionManager.maintenanceStatements("ph_readings", partitions, NOW, 1, 3);
+
+        // Keeps July (the window starts 2026-07); partitions not named by the manager are left alone
+        assertEquals(List.of("DROP TABLE IF EXISTS ph_readings_before_2026_06", "DROP TABLE IF EXISTS ph_readings_p2026_06"),
+                statements);
+    }
+
+    @Test
+    public void testUpperBoundFromName() {
+        assertEquals(YearMonth.of(2027, 1), PartitionManager.upperBound("device_info_snapshots_p2026_12"));
+        assertEquals(YearMonth.of(2026, 11), PartitionManager.upperBound("temperature_readings_before_2026_11"));
+        assertNull(PartitionManager.upperBound("temperature_readings_old"));
+    }
+}
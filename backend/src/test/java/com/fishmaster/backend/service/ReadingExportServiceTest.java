@@ -0,0 +1,97 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.ExportProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ReadingExportServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ExportProperties props = new ExportProperties();
+    private final ReadingExportService service = new ReadingExportService(jdbcTemplate, props);
+
+    private static final Instant T0 = Instant.parse("2024-03-01T10:00:00Z");
+
+    /** Serves the given rows (id, server_timestamp, device_timestamp, temperature) one page per query. */
+    @SuppressWarnings("unchecked")
+    private void serve(List<List<Object[]>> pages) throws Exception {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(invocation ->
+                invocation.<ConnectionCallback<Object>>getArgument(0).doInConnection(connection));
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        Deque<List<Object[]>> remaining = new ArrayDeque<>(pages);
+        when(statement.executeQuery()).thenAnswer(invocation -> resultSet(remaining.poll()));
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        int[] at = {-1};
+        when(rs.next()).thenAnswer(invocation -> ++at[0] < rows.size());
+        when(rs.getObject(anyInt())).thenAnswer(invocation -> rows.get(at[0])[invocation.<Integer>getArgument(0) - 1]);
+        when(rs.getLong(1)).thenAnswer(invocation -> (Long) rows.get(at[0])[0]);
+        when(rs.getTimestamp(2)).thenAnswer(invocation -> rows.get(at[0])[1]);
+        return rs;
+    }
+
+    private static Object[] row(long id, int minute, String temperature) {
+        return new Object[]{id, Timestamp.from(T0.plusSeconds(60L * minute)), null, new BigDecimal(temperature)};
+    }
+
+    @Test
+    public void testPagesFollowTheLastRowInsteadOfAnOffset() throws Exception {
+        props.setPageSize(2);
+        serve(List.of(List.of(row(1, 0, "25.00"), row(2, 1, "25.10")), List.<Object[]>of(row(3, 1, "25.20"))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export("temperature", "tank1", T0, T0.plusSeconds(3600), 0, ReadingExportService.Format.CSV, out);
+
+        assertEquals("""
+                id,serverTimestamp,deviceTimestamp,temperature
+                1,2024-03-01T10:00:00Z,,25.00
+                2,2024-03-01T10:01:00Z,,25.10
+                3,2024-03-01T10:01:00Z,,25.20
+                """, out.toString(StandardCharsets.UTF_8));
+        // The second page starts after (10:01, id 2); a short page ends the export
+        verify(statement).setTimestamp(4, Timestamp.from(T0.plusSeconds(60)));
+        verify(statement).setLong(5, 2L);
+        verify(statement, times(2)).executeQuery();
+        verify(statement, times(2)).setFetchSize(2);
+        verify(connection, times(2)).commit();
+        verify(connection, times(2)).setAutoCommit(true);
+    }
+
+    @Test
+    public void testNdjsonAndCsvEscaping() throws Exception {
+        serve(List.of(List.<Object[]>of(row(7, 0, "24.50"))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export("temperature", "tank1", T0, T0.plusSeconds(60), 0, ReadingExportService.Format.NDJSON, out);
+
+        assertEquals("{\"id\":7,\"serverTimestamp\":\"2024-03-01T10:00:00Z\",\"deviceTimestamp\":null,\"temperature\":24.50}\n",
+                out.toString(StandardCharsets.UTF_8));
+        assertEquals("\"esp32, \"\"b\"\"\"", ReadingExportService.csvQuote("esp32, \"b\""));
+        assertEquals("esp32-a", ReadingExportService.csvQuote("esp32-a"));
+        assertThrows(IllegalArgumentException.class, () -> service.source("oxygen"));
+    }
+}
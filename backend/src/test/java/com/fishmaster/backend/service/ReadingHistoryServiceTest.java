@@ -0,0 +1,81 @@
+package com.fishmaster.backend.service;
+
+import dto.HistoryBucketDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReadingHistoryServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ReadingHistoryService service = new ReadingHistoryService(jdbcTemplate);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEmptyBucketsComeBackAsGaps() {
+        Instant from = Instant.parse("2024-03-01T10:07:00Z");
+        Instant to = Instant.parse("2024-03-01T10:30:00Z");
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any())).thenReturn(List.of(
+                new HistoryBucketDto(Instant.parse("2024-03-01T10:10:00Z"), 24.0, 24.5, 25.0, 12)));
+
+        List<HistoryBucketDto> history = service.getHistory("ph", "tank1", from, to, Duration.ofMinutes(5));
+
+        // Buckets are epoch-aligned: 10:05 holds the requested 10:07
+        assertEquals(List.of("10:05", "10:10", "10:15", "10:20", "10:25"),
+                history.stream().map(b -> b.getBucket().toString().substring(11, 16)).toList());
+        assertEquals(12, history.get(1).getCount());
+        assertEquals(0, history.get(0).getCount());
+        assertNull(history.get(0).getAvg());
+        verify(jdbcTemplate).query(contains("FROM ph_readings"), any(RowMapper.class), eq(300.0), eq("tank1"),
+                eq(Timestamp.from(Instant.parse("2024-03-01T10:05:00Z"))), eq(Timestamp.from(to)));
+    }
+
+    @Test
+    public void testBucketCountIsBounded() {
+        Instant to = Instant.parse("2024-03-01T00:00:00Z");
+
+        assertThrows(IllegalArgumentException.class, () ->
+                service.getHistory("temperature", "tank1", to.minus(Duration.ofDays(30)), to, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () ->
+                service.getHistory("oxygen", "tank1", to.minus(Duration.ofDays(1)), to, Duration.ofHours(1)));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testChartBucketWidthIsBounded() {
+        Instant to = Instant.parse("2024-03-01T00:00:00Z");
+
+        // points=3 makes one bucket of the whole range, which would buffer every reading in it
+        assertThrows(IllegalArgumentException.class, () ->
+                service.getDownsampled("temperature", "tank1", to.minus(Duration.ofHours(7)), to, 3));
+        assertThrows(IllegalArgumentException.class, () ->
+                service.getDownsampled("temperature", "tank1", to.minus(Duration.ofDays(365)), to, 500));
+        verifyNoInteractions(jdbcTemplate);
+
+        service.getDownsampled("temperature", "tank1", to.minus(Duration.ofHours(6)), to, 3);
+        service.getDownsampled("temperature", "tank1", to.minus(Duration.ofDays(365)), to, 1462);
+        verify(jdbcTemplate, times(2)).execute(any(ConnectionCallback.class));
+    }
+
+    @Test
+    public void testBucketParsing() {
+        assertEquals(Duration.ofMinutes(5), ReadingHistoryService.parseBucket("5m"));
+        assertEquals(Duration.ofDays(1), ReadingHistoryService.parseBucket("1d"));
+        assertEquals(Duration.ofMinutes(15), ReadingHistoryService.parseBucket("PT15M"));
+        assertThrows(IllegalArgumentException.class, () -> ReadingHistoryService.parseBucket("soon"));
+    }
+}
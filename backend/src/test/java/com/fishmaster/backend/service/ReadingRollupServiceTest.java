@@ -0,0 +1,106 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.RollupProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+public class ReadingRollupServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final ReadingRollupService service = new ReadingRollupService(jdbcTemplate, transactionTemplate,
+            new RollupProperties());
+
+    private static final Instant T0 = Instant.parse("2024-03-01T10:15:00Z");
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> rows(String table, int times) {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(times)).batchUpdate(contains("INSERT INTO " + table + " "), captor.capture(), any(int[].class));
+        return captor.getValue();
+    }
+
+    @Test
+    public void testReadingsAreFoldedToOneRowPerBucket() {
+        ReadingRollupService.Batch batch = new ReadingRollupService.Batch();
+        batch.add("tank1", "temperature", new BigDecimal("25.0"), T0.plusSeconds(30));
+        batch.add("tank1", "temperature", new BigDecimal("24.0"), T0);
+        batch.add("tank1", "temperature", new BigDecimal("27.0"), T0.plusSeconds(90));
+        batch.add("tank1", "ph", new BigDecimal("7.0"), T0);
+
+        service.write(batch);
+
+        List<Object[]> minutes = rows("reading_rollups_minute", 1);
+        assertEquals(3, minutes.size()); // two temperature minutes, one ph minute
+        Object[] hour = rows("reading_rollups_hour", 1).stream().filter(r -> r[1].equals("temperature")).findFirst().orElseThrow();
+        assertEquals(Timestamp.from(Instant.parse("2024-03-01T10:00:00Z")), hour[2]);
+        assertEquals(List.of(24.0, 27.0, 76.0, 3L), List.of(hour[3], hour[4], hour[5], hour[6]));
+        // First and last follow the reading time, not the order they were added in
+        assertEquals(24.0, hour[7]);
+        assertEquals(27.0, hour[9]);
+        assertEquals(2, rows("reading_rollups_day", 1).size());
+    }
+
+    @Test
+    public void testFailedBatchIsMergedIntoTheNextOne() {
+        when(jdbcTemplate.batchUpdate(contains("reading_rollups_minute"), anyList(), any(int[].class)))
+                .thenThrow(new RuntimeException("connection lost"))
+                .thenReturn(new int[0]);
+        ReadingRollupService.Batch first = new ReadingRollupService.Batch();
+        first.add("tank1", "ph", new BigDecimal("7.0"), T0);
+        ReadingRollupService.Batch second = new ReadingRollupService.Batch();
+        second.add("tank1", "ph", new BigDecimal("7.4"), T0.plusSeconds(10));
+
+        service.write(first);
+        service.write(second);
+
+        Object[] minute = rows("reading_rollups_minute", 2).get(0);
+        assertEquals(2L, minute[6]);
+        assertEquals(7.0, minute[7]);
+        assertEquals(7.4, minute[9]);
+    }
+
+    @Test
+    public void testFinestResolutionWithinThePointBudget() {
+        Instant now = Instant.parse("2024-06-01T00:00:00Z");
+
+        assertEquals(ReadingRollupService.Resolution.MINUTE,
+                service.pickResolution(now.minus(Duration.ofHours(24)), now, 2500, now));
+        assertEquals(ReadingRollupService.Resolution.HOUR,
+                service.pickResolution(now.minus(Duration.ofDays(7)), now, 2500, now));
+        assertEquals(ReadingRollupService.Resolution.HOUR,
+                service.pickResolution(now.minus(Duration.ofDays(90)), now, 2500, now));
+        assertEquals(ReadingRollupService.Resolution.DAY,
+                service.pickResolution(now.minus(Duration.ofDays(365)), now, 2500, now));
+        // A day from two months ago: minute rollups are gone by then
+        Instant old = now.minus(Duration.ofDays(60));
+        assertEquals(ReadingRollupService.Resolution.HOUR,
+                service.pickResolution(old, old.plus(Duration.ofDays(1)), 2500, now));
+    }
+}
@@ -0,0 +1,250 @@
+package com.fishmaster.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fishmaster.backend.config.StreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class StreamHubTest {
+
+    private final StreamProperties props = new StreamProperties();
+    private final StreamHub hub = new StreamHub(props, new SimpleMeterRegistry(), new ObjectMapper());
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        hub.shutdown();
+    }
+
+    @Test
+    public void testRoutesByTankTopic() throws Exception {
+        RecordingEmitter tank1 = new RecordingEmitter(null);
+        RecordingEmitter all = new RecordingEmitter(null);
+        hub.register(tank1, List.of(StreamHub.telemetryTopic("temperature", "tank1")), null, null);
+        hub.register(all, List.of(StreamHub.telemetryTopic("temperature", StreamHub.ALL_TANKS),
+                StreamHub.telemetryTopic("temperature", "tank1")), null, null);
+
+        hub.publishTelemetry("temperature", "tank2", 21);
+        hub.publishTelemetry("temperature", "tank1", 25);
+        hub.publishTelemetry("ph", "tank1", 7);
+
+        all.await(2);
+        tank1.await(1);
+        assertEquals(List.of("temperature:25"), tank1.events);
+        assertEquals(List.of("temperature:21", "temperature:25"), all.events);
+    }
+
+    @Test
+    public void testEventIsSerializedOnceForAllSubscribers() throws Exception {
+        RecordingEmitter first = new RecordingEmitter(null);
+        RecordingEmitter second = new RecordingEmitter(null);
+        hub.register(first, List.of(StreamHub.alertTopic(7L)), null, null);
+        hub.register(second, List.of(StreamHub.alertTopic(7L)), null, null);
+
+        hub.publishAlert(7L, "alert", Map.of("id", 5));
+
+        first.await(1);
+        second.await(1);
+        assertEquals("alert:{\"id\":5}", first.events.get(0));
+        assertSame(first.frames.get(0), second.frames.get(0));
+    }
+
+    @Test
+    public void testSlowClientGetsLatestTelemetryAndEveryAlert() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        List<String> topics = List.of(StreamHub.telemetryTopic("temperature", "tank1"), StreamHub.alertTopic(7L));
+        StreamHub.Subscriber slowSubscriber = hub.register(slow, topics, null, null);
+        hub.register(fast, topics, null, null);
+
+        hub.publishTelemetry("temperature", "tank1", 0);
+        assertTrue(slow.sending.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 100; i++) {
+            hub.publishTelemetry("temperature", "tank1", i);
+            if (i % 40 == 0) hub.publishAlert(7L, "alert", i);
+        }
+        // The fast client is not held up by the slow one
+        fast.awaitContaining("temperature:100", "alert:40", "alert:80");
+        assertEquals(3, slowSubscriber.queued()); // 100 readings conflated into one slot + 2 alerts
+
+        release.countDown();
+        slow.await(4);
+        // The conflated reading moves behind the alerts, so the stream stays in id order
+        assertEquals(List.of("temperature:0", "alert:40", "alert:80", "temperature:100"), slow.events);
+    }
+
+    @Test
+    public void testReconnectReplaysFromLastEventId() throws Exception {
+        props.setReplayBufferSize(2);
+        List<String> topics = List.of(StreamHub.telemetryTopic("ph", "tank1"));
+        RecordingEmitter live = new RecordingEmitter(null);
+        hub.register(live, topics, null, null);
+        for (int i = 1; i <= 3; i++) {
+            hub.publishTelemetry("ph", "tank1", i);
+            live.await(i); // one at a time, so the live client sees every reading unconflated
+        }
+        String firstId = live.ids.get(0);
+
+        RecordingEmitter resumed = new RecordingEmitter(null);
+        hub.register(resumed, topics, "ready", firstId);
+        resumed.await(3);
+        assertEquals(List.of("ready:ok", "ph:2", "ph:3"), resumed.events);
+        assertEquals(live.ids.subList(1, 3), resumed.ids);
+
+        // Older than what the ring still holds: the client is told to reload, then gets what is retained
+        RecordingEmitter stale = new RecordingEmitter(null);
+        hub.register(stale, topics, null, firstId.substring(0, firstId.lastIndexOf('-') + 1) + "0");
+        stale.await(3);
+        assertEquals(List.of("reset:replay-gap", "ph:2", "ph:3"), stale.events);
+    }
+
+    @Test
+    public void testLastEventIdFromAnotherNodeGetsReset() throws Exception {
+        List<String> topics = List.of(StreamHub.telemetryTopic("ph", "tank1"));
+        RecordingEmitter live = new RecordingEmitter(null);
+        hub.register(live, topics, null, null);
+        hub.publishTelemetry("ph", "tank1", 1);
+        live.await(1);
+
+        // Another node's sequence may be far ahead of this one; it must not look fully caught up
+        StreamHub other = new StreamHub(props, new SimpleMeterRegistry(), new ObjectMapper());
+        RecordingEmitter elsewhere = new RecordingEmitter(null);
+        other.register(elsewhere, topics, null, null);
+        for (int i = 1; i <= 5; i++) {
+            other.publishTelemetry("ph", "tank1", 9);
+            elsewhere.await(i);
+        }
+        other.shutdown();
+
+        RecordingEmitter moved = new RecordingEmitter(null);
+        hub.register(moved, topics, null, elsewhere.ids.get(elsewhere.ids.size() - 1));
+        hub.publishTelemetry("ph", "tank1", 2);
+        moved.await(2);
+        assertEquals(List.of("reset:unknown-event-id", "ph:2"), moved.events);
+    }
+
+    @Test
+    public void testWebSocketSubscriberGetsJsonEnvelopes() throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        List<String> events = new CopyOnWriteArrayList<>();
+        ObjectMapper mapper = new ObjectMapper();
+        doAnswer(invocation -> {
+            if (invocation.getArgument(0) instanceof TextMessage message) {
+                for (JsonNode envelope : mapper.readTree(message.getPayload())) {
+                    events.add(envelope.get("event").asText() + ":" + envelope.get("data"));
+                }
+            }
+            return null;
+        }).when(session).sendMessage(any());
+
+        Runnable cancel = hub.subscribe(session, StreamHub.dashboardTopics(List.of("tank1"), List.of("ph"), 7L), "ready", null);
+        hub.publishTelemetry("ph", "tank2", Map.of("phValue", 6.5));
+        hub.publishTelemetry("ph", "tank1", Map.of("phValue", 7.1));
+        hub.publishAlert(7L, "alert", Map.of("id", 3));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (events.size() < 3 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertEquals(List.of("ready:\"ok\"", "ph:{\"phValue\":7.1}", "alert:{\"id\":3}"), events);
+
+        cancel.run();
+        assertEquals(0, hub.subscriberCount());
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    public void testBackloggedClientIsDisconnected() throws Exception {
+        props.setSubscriberQueueCapacity(3);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        hub.register(slow, List.of(StreamHub.alertTopic(7L)), null, null);
+
+        hub.publishAlert(7L, "alert", 0);
+        assertTrue(slow.sending.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 3; i++) hub.publishAlert(7L, "alert", i);
+        assertEquals(1, hub.subscriberCount());
+
+        hub.publishAlert(7L, "alert", 4);
+        assertEquals(0, hub.subscriberCount());
+        release.countDown();
+    }
+
+    /** Records "event:data" per send; blocks in the first send until {@code release} opens. */
+    static class RecordingEmitter extends SseEmitter {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final List<Object> frames = new CopyOnWriteArrayList<>();
+        final List<String> ids = new CopyOnWriteArrayList<>();
+        final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            record(builder.build());
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            record(items);
+        }
+
+        private void record(Set<DataWithMediaType> items) throws IOException {
+            sending.countDown();
+            try {
+                if (release != null && !release.await(5, TimeUnit.SECONDS)) throw new IOException("timed out");
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            StringBuilder raw = new StringBuilder();
+            for (DataWithMediaType item : items) {
+                frames.add(item.getData());
+                raw.append(item.getData() instanceof byte[] b ? new String(b) : item.getData());
+            }
+            for (String frame : raw.toString().split("\n\n")) {
+                String name = null;
+                String data = null;
+                for (String line : frame.split("\n")) {
+                    if (line.startsWith("event:")) name = line.substring(6).trim();
+                    if (line.startsWith("data:")) data = line.substring(5).trim();
+                    if (line.startsWith("id:")) ids.add(line.substring(3).trim());
+                }
+                if (name != null) events.add(name + ":" + data);
+            }
+        }
+
+        void awaitContaining(String... expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!events.containsAll(List.of(expected)) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(events.containsAll(List.of(expected)), "events: " + events);
+        }
+
+        void await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(count, events.size(), "events: " + events);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.fishmaster.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fishmaster.backend.config.StreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StreamRelayTest {
+
+    private final StreamHub hub = mock(StreamHub.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final StreamRelay relay = new StreamRelay(hub, mock(DataSource.class), mock(JdbcTemplate.class),
+            new StreamProperties(), new SimpleMeterRegistry(), objectMapper, eventPublisher);
+
+    @Test
+    public void testPackKeepsPayloadsUnderLimit() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            lines.add(StreamRelay.encode("n1", "temperature:tank" + i, "temperature",
+                    "{\"tankId\":\"tank" + i + "\",\"temperature\":25.4" + i + ",\"note\":\"Wassertemperatur ü\"}"));
+        }
+
+        List<String> payloads = StreamRelay.pack(lines, StreamRelay.MAX_PAYLOAD_BYTES);
+
+        assertTrue(payloads.size() > 1);
+        assertTrue(payloads.stream().allMatch(p -> p.getBytes(StandardCharsets.UTF_8).length <= StreamRelay.MAX_PAYLOAD_BYTES));
+        assertEquals(lines, payloads.stream().flatMap(p -> List.of(p.split("\n")).stream()).toList());
+    }
+
+    @Test
+    public void testReceiveRepublishesOtherNodesOnly() {
+        String payload = String.join("\n",
+                StreamRelay.encode("other", "ph:tank1", "ph", "{\"phValue\":7.1}"),
+                StreamRelay.encode(relay.nodeId(), "ph:tank1", "ph", "{\"phValue\":6.9}"),
+                StreamRelay.encode("other", "alerts:42", "alert", "{\"id\":5,\"message\":\"a\\tb\"}"));
+
+        relay.receive(payload);
+
+        verify(hub).publishRelayed("ph:tank1", "ph", "{\"phValue\":7.1}");
+        verify(hub).publishRelayed("alerts:42", "alert", "{\"id\":5,\"message\":\"a\\tb\"}");
+        verifyNoMoreInteractions(hub);
+    }
+
+    @Test
+    public void testConfigChangeFromAnotherNodeIsRepublishedAsRelayed() throws Exception {
+        String json = objectMapper.writeValueAsString(new TankConfigChangedEvent(5L, "reef", true));
+
+        relay.receive(StreamRelay.encode("other", StreamRelay.TANK_CONFIG_TOPIC, "changed", json));
+        relay.receive(StreamRelay.encode(relay.nodeId(), StreamRelay.TANK_CONFIG_TOPIC, "changed", json));
+
+        verify(eventPublisher).publishEvent(new TankConfigChangedEvent(5L, "reef", true, true));
+        verifyNoMoreInteractions(eventPublisher);
+        verifyNoInteractions(hub);
+    }
+}
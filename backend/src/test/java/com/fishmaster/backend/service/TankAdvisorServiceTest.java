@@ -0,0 +1,234 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.model.Tank;
+import com.fishmaster.backend.model.TankHealth;
+import com.fishmaster.backend.model.TemperatureReading;
+import com.fishmaster.backend.model.User;
+import com.fishmaster.backend.repositories.*;
+import dto.AdvisorSnapshotDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class TankAdvisorServiceTest {
+
+    private final TankRepository tankRepository = mock(TankRepository.class);
+    private final AlertThresholdRepository thresholdRepository = mock(AlertThresholdRepository.class);
+    private final AlertRepository alertRepository = mock(AlertRepository.class);
+    private final TankQuestCompletionRepository questRepository = mock(TankQuestCompletionRepository.class);
+    private final TemperatureReadingRepository temperatureRepository = mock(TemperatureReadingRepository.class);
+    private final PhReadingRepository phRepository = mock(PhReadingRepository.class);
+    private final TurbidityReadingRepository turbidityRepository = mock(TurbidityReadingRepository.class);
+    private final TankHealthRepository healthRepository = mock(TankHealthRepository.class);
+    private final TankHealthHistoryRepository healthHistoryRepository = mock(TankHealthHistoryRepository.class);
+    private final HourReadingRollupRepository hourlyRollupRepository = mock(HourReadingRollupRepository.class);
+
+    private final TankAdvisorService service = new TankAdvisorService(tankRepository, thresholdRepository,
+            alertRepository, questRepository, temperatureRepository, phRepository, turbidityRepository,
+            healthRepository, healthHistoryRepository, hourlyRollupRepository);
+
+    private static final TrendWindow EMPTY = new TrendWindow(0L, null, null);
+
+    private final User owner = new User();
+
+    @BeforeEach
+    public void setUp() {
+        owner.setId(1L);
+        Tank tank = new Tank();
+        tank.setId(5L);
+        tank.setName("Reef");
+        tank.setUser(owner);
+        tank.setMqttTankId("tank5");
+        when(tankRepository.findByIdWithFish(5L)).thenReturn(Optional.of(tank));
+        when(thresholdRepository.findByTankId(5L)).thenReturn(Optional.empty());
+        when(alertRepository.findByTankIdOrderByCreatedAtDesc(5L)).thenReturn(List.of());
+        when(questRepository.findByUserIdAndTankIdAndQuestDate(anyLong(), anyLong(), any())).thenReturn(List.of());
+        when(healthRepository.findById(5L)).thenReturn(Optional.empty());
+        when(phRepository.findTopByTankIdOrderByServerTimestampDesc("tank5")).thenReturn(Optional.empty());
+        when(turbidityRepository.findTopByTankIdOrderByServerTimestampDesc("tank5")).thenReturn(Optional.empty());
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("temperature"), any(), any(), any())).thenReturn(EMPTY);
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("ph"), any(), any(), any())).thenReturn(EMPTY);
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("turbidity"), any(), any(), any())).thenReturn(EMPTY);
+    }
+
+    private void usePermits(int permits) {
+        ReflectionTestUtils.setField(service, "maxConcurrentQueries", permits);
+        service.init();
+    }
+
+    @Test
+    public void testQueriesRunConcurrently() {
+        usePermits(4);
+        // Each trend query waits for the other two: a sequential snapshot would time out here
+        CountDownLatch allStarted = new CountDownLatch(3);
+        AtomicInteger overlapped = new AtomicInteger();
+        Runnable rendezvous = () -> {
+            allStarted.countDown();
+            try {
+                if (allStarted.await(2, TimeUnit.SECONDS)) overlapped.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("temperature"), any(), any(), any()))
+                .thenAnswer(invocation -> { rendezvous.run(); return EMPTY; });
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("ph"), any(), any(), any()))
+                .thenAnswer(invocation -> { rendezvous.run(); return EMPTY; });
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("turbidity"), any(), any(), any()))
+                .thenAnswer(invocation -> { rendezvous.run(); return EMPTY; });
+        TemperatureReading reading = new TemperatureReading();
+        reading.setTemperature(new BigDecimal("25.0"));
+        when(temperatureRepository.findTopByTankIdOrderByServerTimestampDesc("tank5")).thenReturn(Optional.of(reading));
+
+        AdvisorSnapshotDto snapshot = service.getSnapshot(owner, 5L);
+
+        assertEquals(3, overlapped.get());
+        assertEquals("Reef", snapshot.getTankName());
+        assertEquals(25.0, snapshot.getCurrentTemperature());
+        assertEquals(3, snapshot.getWeeklyReport().size());
+        // In range, but completing quests is left to ingest: the snapshot writes nothing
+        verify(questRepository, never()).save(any());
+    }
+
+    @Test
+    public void testInFlightQueriesStayWithinPermits() {
+        usePermits(2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(temperatureRepository.findTopByTankIdOrderByServerTimestampDesc("tank5")).thenAnswer(invocation -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return Optional.empty();
+        });
+        when(phRepository.findTopByTankIdOrderByServerTimestampDesc("tank5")).thenAnswer(invocation -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return Optional.empty();
+        });
+        when(turbidityRepository.findTopByTankIdOrderByServerTimestampDesc("tank5")).thenAnswer(invocation -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return Optional.empty();
+        });
+
+        service.getSnapshot(owner, 5L);
+
+        assertTrue(peak.get() <= 2, "peak " + peak.get());
+    }
+
+    @Test
+    public void testWeeklyReportComparesOlderWithNewerHalf() {
+        usePermits(4);
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("temperature"), any(), any(), any()))
+                .thenReturn(new TrendWindow(120L, 24.0, 26.0));
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("ph"), any(), any(), any()))
+                .thenReturn(new TrendWindow(120L, 7.2, 7.2));
+        when(hourlyRollupRepository.findTrendWindow(eq("tank5"), eq("turbidity"), any(), any(), any()))
+                .thenReturn(new TrendWindow(3L, 1.0, 2.0));
+
+        AdvisorSnapshotDto snapshot = service.getSnapshot(owner, 5L);
+
+        assertEquals(List.of("Temperature went up a little this week.", "pH stayed steady this week.",
+                "Water clarity: not enough data yet."), snapshot.getWeeklyReport());
+        verify(hourlyRollupRepository).findTrendWindow(eq("tank5"), eq("temperature"),
+                argThat(from -> from.isBefore(Instant.now().minus(Duration.ofDays(6)))
+                        && from.equals(from.truncatedTo(ChronoUnit.HOURS))), any(), any());
+    }
+
+    @Test
+    public void testProjectedHealthReplacesLatestReadingQueries() {
+        usePermits(4);
+        TankHealth projected = new TankHealth();
+        projected.setTankId(5L);
+        projected.setTemperature(new BigDecimal("26.5"));
+        projected.setHealthPercent(72);
+        projected.setMood("happy"); // stale: re-derived from the percent and open alerts
+        when(healthRepository.findById(5L)).thenReturn(Optional.of(projected));
+
+        AdvisorSnapshotDto snapshot = service.getSnapshot(owner, 5L);
+
+        assertEquals(72, snapshot.getHealthPercent());
+        assertEquals("okay", snapshot.getMood());
+        assertEquals(26.5, snapshot.getCurrentTemperature());
+        verify(temperatureRepository, never()).findTopByTankIdOrderByServerTimestampDesc(anyString());
+        verify(phRepository, never()).findTopByTankIdOrderByServerTimestampDesc(anyString());
+    }
+
+    @Test
+    public void testAllTanksUseOneQueryPerTable() {
+        usePermits(4);
+        List<Tank> tanks = new ArrayList<>();
+        for (long id = 6; id <= 8; id++) {
+            Tank tank = new Tank();
+            tank.setId(id);
+            tank.setName("Tank " + id);
+            tank.setUser(owner);
+            tank.setMqttTankId("tank" + id);
+            tanks.add(tank);
+        }
+        when(tankRepository.findByUserIdWithFish(1L)).thenReturn(tanks);
+        TankHealth projected = new TankHealth();
+        projected.setTankId(6L);
+        projected.setTemperature(new BigDecimal("25.0"));
+        projected.setHealthPercent(90);
+        when(healthRepository.findByUserId(1L)).thenReturn(List.of(projected));
+        TemperatureReading latest = new TemperatureReading();
+        latest.setTankId("tank7");
+        latest.setTemperature(new BigDecimal("30.0"));
+        when(temperatureRepository.findLatestByTankIdIn(List.of("tank7", "tank8"))).thenReturn(List.of(latest));
+        when(hourlyRollupRepository.findTrendWindows(any(), eq("temperature"), any(), any(), any()))
+                .thenReturn(List.of(new TankTrendWindow("tank8", 120L, 26.0, 24.0)));
+
+        List<AdvisorSnapshotDto> snapshots = service.getSnapshots(owner);
+
+        assertEquals(List.of(6L, 7L, 8L), snapshots.stream().map(AdvisorSnapshotDto::getTankId).toList());
+        assertEquals(90, snapshots.get(0).getHealthPercent());
+        assertEquals(30.0, snapshots.get(1).getCurrentTemperature());
+        assertEquals("Temperature went down a little this week.", snapshots.get(2).getWeeklyReport().get(0));
+        // Only the tanks without a projection fall back to the reading tables, and nothing is queried per tank
+        verify(temperatureRepository).findLatestByTankIdIn(List.of("tank7", "tank8"));
+        verify(thresholdRepository).findByTankIdIn(List.of(6L, 7L, 8L));
+        verify(temperatureRepository, never()).findTopByTankIdOrderByServerTimestampDesc(anyString());
+        verify(hourlyRollupRepository, never()).findTrendWindow(anyString(), anyString(), any(), any(), any());
+        verify(tankRepository, never()).findByIdWithFish(anyLong());
+    }
+
+    @Test
+    public void testOtherUsersTankIsRejected() {
+        usePermits(4);
+        User stranger = new User();
+        stranger.setId(2L);
+
+        assertThrows(SecurityException.class, () -> service.getSnapshot(stranger, 5L));
+        verify(temperatureRepository, never()).findTopByTankIdOrderByServerTimestampDesc(anyString());
+    }
+
+    @Test
+    public void testMissingTankFailsLikeBefore() {
+        usePermits(4);
+        when(tankRepository.findByIdWithFish(9L)).thenReturn(Optional.empty());
+
+        assertThrows(IllegalArgumentException.class, () -> service.getSnapshot(owner, 9L));
+    }
+}
@@ -0,0 +1,33 @@
+package com.fishmaster.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TankHealthCalculatorTest {
+
+    // {min, max} pairs as stored in alert_thresholds / fish_types (null = not configured)
+    static final String[][] RANGES = {
+            {"22.0", "28.0"}, {"6.5", "7.5"}, {"22.05", "27.9"}, {"24", "24"}, {"0.5", "0.75"},
+            {"-2.5", "3.25"}, {null, "28.0"}, {"22.0", null}
+    };
+
+    @Test
+    public void testScoreValueMatchesDecimalImplementation() {
+        for (String[] range : RANGES) {
+            BigDecimal min = range[0] != null ? new BigDecimal(range[0]) : null;
+            BigDecimal max = range[1] != null ? new BigDecimal(range[1]) : null;
+            for (int cents = -500; cents <= 4000; cents++) {
+                BigDecimal value = BigDecimal.valueOf(cents, 2);
+                for (boolean lowerIsBetter : new boolean[]{false, true}) {
+                    assertEquals(DecimalReference.scoreValue(value, min, max, lowerIsBetter),
+                            TankHealthCalculator.scoreValue(value, min, max, lowerIsBetter),
+                            () -> "value=" + value + " range=" + min + ".." + max + " lowerIsBetter=" + lowerIsBetter);
+                }
+            }
+        }
+        assertEquals(50, TankHealthCalculator.scoreValue(Double.NaN, 22.0, 28.0, false));
+    }
+}
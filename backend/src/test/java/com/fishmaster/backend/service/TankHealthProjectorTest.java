@@ -0,0 +1,170 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import com.fishmaster.backend.model.TankHealth;
+import com.fishmaster.backend.repositories.TankHealthRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TankHealthProjectorTest {
+
+    private final TankThresholdCache thresholdCache = mock(TankThresholdCache.class);
+    private final AlertStateTracker alertState = mock(AlertStateTracker.class);
+    private final TankHealthRepository healthRepository = mock(TankHealthRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TankHealthProjector projector = new TankHealthProjector(thresholdCache, alertState, healthRepository,
+            jdbcTemplate, new TelemetryProperties());
+
+    @BeforeEach
+    public void setUp() {
+        for (long tankId : new long[]{5L, 6L, 7L}) {
+            when(thresholdCache.get("tank" + tankId)).thenReturn(context(tankId));
+        }
+    }
+
+    private static TankThresholdCache.ThresholdContext context(Long tankId) {
+        return new TankThresholdCache.ThresholdContext(tankId, 1L, null,
+                TankThresholdCache.MetricLimits.of(true, new BigDecimal("22.0"), new BigDecimal("28.0")),
+                TankThresholdCache.MetricLimits.of(true, new BigDecimal("6.5"), new BigDecimal("7.5")),
+                TankThresholdCache.MetricLimits.of(true, null, new BigDecimal("5.0")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> rows(String table) {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO " + table + " "), captor.capture(), any(int[].class));
+        return captor.getValue();
+    }
+
+    @Test
+    public void testReadingsAreFoldedIntoOneRowPerTank() {
+        projector.onReading("tank5", "temperature", new BigDecimal("25.0"));
+        projector.onReading("tank5", "ph", new BigDecimal("7.0"));
+        projector.onReading("tank5", "turbidity", new BigDecimal("1.0"));
+        projector.onReading("unknown", "ph", new BigDecimal("7.0"));
+
+        projector.flush();
+
+        List<Object[]> health = rows("tank_health");
+        assertEquals(1, health.size());
+        Object[] row = health.get(0);
+        assertEquals(5L, row[0]);
+        assertEquals(List.of(100, 100, 80), List.of(row[5], row[6], row[7]));
+        assertEquals(94, row[8]);
+        assertEquals("happy", row[9]);
+        List<Object[]> history = rows("tank_health_history");
+        assertEquals(1, history.size());
+        assertEquals(94, history.get(0)[2]);
+
+        // Nothing changed since: the next flush writes nothing
+        projector.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList(), any(int[].class));
+    }
+
+    @Test
+    public void testSeedsFromStoredRowAndCriticalAlertsStressTheTank() {
+        TankHealth stored = new TankHealth();
+        stored.setTankId(5L);
+        stored.setPh(new BigDecimal("7.0"));
+        stored.setTurbidity(new BigDecimal("1.0"));
+        stored.setHealthPercent(94);
+        stored.setMood("happy");
+        stored.setLastChangedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        when(healthRepository.findById(5L)).thenReturn(Optional.of(stored));
+        when(alertState.hasCritical(5L)).thenReturn(true);
+
+        projector.onReading("tank5", "temperature", new BigDecimal("25.0"));
+        projector.flush();
+
+        Object[] row = rows("tank_health").get(0);
+        assertEquals(new BigDecimal("7.0"), row[3]);
+        assertEquals(94, row[8]);
+        assertEquals("stressed", row[9]);
+        verify(healthRepository, times(1)).findById(5L);
+    }
+
+    @Test
+    public void testFailingRowOnlyHoldsBackItsOwnTank() {
+        // Stands in for PostgreSQL: any batch with tank 6's row is rejected as a whole
+        List<Long> upserted = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.stream().anyMatch(r -> r[0].equals(6L))) throw new RuntimeException("foreign key violation");
+            rows.forEach(r -> upserted.add((Long) r[0]));
+            return new int[rows.size()];
+        }).when(jdbcTemplate).batchUpdate(contains("INSERT INTO tank_health "), anyList(), any(int[].class));
+        doAnswer(invocation -> {
+            Object[] row = invocation.getArgument(1);
+            if (row[0].equals(6L)) throw new RuntimeException("foreign key violation");
+            upserted.add((Long) row[0]);
+            return 1;
+        }).when(jdbcTemplate).update(contains("INSERT INTO tank_health "), any(Object[].class), any(int[].class));
+
+        for (String tank : List.of("tank5", "tank6", "tank7")) {
+            projector.onReading(tank, "temperature", new BigDecimal("25.0"));
+        }
+        projector.flush();
+        assertEquals(List.of(5L, 7L), upserted.stream().sorted().toList());
+
+        // Only tank 6 is retried; the others are written again only when they change
+        upserted.clear();
+        projector.flush();
+        assertEquals(List.of(), upserted);
+        verify(jdbcTemplate, times(2)).update(contains("INSERT INTO tank_health "), argThat((Object[] row) -> row[0].equals(6L)), any(int[].class));
+    }
+
+    @Test
+    public void testValuesTankHealthCannotHoldAreIgnored() {
+        projector.onReading("tank5", "temperature", new BigDecimal("1000"));
+        projector.onReading("tank5", "ph", new BigDecimal("999.996"));
+        projector.onReading("tank6", "turbidity", new BigDecimal("100000"));
+        projector.flush();
+        verifyNoInteractions(jdbcTemplate);
+
+        projector.onReading("tank5", "temperature", new BigDecimal("999.99"));
+        projector.onReading("tank6", "turbidity", new BigDecimal("99999.99"));
+        projector.flush();
+        assertEquals(2, rows("tank_health").size());
+    }
+
+    @Test
+    public void testDeletedTankIsForgottenAndItsRowsRemoved() {
+        projector.onReading("tank5", "temperature", new BigDecimal("25.0"));
+        projector.onTankConfigChanged(new TankConfigChangedEvent(5L, "tank5", true));
+        projector.flush();
+        projector.shutdown(); // waits for the queued delete
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), any(int[].class));
+        verify(jdbcTemplate).update("DELETE FROM tank_health WHERE tank_id = ?", 5L);
+        verify(jdbcTemplate).update("DELETE FROM tank_health_history WHERE tank_id = ?", 5L);
+    }
+
+    @Test
+    public void testHistoryOlderThanRetentionIsPurged() {
+        projector.purgeHistory();
+
+        ArgumentCaptor<Object> before = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).update(eq("DELETE FROM tank_health_history WHERE minute < ?"), before.capture());
+        Instant expected = Instant.now().minus(Duration.ofDays(30));
+        assertTrue(Duration.between(((Timestamp) before.getValue()).toInstant(), expected).abs().getSeconds() < 60);
+    }
+}
@@ -0,0 +1,54 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.model.Tank;
+import com.fishmaster.backend.model.User;
+import com.fishmaster.backend.repositories.TankRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TankServiceTest {
+
+    @Mock
+    private TankRepository tankRepository;
+
+    @InjectMocks
+    private TankService tankService;
+
+    @Test
+    public void testTelemetryTankIdOnlyResolvesForOwnedTanks() {
+        User user = new User();
+        user.setId(1L);
+        when(tankRepository.findByUserId(1L)).thenReturn(List.of(tank(7L, "reef"), tank(3L, "shrimp")));
+
+        assertEquals("reef", tankService.resolveTelemetryTankId(user, "reef"));
+        // Without a tankId the user's first tank is used, not the "tank1" default
+        assertEquals("shrimp", tankService.resolveTelemetryTankId(user, null));
+        assertThrows(SecurityException.class, () -> tankService.resolveTelemetryTankId(user, "tank1"));
+    }
+
+    @Test
+    public void testUserWithoutTanksHasNoTelemetryTank() {
+        User user = new User();
+        user.setId(2L);
+        when(tankRepository.findByUserId(2L)).thenReturn(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> tankService.resolveTelemetryTankId(user, null));
+        assertThrows(SecurityException.class, () -> tankService.resolveTelemetryTankId(user, "tank1"));
+    }
+
+    private static Tank tank(Long id, String mqttTankId) {
+        Tank tank = new Tank();
+        tank.setId(id);
+        tank.setMqttTankId(mqttTankId);
+        return tank;
+    }
+}
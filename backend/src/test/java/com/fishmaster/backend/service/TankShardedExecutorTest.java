@@ -0,0 +1,114 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TankShardedExecutorTest {
+
+    private final TelemetryProperties props = new TelemetryProperties();
+    private final TankShardedExecutor executor = new TankShardedExecutor(props, new SimpleMeterRegistry());
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testEachTankRunsInSubmissionOrderOnOneLane() throws Exception {
+        props.setLanes(4);
+        executor.start();
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        Map<String, Thread> threads = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(2_000);
+        for (int i = 0; i < 2_000; i++) {
+            String tankId = "tank" + (i % 10);
+            int sequence = i;
+            executor.execute(tankId, () -> {
+                seen.computeIfAbsent(tankId, k -> new CopyOnWriteArrayList<>()).add(sequence);
+                // Every task of a tank runs on that tank's lane thread
+                assertSame(threads.computeIfAbsent(tankId, k -> Thread.currentThread()), Thread.currentThread());
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(10, seen.size());
+        seen.values().forEach(sequence -> {
+            List<Integer> sorted = new ArrayList<>(sequence);
+            sorted.sort(null);
+            assertEquals(sorted, sequence);
+            assertEquals(200, sequence.size());
+        });
+    }
+
+    @Test
+    public void testFullLaneMakesTheCallerWaitAndShutDownLaneRejects() throws Exception {
+        props.setLanes(1);
+        props.setLaneQueueCapacity(1);
+        executor.start();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        executor.execute("tank1", () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            order.add(1);
+        });
+        executor.execute("tank1", () -> order.add(2)); // fills the queue
+
+        Thread caller = new Thread(() -> executor.execute("tank1", () -> order.add(3)));
+        caller.start();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (caller.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Thread.State.WAITING, caller.getState()); // blocked on the full lane, not run inline
+        release.countDown();
+        caller.join(5_000);
+
+        executor.shutdown();
+        assertEquals(List.of(1, 2, 3), order);
+        assertThrows(RejectedExecutionException.class, () -> executor.execute("tank1", () -> order.add(4)));
+    }
+
+    @Test
+    public void testHotTankStaysListedAmongManyMadeUpIds() throws Exception {
+        props.setLanes(1);
+        executor.start();
+        CountDownLatch done = new CountDownLatch(1_000);
+        for (int i = 0; i < 1_000; i++) {
+            boolean hot = i % 2 == 0;
+            executor.execute(hot ? "hot" : "made-up-" + i, () -> {
+                if (hot) busyWait(200_000);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        Map<String, Double> hottest = executor.stats().get(0).hottestTanksMillis();
+        assertEquals(5, hottest.size());
+        assertEquals("hot", hottest.keySet().iterator().next());
+    }
+
+    private static void busyWait(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import com.fishmaster.backend.model.AlertThreshold;
+import com.fishmaster.backend.model.Tank;
+import com.fishmaster.backend.model.User;
+import com.fishmaster.backend.repositories.AlertThresholdRepository;
+import com.fishmaster.backend.repositories.TankRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TankThresholdCacheTest {
+
+    private final TankRepository tankRepository = mock(TankRepository.class);
+    private final AlertThresholdRepository thresholdRepository = mock(AlertThresholdRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TelemetryProperties props = new TelemetryProperties();
+    private TankThresholdCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        props.setThresholdCacheSize(2);
+        cache = new TankThresholdCache(tankRepository, thresholdRepository, props, meterRegistry,
+                mock(PlatformTransactionManager.class));
+        cache.init();
+    }
+
+    @Test
+    public void testCachesContextAndEvictsOnConfigChange() {
+        Tank tank = tank(7L, "tank7");
+        AlertThreshold stored = new AlertThreshold();
+        stored.setTankId(7L);
+        stored.setPhEnabled(false);
+        when(tankRepository.findFirstByMqttTankId("tank7")).thenReturn(Optional.of(tank));
+        when(thresholdRepository.findByTankId(7L)).thenReturn(Optional.of(stored));
+
+        TankThresholdCache.ThresholdContext context = cache.get("tank7");
+        assertEquals(7L, context.tankId());
+        assertEquals(1L, context.userId());
+        assertEquals(new BigDecimal("28.0"), context.temperature().high());
+        assertEquals(28.0, context.temperature().highValue());
+        assertFalse(context.ph().enabled());
+        assertTrue(Double.isNaN(context.turbidity().lowValue()));
+
+        assertSame(context, cache.get("tank7"));
+        verify(tankRepository, times(1)).findFirstByMqttTankId("tank7");
+        assertEquals(1.0, meterRegistry.counter("alerts.threshold.cache", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("alerts.threshold.cache", "result", "miss").count());
+
+        cache.onTankConfigChanged(new TankConfigChangedEvent(7L, null));
+        cache.get("tank7");
+        verify(tankRepository, times(2)).findFirstByMqttTankId("tank7");
+    }
+
+    @Test
+    public void testUnknownTankIsCachedAndSizeIsBounded() {
+        when(tankRepository.findFirstByMqttTankId(anyString())).thenReturn(Optional.empty());
+
+        assertNull(cache.get("ghost"));
+        assertNull(cache.get("ghost"));
+        verify(tankRepository, times(1)).findFirstByMqttTankId("ghost");
+
+        cache.get("a");
+        cache.get("b");
+        assertEquals(2, cache.size());
+        assertEquals(1.0, meterRegistry.counter("alerts.threshold.cache.evictions", "cause", "size").count());
+    }
+
+    @Test
+    public void testUnknownTankExpiresSoATankCreatedLaterIsFound() throws Exception {
+        props.setUnknownTankCacheTtlMs(20);
+        Tank tank = tank(9L, "tank9");
+        when(tankRepository.findFirstByMqttTankId("tank9")).thenReturn(Optional.empty()).thenReturn(Optional.of(tank));
+        when(thresholdRepository.findByTankId(9L)).thenReturn(Optional.empty());
+
+        assertNull(cache.get("tank9"));
+        assertNull(cache.get("tank9"));
+        verify(tankRepository, times(1)).findFirstByMqttTankId("tank9");
+
+        Thread.sleep(30);
+        assertEquals(9L, cache.get("tank9").tankId());
+        verify(tankRepository, times(2)).findFirstByMqttTankId("tank9");
+    }
+
+    @Test
+    public void testKnownTankIsReloadedAfterTtl() throws Exception {
+        // Stands in for a threshold edit on another node whose relayed eviction never arrived
+        props.setThresholdCacheTtlMs(20);
+        AlertThreshold edited = new AlertThreshold();
+        edited.setTankId(8L);
+        edited.setTemperatureEnabled(true);
+        edited.setTemperatureMax(new BigDecimal("30.0"));
+        when(tankRepository.findFirstByMqttTankId("tank8")).thenReturn(Optional.of(tank(8L, "tank8")));
+        when(thresholdRepository.findByTankId(8L)).thenReturn(Optional.empty()).thenReturn(Optional.of(edited));
+
+        assertEquals(new BigDecimal("28.0"), cache.get("tank8").temperature().high());
+        assertEquals(new BigDecimal("28.0"), cache.get("tank8").temperature().high());
+
+        Thread.sleep(30);
+        assertEquals(new BigDecimal("30.0"), cache.get("tank8").temperature().high());
+        verify(tankRepository, times(2)).findFirstByMqttTankId("tank8");
+    }
+
+    private static Tank tank(Long id, String mqttTankId) {
+        User user = new User();
+        user.setId(1L);
+        Tank tank = new Tank(user, "Reef", 60);
+        tank.setId(id);
+        tank.setMqttTankId(mqttTankId);
+        return tank;
+    }
+}
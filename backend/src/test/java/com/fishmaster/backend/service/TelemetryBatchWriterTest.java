@@ -0,0 +1,98 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import com.fishmaster.backend.model.PhReading;
+import com.fishmaster.backend.model.TemperatureReading;
+import com.fishmaster.backend.model.TurbidityReading;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+public class TelemetryBatchWriterTest {
+
+    private static final Instant T0 = Instant.parse("2024-03-01T10:15:00Z");
+    private static final BigDecimal OVERFLOW = new BigDecimal("999.99");
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ReadingRollupService rollupService = mock(ReadingRollupService.class);
+    private final TelemetryProperties props = new TelemetryProperties();
+    private final TelemetryBatchWriter writer = new TelemetryBatchWriter(jdbcTemplate, props, rollupService);
+
+    @AfterEach
+    public void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    public void testReadingsAreWrittenAsOneBatchPerTable() {
+        writer.enqueue(temperature("25.00"));
+        writer.enqueue(new TurbidityReading());
+        writer.enqueue(new PhReading());
+        assertEquals(3, writer.getPending());
+
+        writer.flush();
+
+        verify(jdbcTemplate).batchUpdate(contains("temperature_readings"), anyList(), any(int[].class));
+        verify(jdbcTemplate).batchUpdate(contains("turbidity_readings"), anyList(), any(int[].class));
+        verify(jdbcTemplate).batchUpdate(contains("ph_readings"), anyList(), any(int[].class));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class), any(int[].class));
+        assertEquals(0, writer.getPending());
+    }
+
+    @Test
+    public void testBadRowOnlyDropsItself() {
+        props.setBatchSize(2);
+        // Stands in for PostgreSQL: a batch with an overflowing value is rejected as a whole
+        List<BigDecimal> stored = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.stream().anyMatch(r -> OVERFLOW.equals(r[1]))) throw new RuntimeException("numeric field overflow");
+            rows.forEach(r -> stored.add((BigDecimal) r[1]));
+            return new int[rows.size()];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList(), any(int[].class));
+        doAnswer(invocation -> {
+            Object[] row = invocation.getArgument(1);
+            if (OVERFLOW.equals(row[1])) throw new RuntimeException("numeric field overflow");
+            stored.add((BigDecimal) row[1]);
+            return 1;
+        }).when(jdbcTemplate).update(anyString(), any(Object[].class), any(int[].class));
+
+        for (String value : List.of("20.00", "21.00", OVERFLOW.toPlainString(), "23.00", "24.00")) {
+            writer.enqueue(temperature(value));
+        }
+        writer.flush();
+
+        // The rest of the failed batch and the batch after it are still written, once each
+        assertEquals(List.of(new BigDecimal("20.00"), new BigDecimal("21.00"), new BigDecimal("23.00"),
+                new BigDecimal("24.00")), stored);
+        ArgumentCaptor<ReadingRollupService.Batch> rollups = ArgumentCaptor.forClass(ReadingRollupService.Batch.class);
+        verify(rollupService, atLeastOnce()).write(rollups.capture());
+        List<ReadingRollupService.Aggregate> minutes = rollups.getAllValues().stream()
+                .filter(b -> !b.isEmpty())
+                .flatMap(b -> b.buckets.get(ReadingRollupService.Resolution.MINUTE).values().stream())
+                .toList();
+        assertEquals(4, minutes.stream().mapToLong(a -> a.count).sum());
+        assertEquals(24.0, minutes.stream().mapToDouble(a -> a.max).max().orElseThrow());
+    }
+
+    private static TemperatureReading temperature(String value) {
+        TemperatureReading reading = new TemperatureReading();
+        reading.setTemperature(new BigDecimal(value));
+        reading.setServerTimestamp(T0);
+        return reading;
+    }
+}
@@ -0,0 +1,92 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.config.TelemetryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TelemetryIngestQueueTest {
+
+    private final TelemetryProperties props = new TelemetryProperties();
+    private final List<String> handled = new CopyOnWriteArrayList<>();
+    private final Set<Thread> handlerThreads = ConcurrentHashMap.newKeySet();
+    private TelemetryIngestQueue queue;
+
+    @AfterEach
+    public void tearDown() {
+        if (queue != null) queue.shutdown(2, TimeUnit.SECONDS);
+    }
+
+    private void start(CountDownLatch gate) {
+        queue = new TelemetryIngestQueue(props, new SimpleMeterRegistry(), (topic, payload) -> {
+            handlerThreads.add(Thread.currentThread());
+            try {
+                if (gate != null) gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add(new String(payload, StandardCharsets.UTF_8));
+        });
+    }
+
+    @Test
+    public void testIdleDispatcherParksUntilSignalled() throws Exception {
+        start(null);
+        queue.submit("tank1/temperature", "1".getBytes(StandardCharsets.UTF_8));
+        awaitHandled(1);
+        Thread dispatcher = handlerThreads.iterator().next();
+
+        // Parked without a timeout, not polling
+        awaitState(dispatcher, Thread.State.WAITING);
+        queue.submit("tank1/temperature", "2".getBytes(StandardCharsets.UTF_8));
+        awaitHandled(2);
+        assertEquals(List.of("1", "2"), handled);
+        assertEquals(1, handlerThreads.size());
+    }
+
+    @Test
+    public void testSpillKeepsArrivalOrderOnOneDispatcher() throws Exception {
+        props.setIngestQueueCapacity(2);
+        props.setOverflowPolicy(TelemetryProperties.OverflowPolicy.SPILL);
+        CountDownLatch gate = new CountDownLatch(1);
+        start(gate);
+
+        List<String> sent = IntStream.range(0, 50).mapToObj(Integer::toString).toList();
+        for (String value : sent) {
+            queue.submit("tank1/ph", value.getBytes(StandardCharsets.UTF_8));
+        }
+        assertTrue(queue.depth() > 2); // the ring is full and the rest waits in the spill queue
+        gate.countDown();
+
+        awaitHandled(sent.size());
+        assertEquals(sent, handled);
+        assertEquals(1, handlerThreads.size());
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (handled.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, handled.size(), "handled: " + handled);
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (thread.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(state, thread.getState());
+    }
+}
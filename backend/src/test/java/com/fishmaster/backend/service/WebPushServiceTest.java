@@ -0,0 +1,140 @@
+package com.fishmaster.backend.service;
+
+import com.fishmaster.backend.model.Alert;
+import com.fishmaster.backend.model.AlertSeverity;
+import com.fishmaster.backend.model.PushSubscription;
+import com.fishmaster.backend.repositories.PushSubscriptionRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nl.martijndwars.webpush.Utils;
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.interfaces.ECPrivateKey;
+import org.bouncycastle.jce.interfaces.ECPublicKey;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class WebPushServiceTest {
+
+    private final PushSubscriptionRepository repository = mock(PushSubscriptionRepository.class);
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private HttpServer server;
+    private WebPushService webPush;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Security.addProvider(new BouncyCastleProvider());
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                exchange.getRequestBody().readAllBytes();
+                Thread.sleep(150);
+                String path = exchange.getRequestURI().getPath();
+                int status = path.startsWith("/gone") ? 410 : path.startsWith("/fail") ? 500 : 201;
+                exchange.sendResponseHeaders(status, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+
+        KeyPair vapid = generateKeyPair();
+        webPush = new WebPushService(repository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(webPush, "vapidPublicKey", base64((ECPublicKey) vapid.getPublic()));
+        ReflectionTestUtils.setField(webPush, "vapidPrivateKey",
+                Base64.getUrlEncoder().withoutPadding().encodeToString(Utils.encode((ECPrivateKey) vapid.getPrivate())));
+        ReflectionTestUtils.setField(webPush, "vapidSubject", "mailto:test@fishmaster.app");
+        webPush.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        webPush.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testSendsConcurrentlyAndRemovesExpiredInOneBatch() throws Exception {
+        List<PushSubscription> subs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) subs.add(subscription(i, "/ok/" + i));
+        subs.add(subscription(10, "/gone/a"));
+        subs.add(subscription(11, "/gone/b"));
+        when(repository.findByUserId(7L)).thenReturn(subs);
+
+        long started = System.nanoTime();
+        assertTrue(webPush.sendPush(7L, alert()));
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(maxActive.get() > 1, "sends were not concurrent");
+        assertTrue(elapsedMs < 6 * 150, "took " + elapsedMs + " ms");
+        verify(repository).deleteAllByIdInBatch(List.of(10L, 11L));
+    }
+
+    @Test
+    public void testThrowsWhenNothingWasDeliveredAndFailureIsRetryable() throws Exception {
+        when(repository.findByUserId(7L)).thenReturn(List.of(subscription(1, "/fail/1"), subscription(2, "/gone/2")));
+
+        assertThrows(IllegalStateException.class, () -> webPush.sendPush(7L, alert()));
+        verify(repository).deleteAllByIdInBatch(List.of(2L));
+    }
+
+    @Test
+    public void testOnlyExpiredSubscriptionsIsNotRetried() throws Exception {
+        when(repository.findByUserId(7L)).thenReturn(List.of(subscription(3, "/gone/3")));
+
+        assertTrue(webPush.sendPush(7L, alert()));
+        verify(repository).deleteAllByIdInBatch(List.of(3L));
+    }
+
+    private PushSubscription subscription(long id, String path) throws Exception {
+        PushSubscription sub = new PushSubscription();
+        sub.setId(id);
+        sub.setUserId(7L);
+        sub.setEndpoint("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        sub.setP256dh(base64((ECPublicKey) generateKeyPair().getPublic()));
+        sub.setAuth(Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[16]));
+        return sub;
+    }
+
+    private static Alert alert() {
+        Alert alert = new Alert();
+        alert.setId(1L);
+        alert.setMetric("temperature");
+        alert.setSeverity(AlertSeverity.WARNING);
+        alert.setValue(new BigDecimal("31.2"));
+        alert.setThresholdLow(new BigDecimal("22"));
+        return alert;
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDH", BouncyCastleProvider.PROVIDER_NAME);
+        generator.initialize(ECNamedCurveTable.getParameterSpec("prime256v1"));
+        return generator.generateKeyPair();
+    }
+
+    private static String base64(ECPublicKey key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Utils.encode(key));
+    }
+}
@@ -0,0 +1,70 @@
+package com.fishmaster.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedRingBufferTest {
+
+    @Test
+    public void testFifoAndCapacity() {
+        BoundedRingBuffer<Integer> ring = new BoundedRingBuffer<>(3);
+        assertEquals(4, ring.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(99));
+        assertEquals(4, ring.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumersLoseNothing() throws Exception {
+        BoundedRingBuffer<Integer> ring = new BoundedRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 5_000;
+        ConcurrentLinkedQueue<Integer> consumed = new ConcurrentLinkedQueue<>();
+        CountDownLatch producersDone = new CountDownLatch(producers);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                producersDone.countDown();
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                while (producersDone.getCount() > 0 || !ring.isEmpty()) {
+                    Integer value = ring.poll();
+                    if (value != null) consumed.add(value);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        assertTrue(producersDone.await(30, TimeUnit.SECONDS));
+        for (Thread t : threads) {
+            t.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        assertEquals(producers * perProducer, consumed.size());
+        assertEquals(producers * perProducer, consumed.stream().distinct().count());
+    }
+}
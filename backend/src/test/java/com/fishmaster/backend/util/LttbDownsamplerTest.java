@@ -0,0 +1,66 @@
+package com.fishmaster.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LttbDownsamplerTest {
+
+    private static final long MINUTE = 60_000;
+
+    private record Point(long at, double value) {}
+
+    private static List<Point> downsample(long from, long to, int threshold, List<Point> input) {
+        List<Point> out = new ArrayList<>();
+        LttbDownsampler lttb = new LttbDownsampler(from, to, threshold, (at, value) -> out.add(new Point(at, value)));
+        input.forEach(p -> lttb.add(p.at(), p.value()));
+        lttb.finish();
+        return out;
+    }
+
+    @Test
+    public void testKeepsSpikesThatAveragingWouldFlatten() {
+        // A week of minute readings at 25 °C with a ten-minute heater failure dropping to 18 °C
+        List<Point> input = new ArrayList<>();
+        for (int i = 0; i < 7 * 24 * 60; i++) {
+            double value = i >= 5000 && i < 5010 ? 18.0 : 25.0 + 0.1 * Math.sin(i / 30.0);
+            input.add(new Point(i * MINUTE, value));
+        }
+
+        List<Point> out = downsample(0, input.size() * MINUTE, 200, input);
+
+        assertTrue(out.size() <= 200, "size " + out.size());
+        assertEquals(input.get(0), out.get(0));
+        assertEquals(input.get(input.size() - 1), out.get(out.size() - 1));
+        assertTrue(out.stream().anyMatch(p -> p.value() == 18.0));
+        for (int i = 1; i < out.size(); i++) {
+            assertTrue(out.get(i).at() > out.get(i - 1).at());
+        }
+    }
+
+    @Test
+    public void testSparseReadingsAreKeptAsTheyAre() {
+        List<Point> input = List.of(new Point(0, 7.0), new Point(30 * MINUTE, 7.2), new Point(200 * MINUTE, 6.9),
+                new Point(500 * MINUTE, 7.1));
+
+        assertEquals(input, downsample(0, 600 * MINUTE, 100, input));
+        assertEquals(List.of(new Point(0, 7.0)), downsample(0, 600 * MINUTE, 100, input.subList(0, 1)));
+        assertEquals(List.of(), downsample(0, 600 * MINUTE, 100, List.of()));
+    }
+
+    @Test
+    public void testPicksTheLargestTriangleInEachBucket() {
+        // Three buckets of 10 minutes; the middle one holds a peak that must be chosen over its neighbours
+        List<Point> input = List.of(new Point(0, 0.0), new Point(12 * MINUTE, 1.0), new Point(15 * MINUTE, 9.0),
+                new Point(18 * MINUTE, 2.0), new Point(29 * MINUTE, 0.0));
+
+        List<Point> out = downsample(0, 30 * MINUTE, 5, input);
+
+        assertTrue(out.contains(new Point(15 * MINUTE, 9.0)));
+        assertEquals(new Point(29 * MINUTE, 0.0), out.get(out.size() - 1));
+        assertTrue(out.size() <= 5);
+    }
+}
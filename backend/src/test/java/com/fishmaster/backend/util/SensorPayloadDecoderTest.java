@@ -0,0 +1,58 @@
+package com.fishmaster.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorPayloadDecoderTest {
+
+    @Test
+    public void testTemperature() throws Exception {
+        SensorPayloadDecoder.Temperature t = SensorPayloadDecoder.temperature();
+        assertTrue(t.decode(bytes("{\"temperature\":25.43,\"meta\":{\"tankId\":\"x\"},\"tankId\":\"tank7\",\"timestamp\":\"2025-01-01T10:00:00Z\"}")));
+        assertEquals(new BigDecimal("25.43"), t.getTemperature());
+        assertEquals("tank7", t.getTankId());
+        assertTrue(t.hasTimestamp());
+        assertEquals("2025-01-01T10:00:00Z", t.getTimestamp());
+
+        // Reuse resets previous values; strings are not accepted as temperature
+        assertFalse(t.decode(bytes("{\"temperature\":\"25.4\"}")));
+        assertNull(t.getTankId());
+        assertFalse(t.hasTimestamp());
+        assertFalse(t.decode(bytes("[1,2]")));
+    }
+
+    @Test
+    public void testTurbidityRequiresIntRawAdc() throws Exception {
+        SensorPayloadDecoder.Turbidity t = SensorPayloadDecoder.turbidity();
+        assertTrue(t.decode(bytes("{\"raw_adc\":1834,\"ntu\":3}")));
+        assertEquals(1834, t.getRawAdc());
+        assertEquals(new BigDecimal("3"), t.getNtu());
+
+        assertFalse(t.decode(bytes("{\"raw_adc\":1834.0,\"ntu\":3.2}")));
+        assertFalse(t.decode(bytes("{\"raw_adc\":99999999999,\"ntu\":3.2}")));
+    }
+
+    @Test
+    public void testPhAliasesAndFallbacks() throws Exception {
+        SensorPayloadDecoder.Ph p = SensorPayloadDecoder.ph();
+        p.decode(bytes("{\"phValue\":\"7,25\",\"pH\":null,\"ph\":6.8,\"v\":1.6,\"chip_temp\":40,\"uptime_ms\":12.9}"));
+        assertEquals(new BigDecimal("6.8"), p.getPhValue()); // "ph" outranks "phValue"; null "pH" is skipped
+        assertEquals(new BigDecimal("1.6"), p.getPhVoltage());
+        assertEquals(new BigDecimal("40"), p.getInternalChipTemp());
+        assertEquals(12L, p.getUptimeMs());
+
+        // A present standard key wins even when unusable
+        p.decode(bytes("{\"ph_value\":null,\"ph\":7.0,\"voltage\":\" 1,7 \"}"));
+        assertNull(p.getPhValue());
+        assertEquals(BigDecimal.valueOf(1.7), p.getPhVoltage());
+        assertNull(p.getUptimeMs());
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}